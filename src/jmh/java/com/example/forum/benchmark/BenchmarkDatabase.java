@@ -0,0 +1,166 @@
+package com.example.forum.benchmark;
+
+import com.example.forum.entity.Topic;
+import com.example.forum.repository.TopicRepository;
+import com.example.forum.service.ForumService;
+import com.example.forum.service.TopicCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * JPA-срез приложения (источник данных, Hibernate, репозитории и {@link ForumService}) поверх
+ * отдельной базы H2 в памяти. Данные для бенчмарков создаются не через JPA, а несколькими INSERT
+ * ... SELECT по {@code SYSTEM_RANGE}, поэтому миллион сообщений вставляется за секунды.
+ */
+final class BenchmarkDatabase implements AutoCloseable {
+  static final String USERNAME = "bench";
+
+  private static final AtomicInteger DATABASES = new AtomicInteger();
+  private static final String BASE_TIME = "TIMESTAMP WITH TIME ZONE '2024-01-01 00:00:00+00'";
+
+  private final ConfigurableApplicationContext context;
+  private final JdbcTemplate jdbc;
+  private final Long userId;
+  private int topics;
+
+  private BenchmarkDatabase(ConfigurableApplicationContext context) {
+    this.context = context;
+    this.jdbc = context.getBean(JdbcTemplate.class);
+    jdbc.update("INSERT INTO users (username, password) VALUES (?, ?)", USERNAME, "password");
+    this.userId =
+        jdbc.queryForObject("SELECT id FROM users WHERE username = ?", Long.class, USERNAME);
+  }
+
+  /**
+   * Поднимает контекст с пустой схемой.
+   *
+   * @return База данных для бенчмарка.
+   */
+  static BenchmarkDatabase start() {
+    String url =
+        "jdbc:h2:mem:bench-"
+            + DATABASES.incrementAndGet()
+            + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000";
+    System.setProperty("spring.devtools.restart.enabled", "false");
+    ConfigurableApplicationContext context =
+        new SpringApplicationBuilder(JpaSlice.class)
+            .web(WebApplicationType.NONE)
+            .run(
+                "--spring.datasource.url=" + url,
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--spring.jpa.show-sql=false",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN");
+    return new BenchmarkDatabase(context);
+  }
+
+  /**
+   * Создает темы и равномерно распределяет между ними сообщения. Идентификаторы тем детерминированы
+   * (см. {@link #topicId(int)}), счетчики тем согласованы с сообщениями.
+   *
+   * @param messages Общее количество сообщений.
+   * @param messagesPerTopic Количество сообщений в одной теме.
+   */
+  void seed(int messages, int messagesPerTopic) {
+    topics = Math.max(1, messages / messagesPerTopic);
+    jdbc.update(
+        "INSERT INTO topic (id, title, created, message_count, last_message_at, user_id)"
+            + " SELECT "
+            + uuid("0000", "X")
+            + ", 'Topic ' || X, "
+            + BASE_TIME
+            + ", (? - X) / ? + 1,"
+            + " DATEADD('MILLISECOND', X + ((? - X) / ?) * ?, "
+            + BASE_TIME
+            + "), ? FROM SYSTEM_RANGE(1, ?)",
+        messages,
+        topics,
+        messages,
+        topics,
+        topics,
+        userId,
+        topics);
+    jdbc.update(
+        "INSERT INTO message (id, author, text, created, topic_id)"
+            + " SELECT "
+            + uuid("0001", "X")
+            + ", ?, 'Benchmark message ' || X, DATEADD('MILLISECOND', X, "
+            + BASE_TIME
+            + "), "
+            + uuid("0000", "MOD(X - 1, ?) + 1")
+            + " FROM SYSTEM_RANGE(1, ?)",
+        USERNAME,
+        topics,
+        messages);
+    jdbc.execute("ANALYZE");
+  }
+
+  /**
+   * Возвращает идентификатор темы, созданной {@link #seed(int, int)}.
+   *
+   * @param number Номер темы, от 1 до {@link #getTopics()}.
+   * @return Идентификатор темы.
+   */
+  static UUID topicId(int number) {
+    return UUID.fromString(String.format("00000000-0000-7000-8000-%012d", number));
+  }
+
+  int getTopics() {
+    return topics;
+  }
+
+  Long getUserId() {
+    return userId;
+  }
+
+  JdbcTemplate getJdbc() {
+    return jdbc;
+  }
+
+  <T> T getBean(Class<T> type) {
+    return context.getBean(type);
+  }
+
+  @Override
+  public void close() {
+    jdbc.execute("SHUTDOWN");
+    context.close();
+  }
+
+  /**
+   * SQL-выражение UUID вида {@code 00000000-<group>-7000-8000-<номер>}, упорядоченного по номеру.
+   */
+  private static String uuid(String group, String number) {
+    return "CAST('00000000-"
+        + group
+        + "-7000-8000-' || LPAD(CAST("
+        + number
+        + " AS VARCHAR), 12, '0') AS UUID)";
+  }
+
+  @Configuration(proxyBeanMethods = false)
+  @ImportAutoConfiguration({
+    DataSourceAutoConfiguration.class,
+    JdbcTemplateAutoConfiguration.class,
+    HibernateJpaAutoConfiguration.class,
+    TransactionAutoConfiguration.class
+  })
+  @EntityScan(basePackageClasses = Topic.class)
+  @EnableJpaRepositories(basePackageClasses = TopicRepository.class)
+  @Import({ForumService.class, TopicCache.class, SimpleMeterRegistry.class})
+  static class JpaSlice {}
+}
@@ -0,0 +1,109 @@
+package com.example.forum.benchmark;
+
+import com.example.forum.dto.MessageDTO;
+import com.example.forum.dto.TopicDTO;
+import com.example.forum.entity.Message;
+import com.example.forum.entity.Topic;
+import com.example.forum.service.ForumService;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Время основных операций {@link ForumService} в зависимости от объема данных. В каждой теме по
+ * {@value #MESSAGES_PER_TOPIC} сообщений, поэтому рост объема означает рост числа тем и размера
+ * таблицы сообщений. Операции записи выполняются над случайной темой.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ForumServiceBenchmark {
+  private static final int MESSAGES_PER_TOPIC = 100;
+
+  @Param({"1000", "100000", "1000000"})
+  public int messages;
+
+  private BenchmarkDatabase database;
+  private ForumService forumService;
+  private Long userId;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    database = BenchmarkDatabase.start();
+    database.seed(messages, MESSAGES_PER_TOPIC);
+    forumService = database.getBean(ForumService.class);
+    userId = database.getUserId();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    database.close();
+  }
+
+  @Benchmark
+  public Topic createTopic() {
+    MessageDTO message = new MessageDTO();
+    message.setText("Benchmark message");
+    TopicDTO topic = new TopicDTO();
+    topic.setTopicName("Benchmark topic");
+    topic.setMessage(message);
+    return forumService.createTopic(topic, userId);
+  }
+
+  @Benchmark
+  public Message addMessageToTopic() {
+    Message message = new Message();
+    message.setText("Benchmark message");
+    return forumService.addMessageToTopic(randomTopic(), message, userId);
+  }
+
+  @Benchmark
+  public Page<Message> getTopicMessage() {
+    return forumService.getTopicMessage(
+        randomTopic(), PageRequest.of(5, 10, Sort.by("created", "id")));
+  }
+
+  @Benchmark
+  public Page<Topic> getAllTopics() {
+    return forumService.getAllTopics(PageRequest.of(0, 5));
+  }
+
+  @Benchmark
+  public void deleteMessage(DeleteTarget target) {
+    forumService.deleteMessage(target.messageId, userId);
+  }
+
+  private UUID randomTopic() {
+    return BenchmarkDatabase.topicId(ThreadLocalRandom.current().nextInt(database.getTopics()) + 1);
+  }
+
+  /** Сообщение, которое создается перед каждым вызовом {@link #deleteMessage(DeleteTarget)}. */
+  @State(Scope.Thread)
+  public static class DeleteTarget {
+    UUID messageId;
+
+    @Setup(Level.Invocation)
+    public void addMessage(ForumServiceBenchmark benchmark) {
+      messageId = benchmark.addMessageToTopic().getId();
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package com.example.forum.benchmark;
+
+import com.example.forum.entity.TimeOrderedUuidGenerator;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Скорость вставки строк с первичным ключом UUID в уже большую таблицу: случайные UUID версии 4
+ * против упорядоченных по времени UUID версии 7 ({@link TimeOrderedUuidGenerator}). Таблица
+ * хранится в файле с небольшим кэшем страниц, поэтому случайные вставки, попадающие в разные
+ * страницы B-дерева, вынуждены читать и разделять холодные страницы.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class IdInsertBenchmark {
+  private static final int BATCH = 1_000;
+
+  @Param({"random", "time-ordered"})
+  public String ids;
+
+  @Param({"1000000", "5000000"})
+  public int rows;
+
+  private Path directory;
+  private Connection connection;
+  private PreparedStatement insert;
+  private Supplier<UUID> generator;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException, SQLException {
+    directory = Files.createTempDirectory("forum-id-bench");
+    connection =
+        DriverManager.getConnection(
+            "jdbc:h2:file:" + directory.resolve("ids") + ";CACHE_SIZE=16384", "sa", "");
+    boolean timeOrdered = "time-ordered".equals(ids);
+    generator = timeOrdered ? TimeOrderedUuidGenerator::next : UUID::randomUUID;
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE message (id UUID PRIMARY KEY, text VARCHAR(255))");
+      // Существующие строки имеют ключи той же природы, что и вставляемые.
+      String existingId =
+          timeOrdered
+              ? "CAST('00000000-0000-7000-8000-' || LPAD(CAST(X AS VARCHAR), 12, '0') AS UUID)"
+              : "RANDOM_UUID()";
+      statement.execute(
+          "INSERT INTO message SELECT "
+              + existingId
+              + ", 'Existing message ' || X FROM SYSTEM_RANGE(1, "
+              + rows
+              + ")");
+    }
+    connection.setAutoCommit(false);
+    insert = connection.prepareStatement("INSERT INTO message (id, text) VALUES (?, ?)");
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException, SQLException {
+    connection.close();
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void insertBatch() throws SQLException {
+    for (int i = 0; i < BATCH; i++) {
+      insert.setObject(1, generator.get());
+      insert.setString(2, "New message");
+      insert.addBatch();
+    }
+    insert.executeBatch();
+    connection.commit();
+  }
+}
@@ -0,0 +1,58 @@
+package com.example.forum.benchmark;
+
+import com.example.forum.config.JwtSigningProperties;
+import com.example.forum.config.JwtTokenProvider;
+import com.example.forum.config.UserPrincipal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+/** Проверка JWT токена с кэшем проверенных токенов и без него. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtTokenProviderBenchmark {
+  private static final String KEY =
+      "53A73E5F1C4E0A2D3B5F2D784E6A1B423D6F247D1F6E5C3A596D635A75327855";
+
+  private JwtTokenProvider cached;
+  private JwtTokenProvider uncached;
+  private String token;
+
+  @Setup
+  public void setup() {
+    JwtSigningProperties signing = new JwtSigningProperties();
+    signing.setKeyId("bench");
+    signing.setKey(KEY);
+    cached = new JwtTokenProvider(signing, 10_000, Duration.ofMinutes(5));
+    uncached = new JwtTokenProvider(signing, 0, Duration.ZERO);
+    UserPrincipal principal = new UserPrincipal(1L, "bench", null, List.of("USER"));
+    token =
+        cached.generateToken(
+            new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+  }
+
+  @Benchmark
+  public boolean validateTokenCached() {
+    return cached.validateToken(token);
+  }
+
+  @Benchmark
+  public boolean validateTokenUncached() {
+    return uncached.validateToken(token);
+  }
+}
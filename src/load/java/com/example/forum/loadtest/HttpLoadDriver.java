@@ -0,0 +1,409 @@
+package com.example.forum.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Нагрузочный драйвер для запущенного приложения. Каждый клиент в замкнутом цикле выполняет
+ * случайный сценарий из смеси чтений и записей от имени одного из пользователей, созданных профилем
+ * 'seed', и после прогрева записывает задержку. В конце выводятся пропускная способность и
+ * перцентили задержки по сценариям.
+ *
+ * <p>Параметры передаются как {@code имя=значение}: {@code base-url}, {@code clients}, {@code
+ * duration}, {@code warmup}, {@code users}, {@code password}, {@code topics} и {@code mix},
+ * например {@code mix=summary:20,cursor:40,post:40}.
+ *
+ * <p>На Java 21 и новее клиенты выполняются в виртуальных потоках, чтобы при тысячах клиентов узким
+ * местом не становился сам драйвер.
+ */
+public final class HttpLoadDriver {
+  private static final Map<String, Integer> DEFAULT_MIX = new LinkedHashMap<>();
+
+  static {
+    DEFAULT_MIX.put("summary", 20);
+    DEFAULT_MIX.put("topics", 10);
+    DEFAULT_MIX.put("messages", 20);
+    DEFAULT_MIX.put("cursor", 25);
+    DEFAULT_MIX.put("post", 15);
+    DEFAULT_MIX.put("create", 5);
+    DEFAULT_MIX.put("sign-in", 5);
+  }
+
+  private final ObjectMapper json = new ObjectMapper();
+  private final HttpClient http;
+  private final String baseUrl;
+  private final String password;
+  private final List<String> usernames = new ArrayList<>();
+  private final List<String> tokens = new ArrayList<>();
+  private final List<UUID> topics = new ArrayList<>();
+  private final String[] scenarios;
+  private final int[] cumulativeWeights;
+
+  private HttpLoadDriver(String baseUrl, String password, Map<String, Integer> mix) {
+    this.baseUrl = baseUrl;
+    this.password = password;
+    this.http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    this.scenarios = mix.keySet().toArray(new String[0]);
+    this.cumulativeWeights = new int[scenarios.length];
+    int total = 0;
+    for (int i = 0; i < scenarios.length; i++) {
+      total += mix.get(scenarios[i]);
+      cumulativeWeights[i] = total;
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    drive(parseOptions(args));
+  }
+
+  /**
+   * Выполняет прогон с заданными параметрами и выводит отчет.
+   *
+   * @param options Параметры прогона в виде {@code имя -> значение}.
+   * @return Итог прогона по всем сценариям.
+   */
+  static Summary drive(Map<String, String> options) throws Exception {
+    HttpLoadDriver driver =
+        new HttpLoadDriver(
+            options.getOrDefault("base-url", "http://localhost:8080"),
+            options.getOrDefault("password", "password"),
+            parseMix(options.get("mix")));
+    int clients = Integer.parseInt(options.getOrDefault("clients", "50"));
+    Duration warmup = Duration.parse(options.getOrDefault("warmup", "PT10S"));
+    Duration duration = Duration.parse(options.getOrDefault("duration", "PT60S"));
+
+    driver.signIn(Integer.parseInt(options.getOrDefault("users", "100")));
+    driver.loadTopics(Integer.parseInt(options.getOrDefault("topics", "1000")));
+    System.out.printf(
+        "Signed in %d users, %d topics in pool; %d clients, warmup %s, duration %s%n",
+        driver.tokens.size(), driver.topics.size(), clients, warmup, duration);
+    return driver.run(clients, warmup, duration);
+  }
+
+  /** Получает токены для пользователей {@code seed-user-1 .. seed-user-N}. */
+  private void signIn(int users) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<String>> results = new ArrayList<>();
+    for (int i = 1; i <= users; i++) {
+      String username = "seed-user-" + i;
+      usernames.add(username);
+      results.add(executor.submit(() -> signIn(username)));
+    }
+    for (Future<String> result : results) {
+      tokens.add(result.get());
+    }
+    executor.shutdown();
+  }
+
+  private String signIn(String username) throws IOException, InterruptedException {
+    HttpResponse<String> response = send(signInRequest(username));
+    if (response.statusCode() != 200) {
+      throw new IllegalStateException(
+          "Sign-in of " + username + " failed with status " + response.statusCode());
+    }
+    return response.body();
+  }
+
+  /** Загружает самые крупные темы; обращения к ним распределяются с перекосом к началу списка. */
+  private void loadTopics(int size) throws IOException, InterruptedException {
+    HttpResponse<String> response =
+        send(get("/api/v1/topic/summary?size=" + size + "&sort=messageCount,desc", tokens.get(0)));
+    for (JsonNode topic : json.readTree(response.body()).path("content")) {
+      topics.add(UUID.fromString(topic.path("id").asText()));
+    }
+    if (topics.isEmpty()) {
+      throw new IllegalStateException("No topics found; start the application with 'seed'");
+    }
+  }
+
+  private Summary run(int clients, Duration warmup, Duration duration) throws Exception {
+    long measureFrom = System.nanoTime() + warmup.toNanos();
+    long stopAt = measureFrom + duration.toNanos();
+    ExecutorService executor = clientExecutor(clients);
+    List<Future<Recorder>> workers = new ArrayList<>();
+    for (int i = 0; i < clients; i++) {
+      workers.add(executor.submit(() -> work(measureFrom, stopAt)));
+    }
+    Recorder total = new Recorder();
+    for (Future<Recorder> worker : workers) {
+      total.merge(worker.get());
+    }
+    executor.shutdown();
+    return total.report(clients, duration);
+  }
+
+  /**
+   * Исполнитель клиентов: виртуальные потоки, если они есть, иначе пул потоков платформы. Сборка
+   * нацелена на Java 17, поэтому фабрика виртуальных потоков вызывается через отражение.
+   */
+  private static ExecutorService clientExecutor(int clients) {
+    if (Runtime.version().feature() >= 21) {
+      try {
+        return (ExecutorService)
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalStateException("Failed to create a virtual thread executor", e);
+      }
+    }
+    return Executors.newFixedThreadPool(clients);
+  }
+
+  private Recorder work(long measureFrom, long stopAt) {
+    Recorder recorder = new Recorder();
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    while (true) {
+      String scenario = pickScenario(random);
+      int user = random.nextInt(tokens.size());
+      HttpRequest request = request(scenario, user, random);
+      long start = System.nanoTime();
+      if (start >= stopAt) {
+        return recorder;
+      }
+      boolean ok;
+      try {
+        ok = send(request).statusCode() < 400;
+      } catch (IOException e) {
+        ok = false;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return recorder;
+      }
+      if (start >= measureFrom) {
+        recorder.record(scenario, System.nanoTime() - start, ok);
+      }
+    }
+  }
+
+  private HttpRequest request(String scenario, int user, ThreadLocalRandom random) {
+    String token = tokens.get(user);
+    UUID topic = pickTopic(random);
+    switch (scenario) {
+      case "summary":
+        return get("/api/v1/topic/summary?size=20&page=" + random.nextInt(50), token);
+      case "topics":
+        return get("/api/v1/topic?size=5&page=" + random.nextInt(50), token);
+      case "messages":
+        return get("/api/v1/topic/" + topic + "/message?size=10&page=" + random.nextInt(5), token);
+      case "cursor":
+        return get("/api/v1/topic/" + topic + "/message/cursor?size=20", token);
+      case "post":
+        return post(
+            "/api/v1/topic/" + topic + "/message?view=message",
+            "{\"text\":\"Load test message\"}",
+            token);
+      case "create":
+        return post(
+            "/api/v1/topic",
+            "{\"topicName\":\"Load test topic\",\"message\":{\"text\":\"Load test message\"}}",
+            token);
+      case "sign-in":
+        return signInRequest(usernames.get(user));
+      default:
+        throw new IllegalArgumentException("Unknown scenario: " + scenario);
+    }
+  }
+
+  private String pickScenario(ThreadLocalRandom random) {
+    int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+    int index = Arrays.binarySearch(cumulativeWeights, value + 1);
+    return scenarios[index >= 0 ? index : -index - 1];
+  }
+
+  /** Выбирает тему с вероятностью, обратно пропорциональной ее месту в списке (Ципф, s = 1). */
+  private UUID pickTopic(ThreadLocalRandom random) {
+    int rank = (int) Math.pow(topics.size() + 1, random.nextDouble()) - 1;
+    return topics.get(Math.min(rank, topics.size() - 1));
+  }
+
+  private HttpRequest signInRequest(String username) {
+    return HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/sign-in"))
+        .header("Content-Type", "application/json")
+        .POST(
+            HttpRequest.BodyPublishers.ofString(
+                "{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}"))
+        .build();
+  }
+
+  private HttpRequest get(String path, String token) {
+    return HttpRequest.newBuilder(URI.create(baseUrl + path))
+        .header("Authorization", "Bearer " + token)
+        .GET()
+        .build();
+  }
+
+  private HttpRequest post(String path, String body, String token) {
+    return HttpRequest.newBuilder(URI.create(baseUrl + path))
+        .header("Authorization", "Bearer " + token)
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(body))
+        .build();
+  }
+
+  private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+    return http.send(request, HttpResponse.BodyHandlers.ofString());
+  }
+
+  private static Map<String, String> parseOptions(String[] args) {
+    Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      String option = arg.startsWith("--") ? arg.substring(2) : arg;
+      int separator = option.indexOf('=');
+      if (separator <= 0) {
+        throw new IllegalArgumentException("Expected name=value, got " + arg);
+      }
+      options.put(option.substring(0, separator), option.substring(separator + 1));
+    }
+    return options;
+  }
+
+  private static Map<String, Integer> parseMix(String mix) {
+    if (mix == null) {
+      return DEFAULT_MIX;
+    }
+    Map<String, Integer> weights = new LinkedHashMap<>();
+    for (String entry : mix.split(",")) {
+      String[] parts = entry.split(":");
+      if (!DEFAULT_MIX.containsKey(parts[0])) {
+        throw new IllegalArgumentException("Unknown scenario: " + parts[0]);
+      }
+      weights.put(parts[0], Integer.parseInt(parts[1]));
+    }
+    return weights;
+  }
+
+  /** Задержки и ошибки по сценариям, собранные одним клиентом. */
+  private static final class Recorder {
+    private final Map<String, long[]> latencies = new LinkedHashMap<>();
+    private final Map<String, Integer> counts = new HashMap<>();
+    private final Map<String, Integer> errors = new HashMap<>();
+
+    void record(String scenario, long nanos, boolean ok) {
+      int count = counts.merge(scenario, 1, Integer::sum);
+      long[] values = latencies.computeIfAbsent(scenario, s -> new long[1024]);
+      if (count > values.length) {
+        values = Arrays.copyOf(values, values.length * 2);
+        latencies.put(scenario, values);
+      }
+      values[count - 1] = nanos;
+      if (!ok) {
+        errors.merge(scenario, 1, Integer::sum);
+      }
+    }
+
+    void merge(Recorder other) {
+      for (Map.Entry<String, long[]> entry : other.latencies.entrySet()) {
+        String scenario = entry.getKey();
+        int otherCount = other.counts.get(scenario);
+        int count = counts.getOrDefault(scenario, 0);
+        long[] values = latencies.getOrDefault(scenario, new long[0]);
+        long[] merged = Arrays.copyOf(values, count + otherCount);
+        System.arraycopy(entry.getValue(), 0, merged, count, otherCount);
+        latencies.put(scenario, merged);
+        counts.put(scenario, count + otherCount);
+        errors.merge(scenario, other.errors.getOrDefault(scenario, 0), Integer::sum);
+      }
+    }
+
+    Summary report(int clients, Duration duration) {
+      double seconds = duration.toNanos() / 1e9;
+      System.out.printf(
+          "%-10s %9s %7s %9s %9s %9s %9s %9s %9s%n",
+          "scenario",
+          "requests",
+          "errors",
+          "req/s",
+          "p50 ms",
+          "p90 ms",
+          "p99 ms",
+          "p99.9 ms",
+          "max ms");
+      long[] all = new long[0];
+      int failed = 0;
+      for (Map.Entry<String, long[]> entry : latencies.entrySet()) {
+        String scenario = entry.getKey();
+        int count = counts.get(scenario);
+        long[] values = Arrays.copyOf(entry.getValue(), count);
+        Arrays.sort(values);
+        int previous = all.length;
+        all = Arrays.copyOf(all, previous + count);
+        System.arraycopy(values, 0, all, previous, count);
+        failed += errors.getOrDefault(scenario, 0);
+        System.out.printf(
+            Locale.ROOT,
+            "%-10s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+            scenario,
+            count,
+            errors.getOrDefault(scenario, 0),
+            count / seconds,
+            percentile(values, 0.50),
+            percentile(values, 0.90),
+            percentile(values, 0.99),
+            percentile(values, 0.999),
+            values[values.length - 1] / 1e6);
+      }
+      Arrays.sort(all);
+      System.out.printf(Locale.ROOT, "total      %9d %17.1f%n", all.length, all.length / seconds);
+      return all.length == 0
+          ? new Summary(clients, 0, failed, 0, 0, 0, 0)
+          : new Summary(
+              clients,
+              all.length,
+              failed,
+              all.length / seconds,
+              percentile(all, 0.50),
+              percentile(all, 0.99),
+              all[all.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+      int index = (int) Math.ceil(percentile * sorted.length) - 1;
+      return sorted[Math.max(0, index)] / 1e6;
+    }
+  }
+
+  /** Итог прогона по всем сценариям: пропускная способность и задержки в миллисекундах. */
+  static final class Summary {
+    final int clients;
+    final long requests;
+    final long errors;
+    final double throughput;
+    final double p50;
+    final double p99;
+    final double max;
+
+    Summary(
+        int clients,
+        long requests,
+        long errors,
+        double throughput,
+        double p50,
+        double p99,
+        double max) {
+      this.clients = clients;
+      this.requests = requests;
+      this.errors = errors;
+      this.throughput = throughput;
+      this.p50 = p50;
+      this.p99 = p99;
+      this.max = max;
+    }
+  }
+}
@@ -0,0 +1,183 @@
+package com.example.forum.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение обработки запросов потоками платформы (поток на запрос) и виртуальными потоками
+ * (профиль 'virtual'). Для каждого режима приложение запускается в отдельной JVM с профилями
+ * 'dev,seed' и одинаковым набором данных, после чего {@link HttpLoadDriver} нагружает его
+ * последовательно с каждым количеством клиентов. Итоговая таблица выводится и записывается в файл.
+ *
+ * <p>Параметры передаются как {@code имя=значение}: {@code modes} (по умолчанию {@code
+ * platform,virtual}), {@code clients} (по умолчанию {@code 1000,5000,10000}), {@code port}, {@code
+ * management-port}, {@code max-connections}, {@code jvm-args} (через пробел), {@code output} и
+ * {@code startup-timeout}; параметры {@code seed.*} передаются приложению как {@code forum.seed.*},
+ * остальные — драйверу, например {@code duration=PT2M}. Режим 'virtual' требует Java 21: на более
+ * старой JVM приложение молча обслуживало бы запросы потоками платформы, поэтому сравнение
+ * отклоняется.
+ */
+public final class ThreadModelComparison {
+  private static final String APPLICATION = "com.example.forum.ForumApplication";
+  private static final List<String> OWN_OPTIONS =
+      List.of(
+          "modes",
+          "clients",
+          "port",
+          "management-port",
+          "max-connections",
+          "jvm-args",
+          "output",
+          "startup-timeout");
+
+  private ThreadModelComparison() {}
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = new LinkedHashMap<>();
+    for (String arg : args) {
+      int separator = arg.indexOf('=');
+      if (separator <= 0) {
+        throw new IllegalArgumentException("Expected name=value, got " + arg);
+      }
+      options.put(arg.substring(0, separator), arg.substring(separator + 1));
+    }
+    List<String> modes =
+        Arrays.asList(options.getOrDefault("modes", "platform,virtual").split(","));
+    if (modes.contains("virtual") && Runtime.version().feature() < 21) {
+      throw new IllegalStateException(
+          "Mode 'virtual' needs Java 21, this is Java " + Runtime.version().feature());
+    }
+    String port = options.getOrDefault("port", "8080");
+    String managementPort = options.getOrDefault("management-port", "8081");
+    Path output = Path.of(options.getOrDefault("output", "target/thread-model-comparison.md"));
+    Duration startupTimeout = Duration.parse(options.getOrDefault("startup-timeout", "PT10M"));
+
+    Map<String, String> driverOptions = new HashMap<>();
+    List<String> applicationArgs = new ArrayList<>();
+    for (Map.Entry<String, String> option : options.entrySet()) {
+      if (option.getKey().startsWith("seed.")) {
+        applicationArgs.add("--forum." + option.getKey() + "=" + option.getValue());
+      } else if (!OWN_OPTIONS.contains(option.getKey())) {
+        driverOptions.put(option.getKey(), option.getValue());
+      }
+    }
+    driverOptions.put("base-url", "http://localhost:" + port);
+    // Tomcat по умолчанию принимает 8192 соединения; лимит поднимается для обоих режимов.
+    applicationArgs.add(
+        "--server.tomcat.max-connections=" + options.getOrDefault("max-connections", "20000"));
+    applicationArgs.add("--server.port=" + port);
+    applicationArgs.add("--management.server.port=" + managementPort);
+    applicationArgs.add("--management.endpoint.health.probes.enabled=true");
+
+    StringBuilder table = new StringBuilder();
+    table.append(
+        String.format(
+            Locale.ROOT,
+            "Java %s, %d CPUs%n%n| mode | clients | requests | errors | req/s | p50 ms | p99 ms"
+                + " | max ms |%n|---|---:|---:|---:|---:|---:|---:|---:|%n",
+            Runtime.version(),
+            Runtime.getRuntime().availableProcessors()));
+    for (String mode : modes) {
+      Process application = start(mode, options.getOrDefault("jvm-args", ""), applicationArgs);
+      try {
+        awaitReady(application, managementPort, startupTimeout);
+        for (String clients : options.getOrDefault("clients", "1000,5000,10000").split(",")) {
+          System.out.printf("%n=== %s, %s clients ===%n", mode, clients);
+          driverOptions.put("clients", clients);
+          HttpLoadDriver.Summary summary = HttpLoadDriver.drive(driverOptions);
+          table.append(
+              String.format(
+                  Locale.ROOT,
+                  "| %s | %d | %d | %d | %.1f | %.2f | %.2f | %.2f |%n",
+                  mode,
+                  summary.clients,
+                  summary.requests,
+                  summary.errors,
+                  summary.throughput,
+                  summary.p50,
+                  summary.p99,
+                  summary.max));
+        }
+      } finally {
+        application.destroy();
+        if (!application.waitFor(30, TimeUnit.SECONDS)) {
+          application.destroyForcibly().waitFor();
+        }
+      }
+    }
+    System.out.printf("%n%s", table);
+    if (output.getParent() != null) {
+      Files.createDirectories(output.getParent());
+    }
+    Files.writeString(output, table);
+    System.out.println("Results written to " + output.toAbsolutePath());
+  }
+
+  /** Запускает приложение в отдельной JVM с тем же classpath; вывод пишется в файл журнала. */
+  private static Process start(String mode, String jvmArgs, List<String> applicationArgs)
+      throws IOException {
+    if (!mode.equals("platform") && !mode.equals("virtual")) {
+      throw new IllegalArgumentException("Unknown mode: " + mode);
+    }
+    List<String> command = new ArrayList<>();
+    command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+    for (String arg : jvmArgs.split(" ")) {
+      if (!arg.isBlank()) {
+        command.add(arg);
+      }
+    }
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(APPLICATION);
+    command.add("--spring.profiles.active=dev,seed" + (mode.equals("virtual") ? ",virtual" : ""));
+    command.addAll(applicationArgs);
+    File log = new File("target/thread-model-" + mode + ".log");
+    System.out.printf("Starting application in mode '%s', log: %s%n", mode, log);
+    return new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start();
+  }
+
+  /**
+   * Ждет готовности приложения: проба готовности переходит в UP только после наполнения базы данных
+   * профилем 'seed'.
+   */
+  private static void awaitReady(Process application, String managementPort, Duration timeout)
+      throws Exception {
+    HttpClient http = HttpClient.newHttpClient();
+    HttpRequest probe =
+        HttpRequest.newBuilder(
+                URI.create("http://127.0.0.1:" + managementPort + "/actuator/health/readiness"))
+            .timeout(Duration.ofSeconds(5))
+            .build();
+    long deadline = System.nanoTime() + timeout.toNanos();
+    while (System.nanoTime() < deadline) {
+      if (!application.isAlive()) {
+        throw new IllegalStateException(
+            "Application exited with code " + application.exitValue() + ", see its log");
+      }
+      try {
+        if (http.send(probe, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+          return;
+        }
+      } catch (IOException e) {
+        // Приложение еще не слушает порт.
+      }
+      Thread.sleep(1000);
+    }
+    throw new IllegalStateException("Application was not ready within " + timeout);
+  }
+}
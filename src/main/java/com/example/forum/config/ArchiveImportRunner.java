@@ -0,0 +1,53 @@
+package com.example.forum.config;
+
+import com.example.forum.service.ArchiveImportService;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Запуск импорта архива из командной строки. Активируется профилем 'import' и при запуске
+ * приложения импортирует файл {@code forum.import.file}; файлы с расширением {@code .gz}
+ * распаковываются на лету. Если идентификатор задания не задан, им служит имя файла, поэтому
+ * повторный запуск после сбоя продолжает импорт с контрольной точки.
+ */
+@Component
+@Profile("import")
+public class ArchiveImportRunner implements ApplicationRunner {
+  private final ArchiveImportService importService;
+  private final Path file;
+  private final String jobId;
+
+  /**
+   * Конструктор запуска импорта.
+   *
+   * @param importService Сервис импорта.
+   * @param file Путь к NDJSON-архиву.
+   * @param jobId Идентификатор задания; по умолчанию имя файла.
+   */
+  public ArchiveImportRunner(
+      ArchiveImportService importService,
+      @Value("${forum.import.file}") Path file,
+      @Value("${forum.import.job:}") String jobId) {
+    this.importService = importService;
+    this.file = file;
+    this.jobId = jobId.isBlank() ? file.getFileName().toString() : jobId;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) throws IOException {
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 65536)) {
+      InputStream archive =
+          file.getFileName().toString().endsWith(".gz") ? new GZIPInputStream(in, 65536) : in;
+      importService.importArchive(jobId, archive);
+    }
+  }
+}
@@ -0,0 +1,44 @@
+package com.example.forum.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Конфигурация источников данных с репликой для чтения. Основной пул настраивается свойствами
+ * {@code spring.datasource.*}, пул реплики — свойствами HikariCP с префиксом {@code
+ * forum.datasource.replica}. Приложение получает {@link ReadWriteRoutingDataSource}, который
+ * направляет транзакции только для чтения в реплику. При {@code
+ * forum.datasource.replica.enabled=false} используется обычный источник данных Spring Boot.
+ */
+@Configuration
+@ConditionalOnProperty(name = "forum.datasource.replica.enabled", havingValue = "true")
+public class DataSourceConfig {
+
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+    return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+  }
+
+  @Bean
+  @ConfigurationProperties("forum.datasource.replica")
+  public HikariDataSource replicaDataSource() {
+    return new HikariDataSource();
+  }
+
+  @Bean
+  @Primary
+  public DataSource dataSource(
+      @Qualifier("primaryDataSource") DataSource primary,
+      @Qualifier("replicaDataSource") DataSource replica) {
+    return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primary, replica));
+  }
+}
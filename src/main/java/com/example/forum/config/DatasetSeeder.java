@@ -0,0 +1,167 @@
+package com.example.forum.config;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Locale;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Генератор синтетического набора данных для нагрузочного тестирования. Активируется профилем
+ * 'seed' и при запуске приложения создает пользователей, темы и сообщения. Размеры тем распределены
+ * по закону Ципфа: тема с номером k получает долю сообщений, пропорциональную {@code 1/k^s}. Данные
+ * вставляются несколькими INSERT ... SELECT по {@code SYSTEM_RANGE} без участия JPA, а тема каждого
+ * сообщения вычисляется обращением функции распределения, поэтому соединений при вставке нет. Все
+ * пользователи получают один и тот же пароль.
+ */
+@Component
+@Profile("seed")
+public class DatasetSeeder implements ApplicationRunner {
+  static final String USERNAME_PREFIX = "seed-user-";
+
+  private static final Logger log = LoggerFactory.getLogger(DatasetSeeder.class);
+  private static final long CHUNK = 1_000_000;
+  private static final Duration TIME_SPAN = Duration.ofDays(365);
+
+  private final JdbcTemplate jdbc;
+  private final PasswordEncoder passwordEncoder;
+  private final long users;
+  private final long topics;
+  private final long messages;
+  private final double exponent;
+  private final String password;
+
+  /**
+   * Конструктор генератора набора данных.
+   *
+   * @param jdbc Шаблон JDBC для выполнения вставок.
+   * @param passwordEncoder Кодировщик паролей; пароль кодируется один раз для всех пользователей.
+   * @param users Количество пользователей.
+   * @param topics Количество тем до удаления оставшихся без сообщений.
+   * @param messages Количество сообщений.
+   * @param exponent Показатель распределения Ципфа; чем больше, тем сильнее перекос.
+   * @param password Пароль всех создаваемых пользователей.
+   */
+  public DatasetSeeder(
+      JdbcTemplate jdbc,
+      PasswordEncoder passwordEncoder,
+      @Value("${forum.seed.users:10000}") long users,
+      @Value("${forum.seed.topics:100000}") long topics,
+      @Value("${forum.seed.messages:1000000}") long messages,
+      @Value("${forum.seed.zipf-exponent:1.1}") double exponent,
+      @Value("${forum.seed.password:password}") String password) {
+    this.jdbc = jdbc;
+    this.passwordEncoder = passwordEncoder;
+    this.users = users;
+    this.topics = topics;
+    this.messages = messages;
+    this.exponent = exponent;
+    this.password = password;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) {
+    Integer existing =
+        jdbc.queryForObject(
+            "SELECT COUNT(*) FROM users WHERE username = ?", Integer.class, USERNAME_PREFIX + 1);
+    if (existing != null && existing > 0) {
+      log.info("Dataset is already seeded, skipping");
+      return;
+    }
+    long start = System.nanoTime();
+    OffsetDateTime base = OffsetDateTime.now().minus(TIME_SPAN);
+
+    // Идентификаторы создаются одной вставкой и идут подряд.
+    jdbc.update(
+        "INSERT INTO users (username, password)"
+            + " SELECT CAST(? AS VARCHAR) || X, ? FROM SYSTEM_RANGE(1, ?)",
+        USERNAME_PREFIX,
+        passwordEncoder.encode(password),
+        users);
+    Long firstUserId =
+        jdbc.queryForObject(
+            "SELECT id FROM users WHERE username = ?", Long.class, USERNAME_PREFIX + 1);
+
+    jdbc.update(
+        "INSERT INTO topic (id, title, created, message_count, user_id)"
+            + " SELECT "
+            + uuid("0000", "X")
+            + ", 'Seed topic ' || X, CAST(? AS TIMESTAMP WITH TIME ZONE), 0,"
+            + " CAST(? AS BIGINT) + MOD(X * 7919, ?) FROM SYSTEM_RANGE(1, ?)",
+        base,
+        firstUserId,
+        users,
+        topics);
+
+    // Тема сообщения X: обратная функция непрерывного распределения Ципфа в точке (X - 0.5) / M.
+    // Параметры распределения подставляются литералами: H2 не выводит тип параметров внутри
+    // POWER и LEAST.
+    double oneMinusS = 1 - exponent;
+    String quantile = "((CAST(X AS DOUBLE PRECISION) - 0.5) / " + messages + ")";
+    String topicNumber =
+        Math.abs(oneMinusS) < 1e-9
+            ? String.format(Locale.ROOT, "POWER(%d, %s)", topics + 1, quantile)
+            : String.format(
+                Locale.ROOT,
+                "POWER(1 + %s * %.17g, %.17g)",
+                quantile,
+                Math.pow(topics + 1, oneMinusS) - 1,
+                1 / oneMinusS);
+    String sql =
+        "INSERT INTO message (id, author, text, created, topic_id)"
+            + " SELECT "
+            + uuid("0001", "X")
+            + String.format(
+                Locale.ROOT,
+                ", '%s' || (MOD(X * 31, %d) + 1), 'Seed message ' || X,"
+                    + " DATEADD('MILLISECOND', CAST(MOD(X * 2147483647, %d) * %.6f AS BIGINT),"
+                    + " CAST(? AS TIMESTAMP WITH TIME ZONE)), ",
+                USERNAME_PREFIX,
+                users,
+                messages,
+                (double) TIME_SPAN.toMillis() / messages)
+            + uuid("0000", "LEAST(" + topics + ", CAST(FLOOR(" + topicNumber + ") AS BIGINT))")
+            + " FROM SYSTEM_RANGE(?, ?)";
+    for (long from = 1; from <= messages; from += CHUNK) {
+      long to = Math.min(messages, from + CHUNK - 1);
+      jdbc.update(sql, base, from, to);
+      log.info("Seeded {} of {} messages", to, messages);
+    }
+
+    jdbc.update(
+        "MERGE INTO topic t USING (SELECT topic_id, COUNT(*) c, MIN(created) f, MAX(created) l"
+            + " FROM message GROUP BY topic_id) s ON t.id = s.topic_id"
+            + " WHEN MATCHED THEN UPDATE SET t.message_count = s.c, t.created = s.f,"
+            + " t.last_message_at = s.l, t.modified_at = s.l");
+    int empty =
+        jdbc.update(
+            "DELETE FROM topic t WHERE t.message_count = 0"
+                + " AND NOT EXISTS (SELECT 1 FROM message m WHERE m.topic_id = t.id)");
+    jdbc.execute("ANALYZE");
+
+    log.info(
+        "Seeded {} users, {} topics and {} messages in {} s",
+        users,
+        topics - empty,
+        messages,
+        Duration.ofNanos(System.nanoTime() - start).toSeconds());
+  }
+
+  /**
+   * SQL-выражение UUID вида {@code 00000000-<group>-7000-8000-<номер>}, упорядоченного по номеру.
+   */
+  private static String uuid(String group, String number) {
+    return "CAST('00000000-"
+        + group
+        + "-7000-8000-' || LPAD(CAST("
+        + number
+        + " AS VARCHAR), 12, '0') AS UUID)";
+  }
+}
@@ -0,0 +1,37 @@
+package com.example.forum.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Фильтр, записывающий количество и суммарное время JDBC-запросов каждого HTTP-запроса с тегами
+ * метода и шаблона URI, как у {@code http.server.requests}. Учитываются запросы, выполненные в
+ * потоке обработки запроса, включая фильтры безопасности.
+ */
+public class JdbcRequestMetricsFilter extends OncePerRequestFilter {
+  private static final String UNKNOWN = "UNKNOWN";
+
+  private final JdbcStatementMetrics metrics;
+
+  public JdbcRequestMetricsFilter(JdbcStatementMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    metrics.beginRequest();
+    try {
+      chain.doFilter(request, response);
+    } finally {
+      Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+      metrics.endRequest(request.getMethod(), pattern != null ? pattern.toString() : UNKNOWN);
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package com.example.forum.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Учет выполненных JDBC-запросов. Каждое выполнение записывается в таймер {@code
+ * forum.jdbc.statements} с видом операции, а внутри HTTP-запроса еще и накапливается, чтобы по его
+ * завершении записать количество запросов к базе и суммарное время их выполнения с шаблоном URI
+ * запроса.
+ */
+public class JdbcStatementMetrics {
+  static final String STATEMENTS = "forum.jdbc.statements";
+  static final String REQUEST_STATEMENTS = "forum.jdbc.request.statements";
+  static final String REQUEST_TIME = "forum.jdbc.request.time";
+
+  private final ThreadLocal<RequestStatistics> current = new ThreadLocal<>();
+  private final MeterRegistry meterRegistry;
+  private final Timer queries;
+  private final Timer updates;
+  private final Timer batches;
+  private final Timer executes;
+
+  /**
+   * Конструктор учета JDBC-запросов.
+   *
+   * @param meterRegistry Реестр метрик.
+   */
+  public JdbcStatementMetrics(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+    this.queries = statementTimer("query");
+    this.updates = statementTimer("update");
+    this.batches = statementTimer("batch");
+    this.executes = statementTimer("execute");
+  }
+
+  private Timer statementTimer(String operation) {
+    return Timer.builder(STATEMENTS)
+        .description("Execution time of JDBC statements")
+        .tag("operation", operation)
+        .register(meterRegistry);
+  }
+
+  /**
+   * Записывает выполнение запроса.
+   *
+   * @param method Вызванный метод {@link java.sql.Statement}, например {@code executeQuery}.
+   * @param nanos Время выполнения в наносекундах.
+   */
+  void record(String method, long nanos) {
+    timer(method).record(nanos, TimeUnit.NANOSECONDS);
+    RequestStatistics statistics = current.get();
+    if (statistics != null) {
+      statistics.statements++;
+      statistics.nanos += nanos;
+    }
+  }
+
+  private Timer timer(String method) {
+    if (method.equals("executeQuery")) {
+      return queries;
+    }
+    if (method.startsWith("executeBatch") || method.startsWith("executeLargeBatch")) {
+      return batches;
+    }
+    if (method.startsWith("executeUpdate") || method.startsWith("executeLargeUpdate")) {
+      return updates;
+    }
+    return executes;
+  }
+
+  /** Начинает накопление запросов текущего потока. */
+  void beginRequest() {
+    current.set(new RequestStatistics());
+  }
+
+  /**
+   * Завершает накопление запросов текущего потока и записывает его итог.
+   *
+   * @param method HTTP-метод запроса.
+   * @param uri Шаблон URI обработчика запроса.
+   */
+  void endRequest(String method, String uri) {
+    RequestStatistics statistics = current.get();
+    current.remove();
+    if (statistics == null) {
+      return;
+    }
+    DistributionSummary.builder(REQUEST_STATEMENTS)
+        .description("JDBC statements executed per HTTP request")
+        .baseUnit("statements")
+        .tags("method", method, "uri", uri)
+        .register(meterRegistry)
+        .record(statistics.statements);
+    Timer.builder(REQUEST_TIME)
+        .description("Total JDBC statement time per HTTP request")
+        .tags("method", method, "uri", uri)
+        .register(meterRegistry)
+        .record(statistics.nanos, TimeUnit.NANOSECONDS);
+  }
+
+  private static class RequestStatistics {
+    private long statements;
+    private long nanos;
+  }
+}
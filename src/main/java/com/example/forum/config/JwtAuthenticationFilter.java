@@ -1,5 +1,6 @@
 package com.example.forum.config;
 
+import com.example.forum.service.UserService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -7,8 +8,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -19,25 +19,25 @@ import org.springframework.web.filter.OncePerRequestFilter;
  */
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
   private final JwtTokenProvider jwtTokenProvider;
-  private final UserDetailsService userDetailsService;
+  private final UserService userService;
 
   /**
    * Конструктор для создания экземпляра фильтра аутентификации JWT.
    *
    * @param jwtTokenProvider Провайдер токенов JWT, используемый для валидации и извлечения данных
    *     из токена.
-   * @param userDetailsService Сервис для загрузки данных пользователя по имени пользователя из
-   *     токена.
+   * @param userService Сервис для загрузки данных пользователя по имени пользователя из токена.
    */
-  public JwtAuthenticationFilter(
-      JwtTokenProvider jwtTokenProvider, UserDetailsService userDetailsService) {
+  public JwtAuthenticationFilter(JwtTokenProvider jwtTokenProvider, UserService userService) {
     this.jwtTokenProvider = jwtTokenProvider;
-    this.userDetailsService = userDetailsService;
+    this.userService = userService;
   }
 
   /**
-   * Метод фильтрации для внутренней обработки HTTP запросов. Извлекает токен из запроса, валидирует
-   * его и аутентифицирует пользователя в контексте безопасности Spring.
+   * Метод фильтрации для внутренней обработки HTTP запросов. Извлекает токен из запроса, однократно
+   * проверяет его и аутентифицирует пользователя в контексте безопасности Spring. Данные
+   * пользователя берутся из кэша, поэтому при повторных запросах обращения к базе данных не
+   * происходит.
    *
    * @param request HTTP запрос.
    * @param response HTTP ответ.
@@ -50,17 +50,36 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
       HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
       throws ServletException, IOException {
     String token = getTokenFromRequest(request);
-    if (token != null && jwtTokenProvider.validateToken(token)) {
-      String username = jwtTokenProvider.getUsernameFromToken(token);
-      UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+    VerifiedToken verified = token != null ? jwtTokenProvider.parseToken(token) : null;
+    UserPrincipal principal = verified != null ? loadPrincipal(verified) : null;
+    if (principal != null) {
       UsernamePasswordAuthenticationToken authentication =
-          new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+          new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
       authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
       SecurityContextHolder.getContext().setAuthentication(authentication);
     }
     filterChain.doFilter(request, response);
   }
 
+  /**
+   * Загружает пользователя, которому выдан токен. Токен, выпущенный для удаленного или заново
+   * зарегистрированного под тем же именем пользователя, не принимается.
+   *
+   * @param verified Проверенный токен.
+   * @return Данные пользователя или {@code null}, если токен не соответствует пользователю.
+   */
+  private UserPrincipal loadPrincipal(VerifiedToken verified) {
+    try {
+      UserPrincipal principal = userService.loadPrincipal(verified.getUsername());
+      if (verified.getUserId() != null && !verified.getUserId().equals(principal.getId())) {
+        return null;
+      }
+      return principal;
+    } catch (UsernameNotFoundException e) {
+      return null;
+    }
+  }
+
   /**
    * Вспомогательный метод для извлечения токена JWT из заголовка авторизации запроса.
    *
@@ -0,0 +1,77 @@
+package com.example.forum.config;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import java.security.Key;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Набор ключей для подписи и проверки JWT токенов. Один ключ активен и подписывает новые токены,
+ * остальные только проверяют подпись. Поскольку ключи берутся из конфигурации, токен, выданный
+ * одним экземпляром приложения, принимается всеми остальными и переживает перезапуск.
+ */
+public class JwtKeyRing {
+  private static final Logger log = LoggerFactory.getLogger(JwtKeyRing.class);
+
+  private final String activeKeyId;
+  private final Key activeKey;
+  private final Map<String, Key> keys = new HashMap<>();
+
+  /**
+   * Создает набор ключей из настроек.
+   *
+   * @param properties Настройки ключей подписи.
+   * @throws IllegalStateException если ключ задан некорректно или слишком короткий для HMAC-SHA.
+   */
+  public JwtKeyRing(JwtSigningProperties properties) {
+    this.activeKeyId = properties.getKeyId();
+    if (properties.getKey() == null || properties.getKey().isBlank()) {
+      log.warn(
+          "token.signing.key is not set, using a random key: tokens will not survive a restart"
+              + " and will not be accepted by other instances");
+      this.activeKey = Keys.secretKeyFor(SignatureAlgorithm.HS512);
+    } else {
+      this.activeKey = decode(activeKeyId, properties.getKey());
+    }
+    properties.getVerificationKeys().forEach((id, secret) -> keys.put(id, decode(id, secret)));
+    keys.put(activeKeyId, activeKey);
+  }
+
+  public String getActiveKeyId() {
+    return activeKeyId;
+  }
+
+  public Key getActiveKey() {
+    return activeKey;
+  }
+
+  /**
+   * Возвращает ключ для проверки подписи токена.
+   *
+   * @param keyId Идентификатор ключа из заголовка {@code kid} или {@code null} для токенов без
+   *     него, которые проверяются активным ключом.
+   * @return Ключ или {@code null}, если ключ с таким идентификатором неизвестен.
+   */
+  public Key getVerificationKey(String keyId) {
+    return keyId == null ? activeKey : keys.get(keyId);
+  }
+
+  /** Ключ задается в шестнадцатеричном виде или в Base64 и должен быть не короче 256 бит. */
+  private static Key decode(String keyId, String secret) {
+    byte[] bytes;
+    try {
+      bytes =
+          secret.length() % 2 == 0 && secret.matches("[0-9a-fA-F]+")
+              ? HexFormat.of().parseHex(secret)
+              : Base64.getDecoder().decode(secret);
+      return Keys.hmacShaKeyFor(bytes);
+    } catch (RuntimeException e) {
+      throw new IllegalStateException("Invalid JWT signing key '" + keyId + "'", e);
+    }
+  }
+}
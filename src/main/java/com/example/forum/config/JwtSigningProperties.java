@@ -0,0 +1,42 @@
+package com.example.forum.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Настройки ключей подписи JWT токенов ({@code token.signing.*}). Ключ {@code key} используется для
+ * подписи новых токенов и публикуется в заголовке {@code kid} под идентификатором {@code key-id}.
+ * Ключи из {@code verification-keys} используются только для проверки: туда переносится предыдущий
+ * ключ при ротации, чтобы уже выданные токены оставались валидными на всех экземплярах.
+ */
+@ConfigurationProperties(prefix = "token.signing")
+public class JwtSigningProperties {
+  private String keyId = "default";
+  private String key;
+  private Map<String, String> verificationKeys = new LinkedHashMap<>();
+
+  public String getKeyId() {
+    return keyId;
+  }
+
+  public void setKeyId(String keyId) {
+    this.keyId = keyId;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  public void setKey(String key) {
+    this.key = key;
+  }
+
+  public Map<String, String> getVerificationKeys() {
+    return verificationKeys;
+  }
+
+  public void setVerificationKeys(Map<String, String> verificationKeys) {
+    this.verificationKeys = verificationKeys;
+  }
+}
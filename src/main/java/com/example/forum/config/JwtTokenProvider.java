@@ -1,11 +1,24 @@
 package com.example.forum.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.Date;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
@@ -16,15 +29,42 @@ import org.springframework.stereotype.Component;
  */
 @Component
 public class JwtTokenProvider {
-  private final Key jwtSecret;
+  static final String USER_ID_CLAIM = "uid";
+
+  private final JwtKeyRing keyRing;
+  private final JwtParser jwtParser;
   private final long jwtExpirationMs = 86400000;
+  private final Cache<String, VerifiedToken> verifiedTokens;
 
   /**
-   * Конструктор по умолчанию для {@code JwtTokenProvider}. Инициализирует ключ для подписи токенов
-   * и устанавливает время истечения токена.
+   * Конструктор для {@code JwtTokenProvider}. Инициализирует набор ключей для подписи и проверки
+   * токенов и, если размер больше нуля, кэш уже проверенных токенов.
+   *
+   * @param signingProperties Настройки ключей подписи.
+   * @param tokenCacheSize Максимальное количество проверенных токенов в кэше; 0 отключает кэш.
+   * @param tokenCacheTtl Максимальное время хранения проверенного токена в кэше.
    */
-  public JwtTokenProvider() {
-    this.jwtSecret = Keys.secretKeyFor(SignatureAlgorithm.HS512);
+  public JwtTokenProvider(
+      JwtSigningProperties signingProperties,
+      @Value("${forum.security.token-cache.maximum-size:10000}") long tokenCacheSize,
+      @Value("${forum.security.token-cache.ttl:PT5M}") Duration tokenCacheTtl) {
+    this.keyRing = new JwtKeyRing(signingProperties);
+    this.jwtParser =
+        Jwts.parserBuilder()
+            .setSigningKeyResolver(
+                new SigningKeyResolverAdapter() {
+                  @Override
+                  public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                    Key key = keyRing.getVerificationKey(header.getKeyId());
+                    if (key == null) {
+                      throw new JwtException("Unknown signing key: " + header.getKeyId());
+                    }
+                    return key;
+                  }
+                })
+            .build();
+    this.verifiedTokens =
+        tokenCacheSize > 0 ? buildTokenCache(tokenCacheSize, tokenCacheTtl) : null;
   }
 
   /**
@@ -37,14 +77,44 @@ public class JwtTokenProvider {
     UserDetails userPrincipal = (UserDetails) authentication.getPrincipal();
     Date now = new Date();
     Date expiryDate = new Date(now.getTime() + jwtExpirationMs);
-    return Jwts.builder()
-        .setSubject(userPrincipal.getUsername())
-        .setIssuedAt(now)
-        .setExpiration(expiryDate)
-        .signWith(jwtSecret)
+    JwtBuilder builder =
+        Jwts.builder()
+            .setSubject(userPrincipal.getUsername())
+            .setIssuedAt(now)
+            .setExpiration(expiryDate);
+    if (userPrincipal instanceof UserPrincipal principal && principal.getId() != null) {
+      builder.claim(USER_ID_CLAIM, principal.getId());
+    }
+    return builder
+        .setHeaderParam(JwsHeader.KEY_ID, keyRing.getActiveKeyId())
+        .signWith(keyRing.getActiveKey())
         .compact();
   }
 
+  /**
+   * Проверяет подпись и срок действия токена и извлекает из него данные пользователя. Токен
+   * разбирается не более одного раза: повторные запросы с тем же токеном обслуживаются из кэша по
+   * SHA-256 дайджесту токена.
+   *
+   * @param token Строка JWT токена.
+   * @return Проверенный токен или {@code null}, если токен невалиден.
+   */
+  public VerifiedToken parseToken(String token) {
+    if (verifiedTokens == null) {
+      return verify(token);
+    }
+    String digest = digest(token);
+    VerifiedToken cached = verifiedTokens.getIfPresent(digest);
+    if (cached != null) {
+      return cached;
+    }
+    VerifiedToken verified = verify(token);
+    if (verified != null) {
+      verifiedTokens.put(digest, verified);
+    }
+    return verified;
+  }
+
   /**
    * Проверяет валидность переданного JWT токена.
    *
@@ -52,12 +122,7 @@ public class JwtTokenProvider {
    * @return {@code true}, если токен валиден, иначе {@code false}.
    */
   public boolean validateToken(String token) {
-    try {
-      Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(token);
-      return true;
-    } catch (Exception e) {
-      return false;
-    }
+    return parseToken(token) != null;
   }
 
   /**
@@ -67,7 +132,61 @@ public class JwtTokenProvider {
    * @return Имя пользователя, закодированное в токене.
    */
   public String getUsernameFromToken(String token) {
-    Claims claims = Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(token).getBody();
-    return claims.getSubject();
+    VerifiedToken verified = parseToken(token);
+    if (verified == null) {
+      throw new JwtException("Invalid token");
+    }
+    return verified.getUsername();
+  }
+
+  private VerifiedToken verify(String token) {
+    try {
+      Claims claims = jwtParser.parseClaimsJws(token).getBody();
+      Number userId = claims.get(USER_ID_CLAIM, Number.class);
+      return new VerifiedToken(
+          userId != null ? userId.longValue() : null,
+          claims.getSubject(),
+          claims.getExpiration().toInstant());
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  private static String digest(String token) {
+    try {
+      byte[] hash =
+          MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+      return Base64.getEncoder().encodeToString(hash);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  /** Кэш проверенных токенов: запись живет не дольше заданного времени и срока действия токена. */
+  private static Cache<String, VerifiedToken> buildTokenCache(long maximumSize, Duration ttl) {
+    long ttlNanos = ttl.toNanos();
+    return Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfter(
+            new Expiry<String, VerifiedToken>() {
+              @Override
+              public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                long untilExpiry = Duration.between(Instant.now(), value.getExpiresAt()).toNanos();
+                return Math.max(0, Math.min(ttlNanos, untilExpiry));
+              }
+
+              @Override
+              public long expireAfterUpdate(
+                  String key, VerifiedToken value, long currentTime, long currentDuration) {
+                return expireAfterCreate(key, value, currentTime);
+              }
+
+              @Override
+              public long expireAfterRead(
+                  String key, VerifiedToken value, long currentTime, long currentDuration) {
+                return currentDuration;
+              }
+            })
+        .build();
   }
 }
@@ -0,0 +1,72 @@
+package com.example.forum.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.util.function.SingletonSupplier;
+
+/**
+ * Конфигурация метрик приложения сверх стандартных метрик Spring Boot: времени методов, отмеченных
+ * {@link io.micrometer.core.annotation.Timed}, и JDBC-запросов — каждого отдельно и суммарно по
+ * HTTP-запросу. Метрики HTTP-запросов, пулов соединений и статистики Hibernate публикует Spring
+ * Boot.
+ */
+@Configuration
+public class MetricsConfig {
+  private static final String DATA_SOURCE = "dataSource";
+
+  @Bean
+  public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+    return new TimedAspect(meterRegistry);
+  }
+
+  @Bean
+  public JdbcStatementMetrics jdbcStatementMetrics(MeterRegistry meterRegistry) {
+    return new JdbcStatementMetrics(meterRegistry);
+  }
+
+  /**
+   * Оборачивает основной источник данных приложения в {@link StatementMetricsDataSource}. Метод
+   * статический, а учет запросов запрашивается лениво, чтобы не создавать реестр метрик раньше
+   * источника данных.
+   *
+   * @param metrics Поставщик учета JDBC-запросов.
+   * @return Постпроцессор бинов.
+   */
+  @Bean
+  public static BeanPostProcessor statementMetricsPostProcessor(
+      ObjectProvider<JdbcStatementMetrics> metrics) {
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (DATA_SOURCE.equals(beanName) && bean instanceof DataSource dataSource) {
+          return new StatementMetricsDataSource(
+              dataSource, SingletonSupplier.of(metrics::getObject));
+        }
+        return bean;
+      }
+    };
+  }
+
+  /**
+   * Регистрирует фильтр учета JDBC-запросов раньше фильтров безопасности, чтобы учитывались и
+   * запросы аутентификации.
+   *
+   * @param metrics Учет JDBC-запросов.
+   * @return Регистрация фильтра.
+   */
+  @Bean
+  public FilterRegistrationBean<JdbcRequestMetricsFilter> jdbcRequestMetricsFilter(
+      JdbcStatementMetrics metrics) {
+    FilterRegistrationBean<JdbcRequestMetricsFilter> registration =
+        new FilterRegistrationBean<>(new JdbcRequestMetricsFilter(metrics));
+    registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+    return registration;
+  }
+}
@@ -0,0 +1,103 @@
+package com.example.forum.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ограниченный по размеру и времени жизни кэш аутентифицированных пользователей. Ключом служит имя
+ * пользователя, значением — {@link UserPrincipal} без пароля. Позволяет не обращаться к таблице
+ * пользователей при каждом запросе с JWT токеном.
+ *
+ * <p>Загрузка выполняется вне блокировок кэша, поэтому ключ записи, как и в {@code TopicCache},
+ * содержит поколение полосы, к которой относится имя пользователя. Сброс увеличивает поколение, и
+ * результат загрузки, начатой до сброса, кладется под уже недостижимый ключ: прочитанное до
+ * фиксации изменения состояние не может вернуться в кэш после нее.
+ */
+@Component
+public class PrincipalCache {
+  private final Cache<Key, UserPrincipal> cache;
+  private final AtomicLongArray generations;
+
+  /**
+   * Конструктор кэша пользователей.
+   *
+   * @param maximumSize Максимальное количество пользователей в кэше.
+   * @param ttl Время жизни записи после ее загрузки.
+   * @param stripes Количество полос инвалидации.
+   */
+  public PrincipalCache(
+      @Value("${forum.security.principal-cache.maximum-size:10000}") long maximumSize,
+      @Value("${forum.security.principal-cache.ttl:PT5M}") Duration ttl,
+      @Value("${forum.security.principal-cache.stripes:1024}") int stripes) {
+    this.cache = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttl).build();
+    this.generations = new AtomicLongArray(stripes);
+  }
+
+  /**
+   * Возвращает пользователя из кэша, загружая его при отсутствии.
+   *
+   * @param username Имя пользователя.
+   * @param loader Функция загрузки пользователя из базы данных.
+   * @return Данные пользователя.
+   */
+  public UserPrincipal get(String username, Function<String, UserPrincipal> loader) {
+    // Загрузка выполняется вне Cache.get(key, loader): тот вызывает загрузчик внутри synchronized
+    // блока ConcurrentHashMap, и обращение к базе данных закрепило бы виртуальный поток. Поколение
+    // читается до загрузки, поэтому сброс во время загрузки делает ее результат недостижимым.
+    Key key = new Key(username, generations.get(stripe(username)));
+    UserPrincipal principal = cache.getIfPresent(key);
+    if (principal == null) {
+      principal = loader.apply(username);
+      cache.put(key, principal);
+    }
+    return principal;
+  }
+
+  /**
+   * Удаляет пользователя из кэша. Вызывается при любом изменении пользователя.
+   *
+   * @param username Имя пользователя.
+   */
+  public void invalidate(String username) {
+    int stripe = stripe(username);
+    long generation = generations.getAndIncrement(stripe);
+    cache.invalidate(new Key(username, generation));
+  }
+
+  private int stripe(String username) {
+    int hash = username.hashCode();
+    return Math.floorMod(hash ^ (hash >>> 16), generations.length());
+  }
+
+  private static final class Key {
+    private final String username;
+    private final long generation;
+
+    Key(String username, long generation) {
+      this.username = username;
+      this.generation = generation;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key other)) {
+        return false;
+      }
+      return generation == other.generation && username.equals(other.username);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(username, generation);
+    }
+  }
+}
@@ -0,0 +1,26 @@
+package com.example.forum.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Бюджет SQL-запросов метода контроллера: наибольшее количество запросов Hibernate, которое может
+ * выполнить один HTTP-запрос, включая ленивую загрузку при сериализации ответа. Превышение
+ * записывается в журнал вместе с выполненными запросами (см. {@link QueryBudgetFilter}). Методы без
+ * аннотации получают бюджет {@code forum.query-budget.default}.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface QueryBudget {
+  /** Бюджет без ограничения, например для пакетных операций. */
+  int UNLIMITED = -1;
+
+  /**
+   * @return Наибольшее количество SQL-запросов на один HTTP-запрос.
+   */
+  int value();
+}
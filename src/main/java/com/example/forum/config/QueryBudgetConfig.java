@@ -0,0 +1,39 @@
+package com.example.forum.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Конфигурация бюджетов SQL-запросов ({@link QueryBudget}): счетчик запросов подключается к
+ * Hibernate, а фильтр проверки бюджета — после фильтров безопасности, поэтому загрузка пользователя
+ * при аутентификации в бюджет обработчика не входит.
+ */
+@Configuration
+public class QueryBudgetConfig {
+
+  @Bean
+  public QueryBudgetTracker queryBudgetTracker() {
+    return new QueryBudgetTracker();
+  }
+
+  @Bean
+  public HibernatePropertiesCustomizer queryBudgetStatementInspector(QueryBudgetTracker tracker) {
+    return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, tracker);
+  }
+
+  @Bean
+  public FilterRegistrationBean<QueryBudgetFilter> queryBudgetFilter(
+      QueryBudgetTracker tracker,
+      @Value("${forum.query-budget.default:10}") int defaultBudget,
+      @Value("${forum.query-budget.fail-on-exceed:false}") boolean failOnExceed) {
+    FilterRegistrationBean<QueryBudgetFilter> registration =
+        new FilterRegistrationBean<>(new QueryBudgetFilter(tracker, defaultBudget, failOnExceed));
+    registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 1);
+    return registration;
+  }
+}
@@ -0,0 +1,98 @@
+package com.example.forum.config;
+
+import com.example.forum.exception.QueryBudgetExceededException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Фильтр, сверяющий количество SQL-запросов HTTP-запроса с бюджетом его обработчика ({@link
+ * QueryBudget}). Проверка выполняется после записи ответа, поэтому учитывается и ленивая загрузка
+ * связей при сериализации. Превышение записывается в журнал с перечнем запросов, где одинаковые
+ * запросы сгруппированы: многократно повторенный запрос обычно указывает на проблему N+1. В
+ * тестовом режиме ({@code forum.query-budget.fail-on-exceed}) превышение завершает запрос
+ * исключением.
+ */
+public class QueryBudgetFilter extends OncePerRequestFilter {
+  private static final Logger log = LoggerFactory.getLogger(QueryBudgetFilter.class);
+
+  private final QueryBudgetTracker tracker;
+  private final int defaultBudget;
+  private final boolean failOnExceed;
+
+  /**
+   * Конструктор фильтра бюджета запросов.
+   *
+   * @param tracker Счетчик SQL-запросов.
+   * @param defaultBudget Бюджет обработчиков без {@link QueryBudget}; отрицательный — без
+   *     ограничения.
+   * @param failOnExceed Завершать ли запрос исключением при превышении бюджета.
+   */
+  public QueryBudgetFilter(QueryBudgetTracker tracker, int defaultBudget, boolean failOnExceed) {
+    this.tracker = tracker;
+    this.defaultBudget = defaultBudget;
+    this.failOnExceed = failOnExceed;
+  }
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    tracker.begin();
+    List<String> statements;
+    try {
+      chain.doFilter(request, response);
+    } finally {
+      statements = tracker.end();
+    }
+
+    Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+    if (!(handler instanceof HandlerMethod method)) {
+      return;
+    }
+    QueryBudget annotation = method.getMethodAnnotation(QueryBudget.class);
+    int budget = annotation != null ? annotation.value() : defaultBudget;
+    if (budget < 0 || statements.size() <= budget) {
+      return;
+    }
+    String message = describe(request, method, statements, budget);
+    log.warn(message);
+    if (failOnExceed) {
+      throw new QueryBudgetExceededException(message);
+    }
+  }
+
+  private static String describe(
+      HttpServletRequest request, HandlerMethod method, List<String> statements, int budget) {
+    Map<String, Integer> counts = new LinkedHashMap<>();
+    statements.forEach(sql -> counts.merge(sql, 1, Integer::sum));
+    StringBuilder message =
+        new StringBuilder()
+            .append("Query budget exceeded by ")
+            .append(request.getMethod())
+            .append(' ')
+            .append(request.getRequestURI())
+            .append(" (")
+            .append(method.getBeanType().getSimpleName())
+            .append('#')
+            .append(method.getMethod().getName())
+            .append("): ")
+            .append(statements.size())
+            .append(" statements, budget ")
+            .append(budget);
+    counts.forEach(
+        (sql, count) ->
+            message.append(System.lineSeparator()).append(count).append(" x ").append(sql));
+    return message.toString();
+  }
+}
@@ -0,0 +1,39 @@
+package com.example.forum.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Счетчик SQL-запросов Hibernate в пределах HTTP-запроса. Подключается к Hibernate как {@link
+ * StatementInspector} и запоминает текст каждого подготовленного запроса потока, для которого начат
+ * учет; сам запрос не изменяется.
+ */
+public class QueryBudgetTracker implements StatementInspector {
+  private final ThreadLocal<List<String>> statements = new ThreadLocal<>();
+
+  @Override
+  public String inspect(String sql) {
+    List<String> current = statements.get();
+    if (current != null) {
+      current.add(sql);
+    }
+    return sql;
+  }
+
+  /** Начинает учет запросов текущего потока. */
+  public void begin() {
+    statements.set(new ArrayList<>());
+  }
+
+  /**
+   * Завершает учет запросов текущего потока.
+   *
+   * @return Запросы, выполненные с начала учета, в порядке выполнения.
+   */
+  public List<String> end() {
+    List<String> current = statements.get();
+    statements.remove();
+    return current != null ? current : List.of();
+  }
+}
@@ -0,0 +1,64 @@
+package com.example.forum.config;
+
+import java.util.Map;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Источник данных, направляющий транзакции только для чтения в пул реплики, а все остальные
+ * соединения — в пул основной базы данных. Решение принимается при получении физического
+ * соединения, поэтому источник должен быть обернут в {@link
+ * org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: менеджер транзакций
+ * запрашивает соединение до того, как отметит транзакцию как только для чтения.
+ *
+ * <p>Чтения, которым нельзя видеть отставание реплики, выполняются через {@link #onPrimary}: их
+ * транзакция остается только для чтения, но соединение берется из основного пула.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+  static final String PRIMARY = "primary";
+  static final String REPLICA = "replica";
+
+  private static final ThreadLocal<Boolean> PRIMARY_READS = new ThreadLocal<>();
+
+  /**
+   * Конструктор маршрутизирующего источника данных.
+   *
+   * @param primary Пул основной базы данных для записи и чтения вне транзакций только для чтения.
+   * @param replica Пул реплики для транзакций только для чтения.
+   */
+  public ReadWriteRoutingDataSource(DataSource primary, DataSource replica) {
+    setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+    setDefaultTargetDataSource(primary);
+    afterPropertiesSet();
+  }
+
+  /**
+   * Выполняет действие так, что соединения, полученные в нем, берутся из основного пула даже в
+   * транзакции только для чтения. Соединение выбирается при первом запросе к базе данных, поэтому
+   * этот запрос должен выполняться внутри действия.
+   *
+   * @param action Действие, читающее основную базу данных.
+   * @return Результат действия.
+   */
+  public static <T> T onPrimary(Supplier<T> action) {
+    Boolean previous = PRIMARY_READS.get();
+    PRIMARY_READS.set(Boolean.TRUE);
+    try {
+      return action.get();
+    } finally {
+      if (previous == null) {
+        PRIMARY_READS.remove();
+      }
+    }
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    return TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+            && PRIMARY_READS.get() == null
+        ? REPLICA
+        : PRIMARY;
+  }
+}
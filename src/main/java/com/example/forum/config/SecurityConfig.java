@@ -1,5 +1,9 @@
 package com.example.forum.config;
 
+import com.example.forum.service.UserService;
+import jakarta.servlet.DispatcherType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -7,7 +11,6 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
@@ -20,20 +23,27 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
  */
 @Configuration
 @EnableWebSecurity
+@EnableConfigurationProperties(JwtSigningProperties.class)
 public class SecurityConfig {
   private final JwtTokenProvider jwtTokenProvider;
-  private final UserDetailsService userDetailsService;
+  private final UserService userService;
+  private final int managementPort;
 
   /**
    * Конструктор для SecurityConfig, инициализирующий провайдер токенов JWT и сервис деталей
    * пользователей.
    *
    * @param jwtTokenProvider Провайдер токенов JWT, используемый для аутентификации запросов.
-   * @param userDetailsService Сервис для загрузки информации о пользователе по его имени.
+   * @param userService Сервис для загрузки информации о пользователе по его имени.
+   * @param managementPort Порт конечных точек Actuator или -1, если отдельный порт не задан.
    */
-  public SecurityConfig(JwtTokenProvider jwtTokenProvider, UserDetailsService userDetailsService) {
+  public SecurityConfig(
+      JwtTokenProvider jwtTokenProvider,
+      UserService userService,
+      @Value("${management.server.port:-1}") int managementPort) {
     this.jwtTokenProvider = jwtTokenProvider;
-    this.userDetailsService = userDetailsService;
+    this.userService = userService;
+    this.managementPort = managementPort;
   }
 
   /**
@@ -73,16 +83,25 @@ public class SecurityConfig {
     http.csrf(csrf -> csrf.disable())
         .authorizeHttpRequests(
             auth ->
-                auth.requestMatchers("api/v1/sign-in/**", "/h2-console/**")
+                // Асинхронная диспетчеризация завершает уже авторизованный запрос (например, поток
+                // событий темы), а JWT фильтр на ней не выполняется.
+                auth.dispatcherTypeMatchers(DispatcherType.ASYNC)
                     .permitAll()
-                    .requestMatchers("api/v1/sign-up/**")
+                    // Отдельный порт Actuator слушает только локальный интерфейс
+                    // (management.server.address), поэтому сборщик метрик обходится без токена.
+                    // Правило стоит раньше шаблонов путей, которые на этом порту не применимы.
+                    .requestMatchers(request -> request.getLocalPort() == managementPort)
+                    .permitAll()
+                    .requestMatchers("/api/v1/sign-in/**", "/h2-console/**")
+                    .permitAll()
+                    .requestMatchers("/api/v1/sign-up/**")
                     .permitAll()
                     .anyRequest()
                     .authenticated())
         .sessionManagement(
             session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
         .addFilterBefore(
-            new JwtAuthenticationFilter(jwtTokenProvider, userDetailsService),
+            new JwtAuthenticationFilter(jwtTokenProvider, userService),
             UsernamePasswordAuthenticationFilter.class)
         .headers(headers -> headers.frameOptions(frameOptions -> frameOptions.disable()));
     return http.build();
@@ -0,0 +1,88 @@
+package com.example.forum.config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Источник данных, измеряющий время выполнения JDBC-запросов. Соединения и создаваемые ими запросы
+ * оборачиваются динамическими прокси, которые передают время каждого вызова {@code execute*} в
+ * {@link JdbcStatementMetrics}; остальные вызовы передаются без изменений.
+ */
+public class StatementMetricsDataSource extends DelegatingDataSource {
+  private final Supplier<JdbcStatementMetrics> metrics;
+
+  /**
+   * Конструктор измеряющего источника данных.
+   *
+   * @param target Исходный источник данных.
+   * @param metrics Учет запросов; запрашивается при первом выполнении, а не при создании.
+   */
+  public StatementMetricsDataSource(DataSource target, Supplier<JdbcStatementMetrics> metrics) {
+    super(target);
+    this.metrics = metrics;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return proxy(Connection.class, super.getConnection());
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return proxy(Connection.class, super.getConnection(username, password));
+  }
+
+  private <T> T proxy(Class<T> type, T target) {
+    return type.cast(
+        Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, new Handler(target)));
+  }
+
+  private class Handler implements InvocationHandler {
+    private final Object target;
+
+    Handler(Object target) {
+      this.target = target;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String name = method.getName();
+      if (name.equals("equals")) {
+        return proxy == args[0];
+      }
+      if (name.equals("hashCode")) {
+        return System.identityHashCode(proxy);
+      }
+      boolean execute = target instanceof Statement && name.startsWith("execute");
+      long started = execute ? System.nanoTime() : 0;
+      Object result;
+      try {
+        result = method.invoke(target, args);
+      } catch (InvocationTargetException e) {
+        throw e.getTargetException();
+      } finally {
+        if (execute) {
+          metrics.get().record(name, System.nanoTime() - started);
+        }
+      }
+      // createStatement, prepareStatement и prepareCall возвращают запросы, которые тоже
+      // измеряются.
+      if (target instanceof Connection
+          && result instanceof Statement
+          && Statement.class.isAssignableFrom(method.getReturnType())) {
+        @SuppressWarnings("unchecked")
+        Class<Statement> type = (Class<Statement>) method.getReturnType();
+        return proxy(type, (Statement) result);
+      }
+      return result;
+    }
+  }
+}
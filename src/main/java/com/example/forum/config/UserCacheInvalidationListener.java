@@ -0,0 +1,46 @@
+package com.example.forum.config;
+
+import com.example.forum.entity.User;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA слушатель сущности {@link User}, сбрасывающий запись в {@link PrincipalCache} при изменении
+ * пользователя. Сброс выполняется после фиксации транзакции, чтобы параллельный запрос не успел
+ * снова закэшировать еще не зафиксированное состояние. Экземпляр создается Hibernate через
+ * контейнер Spring; если кэш в контексте отсутствует (например, в срезах тестов), слушатель ничего
+ * не делает.
+ */
+public class UserCacheInvalidationListener {
+  private final ObjectProvider<PrincipalCache> principalCache;
+
+  public UserCacheInvalidationListener(ObjectProvider<PrincipalCache> principalCache) {
+    this.principalCache = principalCache;
+  }
+
+  @PostPersist
+  @PostUpdate
+  @PostRemove
+  public void onUserChanged(User user) {
+    PrincipalCache cache = principalCache.getIfAvailable();
+    if (cache == null) {
+      return;
+    }
+    String username = user.getUsername();
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              cache.invalidate(username);
+            }
+          });
+    } else {
+      cache.invalidate(username);
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package com.example.forum.config;
+
+import java.util.Collection;
+import java.util.List;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * Аутентифицированный пользователь форума. В отличие от стандартного {@code User} из Spring
+ * Security хранит идентификатор пользователя, чтобы обработчикам запросов не приходилось повторно
+ * искать его в базе данных по имени.
+ */
+public class UserPrincipal implements UserDetails, CredentialsContainer {
+  private final Long id;
+  private final String username;
+  private String password;
+  private final List<GrantedAuthority> authorities;
+
+  public UserPrincipal(Long id, String username, String password, List<String> authorities) {
+    this.id = id;
+    this.username = username;
+    this.password = password;
+    this.authorities =
+        authorities.stream().<GrantedAuthority>map(SimpleGrantedAuthority::new).toList();
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  @Override
+  public String getUsername() {
+    return username;
+  }
+
+  @Override
+  public String getPassword() {
+    return password;
+  }
+
+  @Override
+  public Collection<? extends GrantedAuthority> getAuthorities() {
+    return authorities;
+  }
+
+  @Override
+  public boolean isAccountNonExpired() {
+    return true;
+  }
+
+  @Override
+  public boolean isAccountNonLocked() {
+    return true;
+  }
+
+  @Override
+  public boolean isCredentialsNonExpired() {
+    return true;
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return true;
+  }
+
+  @Override
+  public void eraseCredentials() {
+    this.password = null;
+  }
+}
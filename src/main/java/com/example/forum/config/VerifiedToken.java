@@ -0,0 +1,32 @@
+package com.example.forum.config;
+
+import java.time.Instant;
+
+/**
+ * Результат проверки JWT токена: подпись и срок действия уже проверены, из токена извлечены данные
+ * пользователя. Токены, выпущенные до появления идентификатора в claims, возвращают {@code null} в
+ * {@link #getUserId()}.
+ */
+public final class VerifiedToken {
+  private final Long userId;
+  private final String username;
+  private final Instant expiresAt;
+
+  public VerifiedToken(Long userId, String username, Instant expiresAt) {
+    this.userId = userId;
+    this.username = username;
+    this.expiresAt = expiresAt;
+  }
+
+  public Long getUserId() {
+    return userId;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public Instant getExpiresAt() {
+    return expiresAt;
+  }
+}
@@ -0,0 +1,95 @@
+package com.example.forum.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.stream.Collectors;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Аудит закрепления (pinning) виртуальных потоков за потоками-носителями. Активен в профиле {@code
+ * virtual}: подписывается на событие JFR {@code jdk.VirtualThreadPinned}, которое JVM публикует,
+ * когда виртуальный поток блокируется внутри {@code synchronized} или нативного кода, и записывает
+ * в журнал стек вызова вместе с метрикой {@code forum.virtual-threads.pinned}. На Java младше 21
+ * виртуальные потоки недоступны, и компонент только предупреждает об этом.
+ *
+ * <p>Собственные мониторы приложения проверены на закрепление. {@link PrincipalCache} загружает
+ * пользователя вне блокировок Caffeine. {@code SearchService} использует {@code ReentrantLock}, так
+ * как перестроение индекса держит блокировку на время чтения из базы данных. Мониторы каналов
+ * {@code TopicStreamService} оставлены: под ними нет ввода-вывода и ожидания. Закрепление внутри
+ * драйвера H2 и сторонних библиотек отслеживается только этим компонентом.
+ */
+@Component
+@Profile("virtual")
+public class VirtualThreadPinningMonitor implements DisposableBean {
+  private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+  private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+  private static final int LOGGED_FRAMES = 12;
+
+  private final Counter pinned;
+  private final Duration threshold;
+  private RecordingStream recording;
+
+  public VirtualThreadPinningMonitor(
+      MeterRegistry meterRegistry,
+      @Value("${forum.virtual-threads.pinning-threshold:PT0.02S}") Duration threshold) {
+    this.threshold = threshold;
+    this.pinned =
+        Counter.builder("forum.virtual-threads.pinned")
+            .description("Блокировки виртуальных потоков с закреплением за потоком-носителем")
+            .register(meterRegistry);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    if (Runtime.version().feature() < 21) {
+      log.warn(
+          "Profile 'virtual' is active but Java {} has no virtual threads;"
+              + " requests are served by platform threads",
+          Runtime.version().feature());
+      return;
+    }
+    recording = new RecordingStream();
+    recording.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+    recording.onEvent(PINNED_EVENT, this::onPinned);
+    recording.startAsync();
+    log.info("Auditing virtual thread pinning longer than {}", threshold);
+  }
+
+  private void onPinned(RecordedEvent event) {
+    pinned.increment();
+    String stack =
+        event.getStackTrace() == null
+            ? "<no stack trace>"
+            : event.getStackTrace().getFrames().stream()
+                .limit(LOGGED_FRAMES)
+                .map(VirtualThreadPinningMonitor::formatFrame)
+                .collect(Collectors.joining("\n\tat "));
+    log.warn("Virtual thread pinned for {} ms\n\tat {}", event.getDuration().toMillis(), stack);
+  }
+
+  private static String formatFrame(RecordedFrame frame) {
+    return frame.getMethod().getType().getName()
+        + "."
+        + frame.getMethod().getName()
+        + ":"
+        + frame.getLineNumber();
+  }
+
+  @Override
+  public void destroy() {
+    if (recording != null) {
+      recording.close();
+    }
+  }
+}
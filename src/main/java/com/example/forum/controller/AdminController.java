@@ -0,0 +1,57 @@
+package com.example.forum.controller;
+
+import com.example.forum.config.QueryBudget;
+import com.example.forum.dto.ImportResultDTO;
+import com.example.forum.exception.NotAuthorizedException;
+import com.example.forum.service.ArchiveImportService;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.Principal;
+import java.util.zip.GZIPInputStream;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("api/v1/admin")
+@Tag(name = "AdminController", description = "Контроллер для администрирования форума")
+public class AdminController {
+  private static final String ADMIN = "admin";
+  private static final String NDJSON = "application/x-ndjson";
+  private static final String GZIP = "gzip";
+
+  private final ArchiveImportService archiveImportService;
+
+  public AdminController(ArchiveImportService archiveImportService) {
+    this.archiveImportService = archiveImportService;
+  }
+
+  @PostMapping(value = "/import/{jobId}", consumes = NDJSON)
+  @ApiOperation(
+      value = "Импортировать архив форума",
+      response = ImportResultDTO.class,
+      notes =
+          "Импортирует темы и сообщения из NDJSON-архива в теле запроса (с заголовком"
+              + " 'Content-Encoding: gzip' — сжатого). Повторный запрос с тем же идентификатором"
+              + " задания продолжает импорт с последней зафиксированной пачки. Доступно только"
+              + " администратору.")
+  @QueryBudget(QueryBudget.UNLIMITED)
+  public ResponseEntity<ImportResultDTO> importArchive(
+      @PathVariable String jobId, HttpServletRequest request, Principal principal)
+      throws IOException {
+    if (!ADMIN.equals(principal.getName())) {
+      throw new NotAuthorizedException("Only the admin can import archives");
+    }
+    InputStream body = request.getInputStream();
+    if (GZIP.equalsIgnoreCase(request.getHeader(HttpHeaders.CONTENT_ENCODING))) {
+      body = new GZIPInputStream(body, 65536);
+    }
+    return ResponseEntity.ok(archiveImportService.importArchive(jobId, body));
+  }
+}
@@ -1,17 +1,22 @@
 package com.example.forum.controller;
 
 import com.example.forum.config.JwtTokenProvider;
+import com.example.forum.config.UserPrincipal;
 import com.example.forum.dto.UserDTO;
+import com.example.forum.entity.User;
+import com.example.forum.service.PasswordHashingService;
 import com.example.forum.service.UserService;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -25,18 +30,19 @@ import org.springframework.web.bind.annotation.RestController;
 public class AuthController {
   private final UserService userService;
   private final JwtTokenProvider jwtTokenProvider;
-  private final AuthenticationManager authenticationManager;
-  private final PasswordEncoder passwordEncoder;
+  private final PasswordHashingService passwordHashingService;
+  private final Executor executor;
 
   public AuthController(
       UserService userService,
       JwtTokenProvider jwtTokenProvider,
-      AuthenticationManager authenticationManager,
-      PasswordEncoder passwordEncoder) {
+      PasswordHashingService passwordHashingService,
+      @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+          Executor executor) {
     this.userService = userService;
     this.jwtTokenProvider = jwtTokenProvider;
-    this.authenticationManager = authenticationManager;
-    this.passwordEncoder = passwordEncoder;
+    this.passwordHashingService = passwordHashingService;
+    this.executor = executor;
   }
 
   @PostMapping("/sign-up")
@@ -44,14 +50,21 @@ public class AuthController {
       value = "Регистрация нового пользователя",
       response = String.class,
       notes = "Этот метод регистрирует нового пользователя и возвращает токен аутентификации")
-  public ResponseEntity<String> register(@RequestBody UserDTO userDto) {
-    userService.registerUser(userDto.getUsername(), passwordEncoder.encode(userDto.getPassword()));
-    Authentication authentication =
-        authenticationManager.authenticate(
-            new UsernamePasswordAuthenticationToken(userDto.getUsername(), userDto.getPassword()));
-    String token = jwtTokenProvider.generateToken(authentication);
-
-    return ResponseEntity.ok(token);
+  public CompletableFuture<ResponseEntity<String>> register(@RequestBody UserDTO userDto) {
+    return passwordHashingService
+        .encode(userDto.getPassword())
+        // Сохранение пользователя выполняется вне пула хеширования, занятого только BCrypt.
+        .thenApplyAsync(
+            encodedPassword -> {
+              User user = userService.registerUser(userDto.getUsername(), encodedPassword);
+              UserPrincipal principal = userService.principalOf(user);
+              String token =
+                  jwtTokenProvider.generateToken(
+                      new UsernamePasswordAuthenticationToken(
+                          principal, null, principal.getAuthorities()));
+              return ResponseEntity.ok(token);
+            },
+            executor);
   }
 
   @PostMapping("/sign-in")
@@ -60,16 +73,21 @@ public class AuthController {
       response = ResponseEntity.class,
       notes =
           "Этот метод аутентифицирует пользователя и возвращает токен аутентификации. Возвращает 401, если аутентификация не удаётся.")
-  public ResponseEntity<?> login(@RequestBody UserDTO userDto) {
-    try {
-      Authentication authentication =
-          authenticationManager.authenticate(
-              new UsernamePasswordAuthenticationToken(
-                  userDto.getUsername(), userDto.getPassword()));
-      String token = jwtTokenProvider.generateToken(authentication);
-      return ResponseEntity.ok(token);
-    } catch (BadCredentialsException e) {
-      return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid username or password");
-    }
+  public CompletableFuture<ResponseEntity<?>> login(@RequestBody UserDTO userDto) {
+    return passwordHashingService
+        .authenticate(
+            new UsernamePasswordAuthenticationToken(userDto.getUsername(), userDto.getPassword()))
+        .<ResponseEntity<?>>thenApplyAsync(
+            authentication -> ResponseEntity.ok(jwtTokenProvider.generateToken(authentication)),
+            executor)
+        .exceptionally(
+            e -> {
+              Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+              if (cause instanceof BadCredentialsException) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body("Invalid username or password");
+              }
+              throw e instanceof CompletionException c ? c : new CompletionException(e);
+            });
   }
 }
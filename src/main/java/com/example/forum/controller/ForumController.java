@@ -1,25 +1,48 @@
 package com.example.forum.controller;
 
+import com.example.forum.config.QueryBudget;
+import com.example.forum.config.UserPrincipal;
+import com.example.forum.dto.CursorPageDTO;
+import com.example.forum.dto.MessageBatchItemDTO;
+import com.example.forum.dto.MessageBatchResultDTO;
+import com.example.forum.dto.SearchHitDTO;
+import com.example.forum.dto.TopicChangesDTO;
 import com.example.forum.dto.TopicDTO;
+import com.example.forum.dto.TopicRevisionDTO;
+import com.example.forum.dto.TopicSummaryDTO;
 import com.example.forum.entity.Message;
 import com.example.forum.entity.Topic;
 import com.example.forum.entity.User;
 import com.example.forum.exception.NotAuthorizedException;
 import com.example.forum.service.ForumService;
+import com.example.forum.service.SearchService;
+import com.example.forum.service.TopicExportService;
+import com.example.forum.service.TopicStreamService;
 import com.example.forum.service.UserService;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.security.Principal;
+import java.util.List;
 import java.util.UUID;
+import java.util.function.Supplier;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("api/v1")
@@ -28,23 +51,33 @@ import org.springframework.web.bind.annotation.*;
     description = "Контроллер для управления темами и сообщениями форума")
 public class ForumController {
 
+  private static final String PREFERENCE_APPLIED = "Preference-Applied";
+  private static final String RETURN_MINIMAL = "return=minimal";
+  private static final String VIEW_MESSAGE = "message";
+  private static final long UNMATCHABLE_VERSION = -1;
+  private static final String LAST_EVENT_ID = "Last-Event-ID";
+  private static final String NDJSON = "application/x-ndjson";
+  private static final String GZIP = "gzip";
+
   @Autowired private ForumService topicService;
 
   @Autowired private UserService userService;
 
+  @Autowired private SearchService searchService;
+
+  @Autowired private TopicStreamService topicStreamService;
+
+  @Autowired private TopicExportService topicExportService;
+
   @PostMapping("/topic")
   @ApiOperation(
       value = "Создать новую тему",
       response = Topic.class,
       notes = "Этот метод создает новую тему на форуме с начальным сообщением.")
+  @QueryBudget(3)
   public ResponseEntity<Topic> createTopic(@RequestBody TopicDTO topicDto) {
     Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-    String username = authentication.getName();
-    User user =
-        userService
-            .findByUsername(username)
-            .orElseThrow(() -> new NotAuthorizedException("User not found"));
-    Topic createdTopic = topicService.createTopic(topicDto, user.getId());
+    Topic createdTopic = topicService.createTopic(topicDto, resolveUserId(authentication));
     return new ResponseEntity<>(createdTopic, HttpStatus.CREATED);
   }
 
@@ -54,52 +87,80 @@ public class ForumController {
       response = Topic.class,
       responseContainer = "List",
       notes = "Возвращает список всех тем на форуме.")
+  @QueryBudget(3)
   public ResponseEntity<Page<Topic>> getAllTopics(@PageableDefault(size = 5) Pageable pageable) {
     Page<Topic> topics = topicService.getAllTopics(pageable);
     return ResponseEntity.ok(topics);
   }
 
+  @GetMapping("/topic/summary")
+  @ApiOperation(
+      value = "Получить краткий список тем",
+      response = TopicSummaryDTO.class,
+      responseContainer = "Page",
+      notes =
+          "Возвращает страницу кратких сведений о темах без сообщений: автора, количество"
+              + " сообщений, время последней активности и фрагмент первого сообщения.")
+  @QueryBudget(2)
+  public ResponseEntity<Page<TopicSummaryDTO>> getTopicSummaries(
+      @PageableDefault(size = 5) Pageable pageable) {
+    Page<TopicSummaryDTO> topics = topicService.getTopicSummaries(pageable);
+    return ResponseEntity.ok(topics);
+  }
+
   @PutMapping("/topic")
   @ApiOperation(
       value = "Обновить тему",
       response = Topic.class,
-      notes = "Обновляет детали существующей темы. Требует указания ID темы в DTO.")
-  public ResponseEntity<Topic> updateTopic(@RequestBody TopicDTO topicDto, Principal principal) {
-    String username = principal.getName();
-    User user =
-        userService
-            .findByUsername(username)
-            .orElseThrow(() -> new NotAuthorizedException("User not found"));
-    Long userId = user.getId();
-    Topic updatedTopic = topicService.updateTopic(topicDto, userId);
-    return ResponseEntity.ok(updatedTopic);
+      notes =
+          "Обновляет детали существующей темы. Требует указания ID темы в DTO. С заголовком"
+              + " If-Match (ETag темы) возвращает 412, если тема уже изменилась; при"
+              + " параллельном изменении возвращает 409.")
+  @QueryBudget(5)
+  public ResponseEntity<Topic> updateTopic(
+      @RequestBody TopicDTO topicDto,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+      Principal principal) {
+    Long userId = resolveUserId(principal);
+    Topic updatedTopic = topicService.updateTopic(topicDto, userId, parseIfMatch(ifMatch));
+    return ResponseEntity.ok().eTag(versionTag(updatedTopic.getRevision())).body(updatedTopic);
   }
 
   @GetMapping("/topic/{topicId}")
   @ApiOperation(
       value = "Получить тему по ID",
       response = Topic.class,
-      notes = "Возвращает тему по уникальному идентификатору.")
-  public ResponseEntity<Topic> getTopicById(@PathVariable UUID topicId) {
-    Topic topic = topicService.getTopicById(topicId);
-    return ResponseEntity.ok(topic);
+      notes =
+          "Возвращает тему по уникальному идентификатору. Поддерживает условные запросы"
+              + " (If-None-Match, If-Modified-Since) по ревизии темы.")
+  @QueryBudget(3)
+  public ResponseEntity<Topic> getTopicById(@PathVariable UUID topicId, WebRequest request) {
+    return conditional(topicId, request, () -> topicService.getTopicById(topicId));
   }
 
   @PostMapping("/topic/{topicId}/message")
   @ApiOperation(
       value = "Добавить сообщение в тему",
       response = Topic.class,
-      notes = "Добавляет новое сообщение к существующей теме по ID темы.")
-  public ResponseEntity<Topic> addMessageToTopic(
-      @PathVariable UUID topicId, @RequestBody Message message, Principal principal) {
-    String username = principal.getName();
-    User user =
-        userService
-            .findByUsername(username)
-            .orElseThrow(() -> new NotAuthorizedException("User not found"));
-    Long userId = user.getId();
-
-    topicService.addMessageToTopic(topicId, message, userId);
+      notes =
+          "Добавляет новое сообщение к существующей теме по ID темы. С заголовком 'Prefer:"
+              + " return=minimal' или параметром 'view=message' возвращает только созданное"
+              + " сообщение.")
+  @QueryBudget(4)
+  public ResponseEntity<?> addMessageToTopic(
+      @PathVariable UUID topicId,
+      @RequestBody Message message,
+      @RequestParam(required = false) String view,
+      @RequestHeader(value = "Prefer", required = false) String prefer,
+      Principal principal) {
+    Long userId = resolveUserId(principal);
+
+    Message createdMessage = topicService.addMessageToTopic(topicId, message, userId);
+    if (isMinimalResponse(view, prefer)) {
+      return ResponseEntity.status(HttpStatus.CREATED)
+          .header(PREFERENCE_APPLIED, RETURN_MINIMAL)
+          .body(createdMessage);
+    }
     Topic updatedTopic = topicService.getTopicById(topicId);
     return new ResponseEntity<>(updatedTopic, HttpStatus.CREATED);
   }
@@ -108,30 +169,59 @@ public class ForumController {
   @ApiOperation(
       value = "Обновить сообщение в теме",
       response = Topic.class,
-      notes = "Обновляет существующее сообщение в теме. Требуется ID темы и детали сообщения.")
-  public ResponseEntity<Topic> updateMessageInTopic(
-      @PathVariable UUID topicId, @RequestBody Message messageDetails, Principal principal) {
-    String username = principal.getName();
-    User user =
-        userService
-            .findByUsername(username)
-            .orElseThrow(() -> new NotAuthorizedException("User not found"));
-    Long userId = user.getId();
-    Topic updatedTopic = topicService.updateMessageInTopic(topicId, messageDetails, userId);
+      notes =
+          "Обновляет существующее сообщение в теме. Требуется ID темы и детали сообщения. С"
+              + " заголовком 'Prefer: return=minimal' или параметром 'view=message' возвращает"
+              + " только обновленное сообщение. С заголовком If-Match (версия сообщения)"
+              + " возвращает 412, если сообщение уже изменилось; при параллельном изменении"
+              + " возвращает 409.")
+  @QueryBudget(8)
+  public ResponseEntity<?> updateMessageInTopic(
+      @PathVariable UUID topicId,
+      @RequestBody Message messageDetails,
+      @RequestParam(required = false) String view,
+      @RequestHeader(value = "Prefer", required = false) String prefer,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+      Principal principal) {
+    Long userId = resolveUserId(principal);
+    Long expectedVersion = parseIfMatch(ifMatch);
+    if (isMinimalResponse(view, prefer)) {
+      Message updatedMessage =
+          topicService.updateMessage(topicId, messageDetails, userId, expectedVersion);
+      return ResponseEntity.ok()
+          .header(PREFERENCE_APPLIED, RETURN_MINIMAL)
+          .eTag(versionTag(updatedMessage.getVersion()))
+          .body(updatedMessage);
+    }
+    Topic updatedTopic =
+        topicService.updateMessageInTopic(topicId, messageDetails, userId, expectedVersion);
     return new ResponseEntity<>(updatedTopic, HttpStatus.OK);
   }
 
+  @PostMapping("/message/batch")
+  @ApiOperation(
+      value = "Добавить пакет сообщений",
+      response = MessageBatchResultDTO.class,
+      responseContainer = "List",
+      notes =
+          "Добавляет до 500 сообщений в одну или несколько тем одной транзакцией. Возвращает"
+              + " результат для каждого элемента в порядке запроса.")
+  // Запросы растут с количеством тем пакета, а размер пакета ограничен сервисом.
+  @QueryBudget(QueryBudget.UNLIMITED)
+  public ResponseEntity<List<MessageBatchResultDTO>> addMessages(
+      @RequestBody List<MessageBatchItemDTO> items, Principal principal) {
+    Long userId = resolveUserId(principal);
+    List<MessageBatchResultDTO> results = topicService.addMessages(items, userId);
+    return ResponseEntity.ok(results);
+  }
+
   @DeleteMapping("/message/{messageId}")
   @ApiOperation(
       value = "Удалить сообщение",
       notes = "Удаляет сообщение по его уникальному идентификатору.")
+  @QueryBudget(7)
   public ResponseEntity<?> deleteMessage(@PathVariable UUID messageId, Principal principal) {
-    String username = principal.getName();
-    User user =
-        userService
-            .findByUsername(username)
-            .orElseThrow(() -> new NotAuthorizedException("User not found"));
-    Long userId = user.getId();
+    Long userId = resolveUserId(principal);
     topicService.deleteMessage(messageId, userId);
     return new ResponseEntity<>(HttpStatus.NO_CONTENT);
   }
@@ -142,9 +232,204 @@ public class ForumController {
       response = Message.class,
       responseContainer = "Page",
       notes = "Возвращает страницу с сообщениями заданной темы, поддерживая пагинацию.")
+  @QueryBudget(3)
   public ResponseEntity<Page<Message>> getMessagesByTopicId(
-      @PathVariable UUID topicId, @PageableDefault(size = 10) Pageable pageable) {
-    Page<Message> messages = topicService.getTopicMessage(topicId, pageable);
-    return ResponseEntity.ok(messages);
+      @PathVariable UUID topicId,
+      @PageableDefault(size = 10) Pageable pageable,
+      WebRequest request) {
+    return conditional(topicId, request, () -> topicService.getTopicMessage(topicId, pageable));
+  }
+
+  @GetMapping("/topic/{topicId}/message/cursor")
+  @ApiOperation(
+      value = "Получить сообщения темы по курсору",
+      response = CursorPageDTO.class,
+      notes =
+          "Возвращает срез сообщений темы после или до указанного курсора без подсчета общего"
+              + " количества сообщений.")
+  @QueryBudget(2)
+  public ResponseEntity<CursorPageDTO<Message>> getMessagesByCursor(
+      @PathVariable UUID topicId,
+      @RequestParam(required = false) String after,
+      @RequestParam(required = false) String before,
+      @RequestParam(defaultValue = "10") int size,
+      WebRequest request) {
+    return conditional(
+        topicId,
+        request,
+        () -> topicService.getTopicMessagesByCursor(topicId, after, before, size));
+  }
+
+  @GetMapping("/topic/{topicId}/changes")
+  @ApiOperation(
+      value = "Получить изменения сообщений темы",
+      response = TopicChangesDTO.class,
+      notes =
+          "Возвращает сообщения, добавленные или измененные после маркера синхронизации"
+              + " 'since', и идентификаторы удаленных. Без маркера возвращает все сообщения темы."
+              + " Маркер из ответа передается в следующий запрос; при 'hasMore' запрос нужно"
+              + " повторить.")
+  @QueryBudget(3)
+  public ResponseEntity<TopicChangesDTO> getTopicChanges(
+      @PathVariable UUID topicId,
+      @RequestParam(required = false) String since,
+      @RequestParam(defaultValue = "500") int limit) {
+    return ResponseEntity.ok(topicService.getTopicChanges(topicId, since, limit));
+  }
+
+  @GetMapping(value = "/topic/{topicId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  @ApiOperation(
+      value = "Подписаться на изменения сообщений темы",
+      notes =
+          "Открывает поток Server-Sent Events с добавленными, измененными и удаленными"
+              + " сообщениями темы. С заголовком Last-Event-ID досылает пропущенные события или"
+              + " отправляет событие 'reset', если их уже нет в истории.")
+  @QueryBudget(1)
+  public SseEmitter streamTopic(
+      @PathVariable UUID topicId,
+      @RequestHeader(value = LAST_EVENT_ID, required = false) String lastEventId) {
+    topicService.getTopicRevision(topicId);
+    return topicStreamService.subscribe(topicId, lastEventId);
+  }
+
+  @GetMapping(value = "/topic/{topicId}/export", produces = NDJSON)
+  @ApiOperation(
+      value = "Выгрузить сообщения темы",
+      notes =
+          "Выгружает все сообщения темы в формате NDJSON (по сообщению на строку) в порядке"
+              + " создания. С заголовком 'Accept-Encoding: gzip' выгрузка сжимается.")
+  @QueryBudget(2)
+  public void exportTopic(
+      @PathVariable UUID topicId,
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+      HttpServletResponse response)
+      throws IOException {
+    topicService.getTopicRevision(topicId);
+    boolean gzip = acceptsGzip(acceptEncoding);
+    response.setContentType(NDJSON);
+    response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+    response.setHeader(
+        HttpHeaders.CONTENT_DISPOSITION,
+        ContentDisposition.attachment()
+            .filename("topic-" + topicId + ".ndjson")
+            .build()
+            .toString());
+    response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    if (gzip) {
+      response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+    }
+    topicExportService.export(topicId, response.getOutputStream(), gzip);
+  }
+
+  @GetMapping("/search")
+  @ApiOperation(
+      value = "Полнотекстовый поиск",
+      response = SearchHitDTO.class,
+      responseContainer = "List",
+      notes =
+          "Ищет темы по заголовку и сообщения по тексту, упорядочивая результаты по"
+              + " релевантности (BM25).")
+  @QueryBudget(1)
+  public ResponseEntity<List<SearchHitDTO>> search(
+      @RequestParam String q, @RequestParam(defaultValue = "10") int limit) {
+    return ResponseEntity.ok(searchService.search(q, limit));
+  }
+
+  /**
+   * Возвращает идентификатор текущего пользователя. Если запрос аутентифицирован JWT фильтром,
+   * идентификатор берется из {@link UserPrincipal} без обращения к базе данных.
+   */
+  private Long resolveUserId(Principal principal) {
+    if (principal instanceof Authentication authentication
+        && authentication.getPrincipal() instanceof UserPrincipal userPrincipal) {
+      return userPrincipal.getId();
+    }
+    return userService
+        .findByUsername(principal.getName())
+        .map(User::getId)
+        .orElseThrow(() -> new NotAuthorizedException("User not found"));
+  }
+
+  /**
+   * Отвечает 304 без загрузки тела, если ревизия темы совпадает с {@code If-None-Match} или тема не
+   * менялась с {@code If-Modified-Since}; иначе загружает тело. Ревизия читается до тела, поэтому
+   * тело никогда не старше ревизии, указанной в ETag.
+   */
+  private <T> ResponseEntity<T> conditional(UUID topicId, WebRequest request, Supplier<T> body) {
+    TopicRevisionDTO revision = topicService.getTopicRevision(topicId);
+    HttpHeaders validators = new HttpHeaders();
+    validators.setETag(revision.getETag());
+    if (revision.getLastModified() >= 0) {
+      validators.setLastModified(revision.getLastModified());
+    }
+    validators.setCacheControl(CacheControl.noCache());
+    if (request.checkNotModified(revision.getETag(), revision.getLastModified())) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(validators).build();
+    }
+    return ResponseEntity.ok().headers(validators).body(body.get());
+  }
+
+  /**
+   * Извлекает ожидаемую версию из заголовка {@code If-Match}. Отсутствующий заголовок и {@code *}
+   * означают обновление без проверки версии. Слабые ETag не допускаются в If-Match (RFC 9110),
+   * поэтому они, как и нераспознанные значения, не совпадают ни с одной версией.
+   */
+  private static Long parseIfMatch(String ifMatch) {
+    if (ifMatch == null || ifMatch.isBlank() || "*".equals(ifMatch.trim())) {
+      return null;
+    }
+    String tag = ifMatch.trim();
+    if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+      try {
+        return Long.parseLong(tag.substring(1, tag.length() - 1));
+      } catch (NumberFormatException e) {
+        return UNMATCHABLE_VERSION;
+      }
+    }
+    return UNMATCHABLE_VERSION;
+  }
+
+  /** Определяет, принимает ли клиент ответ, сжатый gzip ({@code q=0} означает отказ). */
+  private static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parts = coding.split(";");
+      if (GZIP.equalsIgnoreCase(parts[0].trim())) {
+        for (int i = 1; i < parts.length; i++) {
+          String parameter = parts[i].trim().replace(" ", "");
+          if (parameter.matches("(?i)q=0(\\.0*)?")) {
+            return false;
+          }
+        }
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String versionTag(long version) {
+    return "\"" + version + "\"";
+  }
+
+  /**
+   * Определяет, запросил ли клиент минимальный ответ: параметр {@code view=message} или
+   * предпочтение {@code return=minimal} в заголовке {@code Prefer} (RFC 7240).
+   */
+  private static boolean isMinimalResponse(String view, String prefer) {
+    if (VIEW_MESSAGE.equalsIgnoreCase(view)) {
+      return true;
+    }
+    if (prefer == null) {
+      return false;
+    }
+    for (String preference : prefer.split(",")) {
+      String token = preference.split(";", 2)[0].trim().replace(" ", "");
+      if (RETURN_MINIMAL.equalsIgnoreCase(token)) {
+        return true;
+      }
+    }
+    return false;
   }
 }
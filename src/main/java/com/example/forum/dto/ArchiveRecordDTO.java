@@ -0,0 +1,79 @@
+package com.example.forum.dto;
+
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+
+/**
+ * Строка NDJSON-архива для импорта. Запись с типом {@code topic} описывает тему: внешний
+ * идентификатор {@code id}, заголовок и автора. Запись с типом {@code message} описывает сообщение
+ * темы с внешним идентификатором {@code topic}. Тема должна встретиться в архиве раньше своих
+ * сообщений или уже быть импортирована.
+ */
+public class ArchiveRecordDTO implements Serializable {
+  public static final String TOPIC = "topic";
+  public static final String MESSAGE = "message";
+
+  private String type;
+  private String id;
+  private String topic;
+  private String title;
+  private String author;
+  private String text;
+  private OffsetDateTime created;
+
+  public String getType() {
+    return type;
+  }
+
+  public void setType(String type) {
+    this.type = type;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  public String getTopic() {
+    return topic;
+  }
+
+  public void setTopic(String topic) {
+    this.topic = topic;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public void setTitle(String title) {
+    this.title = title;
+  }
+
+  public String getAuthor() {
+    return author;
+  }
+
+  public void setAuthor(String author) {
+    this.author = author;
+  }
+
+  public String getText() {
+    return text;
+  }
+
+  public void setText(String text) {
+    this.text = text;
+  }
+
+  public OffsetDateTime getCreated() {
+    return created;
+  }
+
+  public void setCreated(OffsetDateTime created) {
+    this.created = created;
+  }
+}
@@ -0,0 +1,36 @@
+package com.example.forum.dto;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Срез результатов, полученный по курсору. В отличие от {@code Page} не содержит общего числа
+ * элементов, поэтому не требует отдельного запроса {@code count}.
+ */
+public class CursorPageDTO<T> implements Serializable {
+  private final List<T> content;
+  private final String next;
+  private final String previous;
+
+  public CursorPageDTO(List<T> content, String next, String previous) {
+    this.content = content;
+    this.next = next;
+    this.previous = previous;
+  }
+
+  public List<T> getContent() {
+    return content;
+  }
+
+  public int getSize() {
+    return content.size();
+  }
+
+  public String getNext() {
+    return next;
+  }
+
+  public String getPrevious() {
+    return previous;
+  }
+}
@@ -0,0 +1,69 @@
+package com.example.forum.dto;
+
+import java.io.Serializable;
+
+/**
+ * Итог импорта архива. Счетчики относятся только к текущему запуску: строки до контрольной точки
+ * предыдущего запуска пропускаются и не учитываются.
+ */
+public class ImportResultDTO implements Serializable {
+  private final String jobId;
+  private final long resumedFromLine;
+  private final long lastLine;
+  private final long topics;
+  private final long messages;
+  private final long createdUsers;
+  private final long rejected;
+  private final long durationMillis;
+
+  public ImportResultDTO(
+      String jobId,
+      long resumedFromLine,
+      long lastLine,
+      long topics,
+      long messages,
+      long createdUsers,
+      long rejected,
+      long durationMillis) {
+    this.jobId = jobId;
+    this.resumedFromLine = resumedFromLine;
+    this.lastLine = lastLine;
+    this.topics = topics;
+    this.messages = messages;
+    this.createdUsers = createdUsers;
+    this.rejected = rejected;
+    this.durationMillis = durationMillis;
+  }
+
+  public String getJobId() {
+    return jobId;
+  }
+
+  public long getResumedFromLine() {
+    return resumedFromLine;
+  }
+
+  public long getLastLine() {
+    return lastLine;
+  }
+
+  public long getTopics() {
+    return topics;
+  }
+
+  public long getMessages() {
+    return messages;
+  }
+
+  public long getCreatedUsers() {
+    return createdUsers;
+  }
+
+  public long getRejected() {
+    return rejected;
+  }
+
+  public long getDurationMillis() {
+    return durationMillis;
+  }
+}
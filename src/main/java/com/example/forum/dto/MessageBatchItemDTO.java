@@ -0,0 +1,26 @@
+package com.example.forum.dto;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/** Элемент пакетной загрузки сообщений: текст сообщения и тема, в которую его нужно добавить. */
+public class MessageBatchItemDTO implements Serializable {
+  private UUID topicId;
+  private String text;
+
+  public UUID getTopicId() {
+    return topicId;
+  }
+
+  public void setTopicId(UUID topicId) {
+    this.topicId = topicId;
+  }
+
+  public String getText() {
+    return text;
+  }
+
+  public void setText(String text) {
+    this.text = text;
+  }
+}
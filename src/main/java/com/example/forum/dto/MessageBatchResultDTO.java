@@ -0,0 +1,69 @@
+package com.example.forum.dto;
+
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Результат обработки одного элемента пакетной загрузки. Порядок результатов совпадает с порядком
+ * элементов запроса; отклоненные элементы содержат причину отказа и не мешают сохранению остальных.
+ */
+public class MessageBatchResultDTO implements Serializable {
+  public static final String CREATED = "CREATED";
+  public static final String REJECTED = "REJECTED";
+
+  private final int index;
+  private final UUID topicId;
+  private final String status;
+  private final UUID messageId;
+  private final OffsetDateTime created;
+  private final String error;
+
+  private MessageBatchResultDTO(
+      int index,
+      UUID topicId,
+      String status,
+      UUID messageId,
+      OffsetDateTime created,
+      String error) {
+    this.index = index;
+    this.topicId = topicId;
+    this.status = status;
+    this.messageId = messageId;
+    this.created = created;
+    this.error = error;
+  }
+
+  public static MessageBatchResultDTO created(
+      int index, UUID topicId, UUID messageId, OffsetDateTime created) {
+    return new MessageBatchResultDTO(index, topicId, CREATED, messageId, created, null);
+  }
+
+  public static MessageBatchResultDTO rejected(int index, UUID topicId, String error) {
+    return new MessageBatchResultDTO(index, topicId, REJECTED, null, null, error);
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public UUID getTopicId() {
+    return topicId;
+  }
+
+  public String getStatus() {
+    return status;
+  }
+
+  public UUID getMessageId() {
+    return messageId;
+  }
+
+  public OffsetDateTime getCreated() {
+    return created;
+  }
+
+  public String getError() {
+    return error;
+  }
+}
@@ -0,0 +1,78 @@
+package com.example.forum.dto;
+
+import com.example.forum.entity.Message;
+import com.example.forum.exception.BadRequestException;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Непрозрачный курсор для постраничного чтения сообщений темы. Курсор однозначно задает позицию
+ * сообщения в порядке {@code (created, id)} и передается клиенту в виде строки base64url.
+ */
+public final class MessageCursor {
+  private final OffsetDateTime created;
+  private final UUID id;
+
+  public MessageCursor(OffsetDateTime created, UUID id) {
+    this.created = created;
+    this.id = id;
+  }
+
+  /**
+   * Создает курсор, указывающий на переданное сообщение.
+   *
+   * @param message Сообщение, позицию которого нужно запомнить.
+   * @return Курсор сообщения.
+   */
+  public static MessageCursor of(Message message) {
+    return new MessageCursor(message.getCreated(), message.getId());
+  }
+
+  /**
+   * Разбирает курсор, полученный от клиента.
+   *
+   * @param value Строковое представление курсора.
+   * @return Разобранный курсор.
+   * @throws BadRequestException если строка не является корректным курсором.
+   */
+  public static MessageCursor decode(String value) {
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+      String[] parts = raw.split(":", 3);
+      if (parts.length != 3) {
+        throw new BadRequestException("Invalid cursor");
+      }
+      Instant instant = Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+      return new MessageCursor(
+          OffsetDateTime.ofInstant(instant, ZoneOffset.UTC), UUID.fromString(parts[2]));
+    } catch (IllegalArgumentException | DateTimeException e) {
+      throw new BadRequestException("Invalid cursor");
+    }
+  }
+
+  /**
+   * Кодирует курсор в строку, пригодную для передачи в параметрах запроса.
+   *
+   * @return Строковое представление курсора.
+   */
+  public String encode() {
+    Instant instant = created.toInstant();
+    String raw = instant.getEpochSecond() + ":" + instant.getNano() + ":" + id;
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public OffsetDateTime getCreated() {
+    return created;
+  }
+
+  public UUID getId() {
+    return id;
+  }
+}
@@ -0,0 +1,48 @@
+package com.example.forum.dto;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * Результат полнотекстового поиска: тема (совпадение в заголовке) или сообщение (совпадение в
+ * тексте) с оценкой релевантности BM25. Для сообщения {@code topicId} указывает на его тему, для
+ * темы совпадает с {@code id}.
+ */
+public class SearchHitDTO implements Serializable {
+  public static final String TOPIC = "TOPIC";
+  public static final String MESSAGE = "MESSAGE";
+
+  private final String type;
+  private final UUID id;
+  private final UUID topicId;
+  private final double score;
+  private final String text;
+
+  public SearchHitDTO(String type, UUID id, UUID topicId, double score, String text) {
+    this.type = type;
+    this.id = id;
+    this.topicId = topicId;
+    this.score = score;
+    this.text = text;
+  }
+
+  public String getType() {
+    return type;
+  }
+
+  public UUID getId() {
+    return id;
+  }
+
+  public UUID getTopicId() {
+    return topicId;
+  }
+
+  public double getScore() {
+    return score;
+  }
+
+  public String getText() {
+    return text;
+  }
+}
@@ -0,0 +1,42 @@
+package com.example.forum.dto;
+
+import com.example.forum.entity.Message;
+import java.io.Serializable;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Изменения сообщений темы после маркера синхронизации: добавленные и измененные сообщения в
+ * порядке изменения и идентификаторы удаленных. Новый маркер передается в следующий запрос; если
+ * {@code hasMore} истинно, изменения получены не полностью и запрос нужно повторить сразу.
+ */
+public class TopicChangesDTO implements Serializable {
+  private final List<Message> messages;
+  private final List<UUID> deleted;
+  private final String syncToken;
+  private final boolean hasMore;
+
+  public TopicChangesDTO(
+      List<Message> messages, List<UUID> deleted, String syncToken, boolean hasMore) {
+    this.messages = messages;
+    this.deleted = deleted;
+    this.syncToken = syncToken;
+    this.hasMore = hasMore;
+  }
+
+  public List<Message> getMessages() {
+    return messages;
+  }
+
+  public List<UUID> getDeleted() {
+    return deleted;
+  }
+
+  public String getSyncToken() {
+    return syncToken;
+  }
+
+  public boolean isHasMore() {
+    return hasMore;
+  }
+}
@@ -0,0 +1,44 @@
+package com.example.forum.dto;
+
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+
+/**
+ * Валидаторы условных запросов темы: ревизия для ETag и время последнего изменения для
+ * Last-Modified. Читаются одной строкой таблицы тем, без загрузки сообщений.
+ */
+public class TopicRevisionDTO implements Serializable {
+  private final long revision;
+  private final OffsetDateTime modifiedAt;
+
+  public TopicRevisionDTO(Long revision, OffsetDateTime modifiedAt) {
+    this.revision = revision != null ? revision : 0;
+    this.modifiedAt = modifiedAt;
+  }
+
+  public long getRevision() {
+    return revision;
+  }
+
+  public OffsetDateTime getModifiedAt() {
+    return modifiedAt;
+  }
+
+  /**
+   * Возвращает сильный ETag ревизии.
+   *
+   * @return ETag в кавычках, например {@code "42"}.
+   */
+  public String getETag() {
+    return "\"" + revision + "\"";
+  }
+
+  /**
+   * Возвращает время последнего изменения в миллисекундах.
+   *
+   * @return Время в миллисекундах или {@code -1}, если оно неизвестно.
+   */
+  public long getLastModified() {
+    return modifiedAt != null ? modifiedAt.toInstant().toEpochMilli() : -1;
+  }
+}
@@ -0,0 +1,64 @@
+package com.example.forum.dto;
+
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Краткое представление темы для списка тем. Содержит только агрегированные данные и фрагмент
+ * первого сообщения, поэтому размер ответа не зависит от количества сообщений в теме.
+ */
+public class TopicSummaryDTO implements Serializable {
+  private final UUID id;
+  private final String title;
+  private final OffsetDateTime created;
+  private final String author;
+  private final long messageCount;
+  private final OffsetDateTime lastActivity;
+  private final String snippet;
+
+  public TopicSummaryDTO(
+      UUID id,
+      String title,
+      OffsetDateTime created,
+      String author,
+      Long messageCount,
+      OffsetDateTime lastActivity,
+      String snippet) {
+    this.id = id;
+    this.title = title;
+    this.created = created;
+    this.author = author;
+    this.messageCount = messageCount != null ? messageCount : 0;
+    this.lastActivity = lastActivity;
+    this.snippet = snippet;
+  }
+
+  public UUID getId() {
+    return id;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public OffsetDateTime getCreated() {
+    return created;
+  }
+
+  public String getAuthor() {
+    return author;
+  }
+
+  public long getMessageCount() {
+    return messageCount;
+  }
+
+  public OffsetDateTime getLastActivity() {
+    return lastActivity;
+  }
+
+  public String getSnippet() {
+    return snippet;
+  }
+}
@@ -0,0 +1,43 @@
+package com.example.forum.entity;
+
+import jakarta.persistence.*;
+import java.time.OffsetDateTime;
+
+/**
+ * Контрольная точка импорта архива: номер последней строки входного файла, данные до которой
+ * включительно зафиксированы. Обновляется в той же транзакции, что и сохраненная пачка, поэтому
+ * повторный запуск задания с тем же идентификатором продолжает импорт без потерь и повторов.
+ */
+@Entity
+@Table(name = "import_checkpoint")
+public class ImportCheckpoint {
+  @Id
+  @Column(name = "job_id", updatable = false, nullable = false, length = 100)
+  private String jobId;
+
+  @Column(name = "line_number", nullable = false)
+  private long lineNumber;
+
+  @Column(name = "updated_at")
+  private OffsetDateTime updatedAt;
+
+  protected ImportCheckpoint() {}
+
+  public ImportCheckpoint(String jobId, long lineNumber, OffsetDateTime updatedAt) {
+    this.jobId = jobId;
+    this.lineNumber = lineNumber;
+    this.updatedAt = updatedAt;
+  }
+
+  public String getJobId() {
+    return jobId;
+  }
+
+  public long getLineNumber() {
+    return lineNumber;
+  }
+
+  public OffsetDateTime getUpdatedAt() {
+    return updatedAt;
+  }
+}
@@ -1,22 +1,43 @@
 package com.example.forum.entity;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.UUID;
-import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.ColumnDefault;
 
 @Entity
+@Table(
+    indexes = {
+      @Index(name = "idx_message_topic_created_id", columnList = "topic_id, created, id"),
+      @Index(name = "idx_message_topic_seq", columnList = "topic_id, change_seq")
+    })
 public class Message {
   @Id
-  @GeneratedValue(generator = "UUID")
-  @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
+  @TimeOrderedUuid
   @Column(name = "id", updatable = false, nullable = false)
   private UUID id;
 
   private String author;
   private String text;
 
+  /** Версия сообщения для оптимистической блокировки; передается клиентом в If-Match. */
+  @Version
+  @ColumnDefault("0")
+  @Column(name = "version", nullable = false)
+  private long version;
+
+  /**
+   * Номер последнего изменения сообщения в теме: ревизия темы после добавления или изменения
+   * сообщения. По нему клиент синхронизации получает только изменения после своего маркера.
+   */
+  @JsonIgnore
+  @ColumnDefault("0")
+  @Column(name = "change_seq", nullable = false)
+  private long changeSequence;
+
   @Column(name = "created")
   private OffsetDateTime created;
 
@@ -24,6 +45,18 @@ public class Message {
   @JsonBackReference
   private Topic topic;
 
+  /**
+   * Колонка created хранит время с точностью до микросекунд. Отбрасываем лишние наносекунды до
+   * вставки, чтобы значение в памяти совпадало с сохраненным и курсоры по (created, id) были
+   * точными.
+   */
+  @PrePersist
+  void truncateCreated() {
+    if (created != null) {
+      created = created.truncatedTo(ChronoUnit.MICROS);
+    }
+  }
+
   public UUID getId() {
     return id;
   }
@@ -48,6 +81,22 @@ public class Message {
     this.text = text;
   }
 
+  public long getVersion() {
+    return version;
+  }
+
+  public void setVersion(long version) {
+    this.version = version;
+  }
+
+  public long getChangeSequence() {
+    return changeSequence;
+  }
+
+  public void setChangeSequence(long changeSequence) {
+    this.changeSequence = changeSequence;
+  }
+
   public OffsetDateTime getCreated() {
     return created;
   }
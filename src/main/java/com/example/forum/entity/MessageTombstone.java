@@ -0,0 +1,76 @@
+package com.example.forum.entity;
+
+import jakarta.persistence.*;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * Отметка об удаленном сообщении. Хранит номер изменения темы, на котором сообщение было удалено,
+ * чтобы клиент синхронизации узнал об удалении по своему маркеру. Тема хранится идентификатором, а
+ * не связью: отметки удаляются вместе с опустевшей темой отдельным запросом.
+ *
+ * <p>Идентификатор назначается приложением, поэтому отметка сообщает репозиторию, что она новая:
+ * иначе сохранение выполнило бы лишний SELECT перед вставкой.
+ */
+@Entity
+@Table(
+    indexes = @Index(name = "idx_message_tombstone_topic_seq", columnList = "topic_id, change_seq"))
+public class MessageTombstone implements Persistable<UUID> {
+  @Id
+  @Column(name = "message_id", updatable = false, nullable = false)
+  private UUID messageId;
+
+  @Column(name = "topic_id", updatable = false, nullable = false)
+  private UUID topicId;
+
+  @Column(name = "change_seq", updatable = false, nullable = false)
+  private long changeSequence;
+
+  @Column(name = "deleted_at", updatable = false)
+  private OffsetDateTime deletedAt;
+
+  @Transient private boolean isNew = true;
+
+  protected MessageTombstone() {}
+
+  public MessageTombstone(
+      UUID messageId, UUID topicId, long changeSequence, OffsetDateTime deletedAt) {
+    this.messageId = messageId;
+    this.topicId = topicId;
+    this.changeSequence = changeSequence;
+    this.deletedAt = deletedAt;
+  }
+
+  @Override
+  public UUID getId() {
+    return messageId;
+  }
+
+  @Override
+  public boolean isNew() {
+    return isNew;
+  }
+
+  @PostLoad
+  @PostPersist
+  void markNotNew() {
+    isNew = false;
+  }
+
+  public UUID getMessageId() {
+    return messageId;
+  }
+
+  public UUID getTopicId() {
+    return topicId;
+  }
+
+  public long getChangeSequence() {
+    return changeSequence;
+  }
+
+  public OffsetDateTime getDeletedAt() {
+    return deletedAt;
+  }
+}
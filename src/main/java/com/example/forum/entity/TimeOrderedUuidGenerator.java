@@ -0,0 +1,55 @@
+package com.example.forum.entity;
+
+import java.util.EnumSet;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+/**
+ * Генератор UUID версии 7 (RFC 9562). Старшие 48 бит содержат время в миллисекундах, следующие 12
+ * бит — счетчик внутри миллисекунды, остальные биты случайны. Идентификаторы, выданные в пределах
+ * одной JVM, строго возрастают, поэтому новые строки добавляются в конец индекса первичного ключа,
+ * а не в случайные страницы B-дерева. Значение остается обычным {@link UUID}.
+ */
+public class TimeOrderedUuidGenerator implements BeforeExecutionGenerator {
+  private static final int COUNTER_BITS = 12;
+
+  /** Последнее выданное значение: время в миллисекундах, сдвинутое на 12 бит, плюс счетчик. */
+  private static final AtomicLong LAST = new AtomicLong();
+
+  @Override
+  public Object generate(
+      SharedSessionContractImplementor session,
+      Object owner,
+      Object currentValue,
+      EventType eventType) {
+    return next();
+  }
+
+  @Override
+  public EnumSet<EventType> getEventTypes() {
+    return EventTypeSets.INSERT_ONLY;
+  }
+
+  /**
+   * Возвращает следующий идентификатор. Если счетчик миллисекунды исчерпан или часы отстали,
+   * значение продолжает расти за счет заимствования следующей миллисекунды.
+   *
+   * @return Новый UUID версии 7.
+   */
+  public static UUID next() {
+    long now = System.currentTimeMillis() << COUNTER_BITS;
+    long state = LAST.accumulateAndGet(now, (last, time) -> Math.max(last + 1, time));
+    long timestamp = state >>> COUNTER_BITS;
+    long counter = state & ((1L << COUNTER_BITS) - 1);
+
+    long mostSigBits = (timestamp << 16) | (0x7L << 12) | counter;
+    long leastSigBits =
+        (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+    return new UUID(mostSigBits, leastSigBits);
+  }
+}
@@ -1,19 +1,20 @@
 package com.example.forum.entity;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
-import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.ColumnDefault;
 
 @Entity
 public class Topic {
   @Id
-  @GeneratedValue(generator = "UUID")
-  @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
+  @TimeOrderedUuid
   @Column(name = "id", updatable = false, nullable = false)
   private UUID id;
 
@@ -22,6 +23,35 @@ public class Topic {
   @Column(name = "created")
   private OffsetDateTime created;
 
+  /**
+   * Количество сообщений в теме. Поддерживается атомарными UPDATE-запросами репозитория, поэтому
+   * при сохранении сущности столбец не перезаписывается.
+   */
+  @ColumnDefault("0")
+  @Column(name = "message_count", nullable = false, updatable = false)
+  private long messageCount;
+
+  /** Время последнего сообщения в теме; обновляется вместе с {@link #messageCount}. */
+  @Column(name = "last_message_at", updatable = false)
+  private OffsetDateTime lastMessageAt;
+
+  /**
+   * Ревизия темы: увеличивается при любом изменении темы или ее сообщений и служит значением ETag,
+   * версией для оптимистической блокировки и номером изменения сообщений для синхронизации.
+   * Поддерживается UPDATE-запросами репозитория, которые изменяют тему только при совпадении
+   * ожидаемой ревизии.
+   */
+  @Version
+  @JsonIgnore
+  @ColumnDefault("0")
+  @Column(name = "revision", nullable = false)
+  private long revision;
+
+  /** Время последнего изменения темы или ее сообщений; служит значением Last-Modified. */
+  @JsonIgnore
+  @Column(name = "modified_at", updatable = false)
+  private OffsetDateTime modifiedAt;
+
   @OneToMany(mappedBy = "topic", cascade = CascadeType.ALL, orphanRemoval = true)
   @JsonManagedReference
   private List<Message> messages = new ArrayList<>();
@@ -31,6 +61,17 @@ public class Topic {
   @JsonBackReference
   private User user;
 
+  /** Приводит время последнего сообщения к точности, с которой его хранит база данных. */
+  @PrePersist
+  void truncateLastMessageAt() {
+    if (lastMessageAt != null) {
+      lastMessageAt = lastMessageAt.truncatedTo(ChronoUnit.MICROS);
+    }
+    if (modifiedAt != null) {
+      modifiedAt = modifiedAt.truncatedTo(ChronoUnit.MICROS);
+    }
+  }
+
   public User getUser() {
     return user;
   }
@@ -63,6 +104,38 @@ public class Topic {
     this.created = created;
   }
 
+  public long getMessageCount() {
+    return messageCount;
+  }
+
+  public void setMessageCount(long messageCount) {
+    this.messageCount = messageCount;
+  }
+
+  public OffsetDateTime getLastMessageAt() {
+    return lastMessageAt;
+  }
+
+  public void setLastMessageAt(OffsetDateTime lastMessageAt) {
+    this.lastMessageAt = lastMessageAt;
+  }
+
+  public long getRevision() {
+    return revision;
+  }
+
+  public void setRevision(long revision) {
+    this.revision = revision;
+  }
+
+  public OffsetDateTime getModifiedAt() {
+    return modifiedAt;
+  }
+
+  public void setModifiedAt(OffsetDateTime modifiedAt) {
+    this.modifiedAt = modifiedAt;
+  }
+
   public List<Message> getMessages() {
     return messages;
   }
@@ -1,5 +1,6 @@
 package com.example.forum.entity;
 
+import com.example.forum.config.UserCacheInvalidationListener;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import java.util.ArrayList;
@@ -7,6 +8,7 @@ import java.util.List;
 
 @Entity
 @Table(name = "users")
+@EntityListeners(UserCacheInvalidationListener.class)
 public class User {
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
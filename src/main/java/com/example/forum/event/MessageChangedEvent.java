@@ -0,0 +1,46 @@
+package com.example.forum.event;
+
+import java.util.UUID;
+
+/**
+ * Событие изменения сообщения: добавление, изменение текста или удаление. Публикуется {@code
+ * ForumService} внутри транзакции записи; слушатели, которым важна согласованность с базой данных,
+ * обрабатывают его после фиксации транзакции.
+ */
+public class MessageChangedEvent {
+  private final UUID messageId;
+  private final UUID topicId;
+  private final String text;
+  private final boolean deleted;
+
+  private MessageChangedEvent(UUID messageId, UUID topicId, String text, boolean deleted) {
+    this.messageId = messageId;
+    this.topicId = topicId;
+    this.text = text;
+    this.deleted = deleted;
+  }
+
+  public static MessageChangedEvent saved(UUID messageId, UUID topicId, String text) {
+    return new MessageChangedEvent(messageId, topicId, text, false);
+  }
+
+  public static MessageChangedEvent deleted(UUID messageId, UUID topicId) {
+    return new MessageChangedEvent(messageId, topicId, null, true);
+  }
+
+  public UUID getMessageId() {
+    return messageId;
+  }
+
+  public UUID getTopicId() {
+    return topicId;
+  }
+
+  public String getText() {
+    return text;
+  }
+
+  public boolean isDeleted() {
+    return deleted;
+  }
+}
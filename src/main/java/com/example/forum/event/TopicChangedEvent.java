@@ -0,0 +1,40 @@
+package com.example.forum.event;
+
+import java.util.UUID;
+
+/**
+ * Событие изменения темы: создание, изменение заголовка или удаление. Публикуется {@code
+ * ForumService} внутри транзакции записи; слушатели, которым важна согласованность с базой данных,
+ * обрабатывают его после фиксации транзакции.
+ */
+public class TopicChangedEvent {
+  private final UUID topicId;
+  private final String title;
+  private final boolean deleted;
+
+  private TopicChangedEvent(UUID topicId, String title, boolean deleted) {
+    this.topicId = topicId;
+    this.title = title;
+    this.deleted = deleted;
+  }
+
+  public static TopicChangedEvent saved(UUID topicId, String title) {
+    return new TopicChangedEvent(topicId, title, false);
+  }
+
+  public static TopicChangedEvent deleted(UUID topicId) {
+    return new TopicChangedEvent(topicId, null, true);
+  }
+
+  public UUID getTopicId() {
+    return topicId;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public boolean isDeleted() {
+    return deleted;
+  }
+}
@@ -1,15 +1,77 @@
 package com.example.forum.repository;
 
 import com.example.forum.entity.Message;
+import jakarta.persistence.QueryHint;
+import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, UUID> {
-  Page<Message> findByTopicId(UUID topicId, Pageable pageable);
+  @Query("select m from Message m where m.topic.id = :topicId")
+  Page<Message> findByTopicId(@Param("topicId") UUID topicId, Pageable pageable);
 
-  long countByTopicId(UUID topicId);
+  @Query("select count(m) from Message m where m.topic.id = :topicId")
+  long countByTopicId(@Param("topicId") UUID topicId);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      "update Message m set m.text = :text, m.version = m.version + 1, m.changeSequence = :seq"
+          + " where m.id = :messageId and m.version = :version")
+  int updateText(
+      @Param("messageId") UUID messageId,
+      @Param("text") String text,
+      @Param("version") long version,
+      @Param("seq") long seq);
+
+  @Query(
+      "select m from Message m where m.topic.id = :topicId"
+          + " and m.changeSequence > :since and m.changeSequence <= :until"
+          + " order by m.changeSequence asc, m.id asc")
+  List<Message> findChanges(
+      @Param("topicId") UUID topicId,
+      @Param("since") long since,
+      @Param("until") long until,
+      Pageable pageable);
+
+  @QueryHints({
+    @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+    @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+  })
+  @Query("select m from Message m where m.topic.id = :topicId order by m.created asc, m.id asc")
+  Stream<Message> streamByTopicId(@Param("topicId") UUID topicId);
+
+  @Query("select m from Message m where m.topic.id = :topicId order by m.created asc, m.id asc")
+  Slice<Message> findFirstSliceByTopicId(@Param("topicId") UUID topicId, Pageable pageable);
+
+  @Query(
+      "select m from Message m where m.topic.id = :topicId"
+          + " and (m.created > :created or (m.created = :created and m.id > :id))"
+          + " order by m.created asc, m.id asc")
+  Slice<Message> findSliceAfter(
+      @Param("topicId") UUID topicId,
+      @Param("created") OffsetDateTime created,
+      @Param("id") UUID id,
+      Pageable pageable);
+
+  @Query(
+      "select m from Message m where m.topic.id = :topicId"
+          + " and (m.created < :created or (m.created = :created and m.id < :id))"
+          + " order by m.created desc, m.id desc")
+  Slice<Message> findSliceBefore(
+      @Param("topicId") UUID topicId,
+      @Param("created") OffsetDateTime created,
+      @Param("id") UUID id,
+      Pageable pageable);
 }
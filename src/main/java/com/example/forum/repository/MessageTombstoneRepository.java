@@ -0,0 +1,29 @@
+package com.example.forum.repository;
+
+import com.example.forum.entity.MessageTombstone;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface MessageTombstoneRepository extends JpaRepository<MessageTombstone, UUID> {
+
+  @Query(
+      "select t from MessageTombstone t where t.topicId = :topicId"
+          + " and t.changeSequence > :since and t.changeSequence <= :until"
+          + " order by t.changeSequence asc, t.messageId asc")
+  List<MessageTombstone> findChanges(
+      @Param("topicId") UUID topicId,
+      @Param("since") long since,
+      @Param("until") long until,
+      Pageable pageable);
+
+  @Modifying
+  @Query("delete from MessageTombstone t where t.topicId = :topicId")
+  int deleteByTopicId(@Param("topicId") UUID topicId);
+}
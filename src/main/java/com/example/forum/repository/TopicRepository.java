@@ -1,9 +1,93 @@
 package com.example.forum.repository;
 
+import com.example.forum.dto.TopicRevisionDTO;
+import com.example.forum.dto.TopicSummaryDTO;
 import com.example.forum.entity.Topic;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
-public interface TopicRepository extends JpaRepository<Topic, UUID> {}
+public interface TopicRepository extends JpaRepository<Topic, UUID> {
+
+  @Query(
+      value =
+          "select new com.example.forum.dto.TopicSummaryDTO(t.id, t.title, t.created, u.username,"
+              + " t.messageCount, t.lastMessageAt,"
+              + " (select min(substring(f.text, 1, 200)) from Message f where f.topic = t"
+              + " and f.created = (select min(f2.created) from Message f2 where f2.topic = t)))"
+              + " from Topic t left join t.user u",
+      countQuery = "select count(t) from Topic t")
+  Page<TopicSummaryDTO> findSummaries(Pageable pageable);
+
+  @Modifying
+  @Query(
+      "update Topic t set t.messageCount = t.messageCount + :count,"
+          + " t.lastMessageAt = case when t.lastMessageAt is null or t.lastMessageAt < :at"
+          + " then :at else t.lastMessageAt end,"
+          + " t.revision = t.revision + 1, t.modifiedAt = :at"
+          + " where t.id = :topicId")
+  int incrementMessageCount(
+      @Param("topicId") UUID topicId, @Param("count") long count, @Param("at") OffsetDateTime at);
+
+  @Modifying(flushAutomatically = true)
+  @Query(
+      "update Topic t set t.messageCount = t.messageCount - 1,"
+          + " t.lastMessageAt = (select max(m.created) from Message m where m.topic = t),"
+          + " t.revision = t.revision + 1, t.modifiedAt = :at"
+          + " where t.id = :topicId")
+  int decrementMessageCount(@Param("topicId") UUID topicId, @Param("at") OffsetDateTime at);
+
+  @Modifying
+  @Query("update Topic t set t.revision = t.revision + 1, t.modifiedAt = :at where t.id = :topicId")
+  int incrementRevision(@Param("topicId") UUID topicId, @Param("at") OffsetDateTime at);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      "update Topic t set t.title = :title, t.revision = t.revision + 1, t.modifiedAt = :at"
+          + " where t.id = :topicId and t.revision = :revision")
+  int updateTitle(
+      @Param("topicId") UUID topicId,
+      @Param("title") String title,
+      @Param("revision") long revision,
+      @Param("at") OffsetDateTime at);
+
+  @Query(
+      "select new com.example.forum.dto.TopicRevisionDTO(t.revision, t.modifiedAt)"
+          + " from Topic t where t.id = :topicId")
+  Optional<TopicRevisionDTO> findRevision(@Param("topicId") UUID topicId);
+
+  @Modifying(flushAutomatically = true)
+  @Query(
+      "delete from Topic t where t.id = :topicId and t.messageCount <= 0"
+          + " and not exists (select m.id from Message m where m.topic = t)")
+  int deleteIfEmpty(@Param("topicId") UUID topicId);
+
+  @Query("select t.id from Topic t order by t.id")
+  List<UUID> findIds(Pageable pageable);
+
+  @Query("select t.id from Topic t where t.id > :after order by t.id")
+  List<UUID> findIdsAfter(@Param("after") UUID after, Pageable pageable);
+
+  @Transactional
+  @Modifying
+  @Query(
+      "update Topic t set"
+          + " t.messageCount = (select count(m) from Message m where m.topic = t),"
+          + " t.lastMessageAt = (select max(m.created) from Message m where m.topic = t),"
+          + " t.revision = t.revision + 1"
+          + " where t.id in :ids"
+          + " and (t.messageCount <> (select count(m) from Message m where m.topic = t)"
+          + " or t.lastMessageAt is distinct from"
+          + " (select max(m.created) from Message m where m.topic = t))")
+  int repairCounters(@Param("ids") List<UUID> ids);
+}
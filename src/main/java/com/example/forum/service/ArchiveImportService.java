@@ -0,0 +1,555 @@
+package com.example.forum.service;
+
+import com.example.forum.dto.ArchiveRecordDTO;
+import com.example.forum.dto.ImportResultDTO;
+import com.example.forum.entity.ImportCheckpoint;
+import com.example.forum.entity.TimeOrderedUuidGenerator;
+import com.example.forum.entity.User;
+import com.example.forum.exception.BadRequestException;
+import com.example.forum.exception.ConflictException;
+import com.example.forum.repository.ImportCheckpointRepository;
+import com.example.forum.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Statement;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Сервис импорта архивов других форумов в формате NDJSON (см. {@link ArchiveRecordDTO}).
+ *
+ * <p>Импорт устроен как ограниченный конвейер: отдельный поток читает и разбирает строки архива и
+ * складывает их пачками в очередь ограниченной емкости, а вызывающий поток сохраняет пачки. Если
+ * база данных не успевает, разбор останавливается на заполненной очереди, поэтому расход памяти не
+ * зависит от размера архива. Каждая пачка сохраняется одной транзакцией пакетными INSERT без
+ * участия JPA, а счетчики тем обновляются одним UPDATE на тему.
+ *
+ * <p>В той же транзакции записывается контрольная точка задания — номер последней строки пачки.
+ * Повторный запуск с тем же идентификатором задания пропускает уже сохраненные строки без разбора.
+ * Идентификатор темы вычисляется из ее внешнего идентификатора, поэтому сообщения находят тему и
+ * после перезапуска.
+ *
+ * <p>Авторы ищутся по имени через локальный для задания LRU-кэш; отсутствующие пользователи
+ * создаются с паролем, под которым войти нельзя. События об изменениях не публикуются: кэш
+ * затронутых тем сбрасывается в транзакции каждой пачки, а поисковый индекс перестраивается после
+ * импорта.
+ */
+@Service
+public class ArchiveImportService {
+  /** Пароль импортированных пользователей: не является хэшем BCrypt, поэтому вход невозможен. */
+  static final String IMPORTED_PASSWORD = "!imported";
+
+  private static final Logger log = LoggerFactory.getLogger(ArchiveImportService.class);
+  private static final int MAX_JOB_ID_LENGTH = 100;
+  private static final int MAX_COLUMN_LENGTH = 255;
+  private static final int LOGGED_REJECTIONS = 20;
+  private static final String TOPIC_NAMESPACE = "forum-archive-topic:";
+
+  private static final String INSERT_TOPIC =
+      "INSERT INTO topic (id, title, created, modified_at, message_count, revision, user_id)"
+          + " SELECT ?, ?, ?, ?, 0, 0, ? WHERE NOT EXISTS (SELECT 1 FROM topic WHERE id = ?)";
+  private static final String UPDATE_COUNTERS =
+      "UPDATE topic SET message_count = message_count + ?,"
+          + " last_message_at = CASE WHEN last_message_at IS NULL OR last_message_at < ?"
+          + " THEN ? ELSE last_message_at END,"
+          + " revision = revision + 1, modified_at = ? WHERE id = ?";
+  private static final String INSERT_MESSAGE =
+      "INSERT INTO message (id, author, text, created, topic_id, version, change_seq)"
+          + " VALUES (?, ?, ?, ?, ?, 0, ?)";
+  private static final String UPDATE_CHECKPOINT =
+      "UPDATE import_checkpoint SET line_number = ?, updated_at = ? WHERE job_id = ?";
+  private static final String INSERT_CHECKPOINT =
+      "INSERT INTO import_checkpoint (job_id, line_number, updated_at) VALUES (?, ?, ?)";
+
+  private final JdbcTemplate jdbc;
+  private final TransactionTemplate transactionTemplate;
+  private final UserRepository userRepository;
+  private final ImportCheckpointRepository checkpointRepository;
+  private final TopicCache topicCache;
+  private final SearchService searchService;
+  private final ObjectReader reader;
+  private final int batchSize;
+  private final int queueCapacity;
+  private final int userCacheSize;
+  private final boolean rebuildSearchIndex;
+  private final Set<String> runningJobs = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Конструктор сервиса импорта.
+   *
+   * @param jdbc Шаблон JDBC для пакетных вставок.
+   * @param transactionManager Менеджер транзакций; каждая пачка фиксируется отдельно.
+   * @param userRepository Репозиторий пользователей для поиска и создания авторов.
+   * @param checkpointRepository Репозиторий контрольных точек заданий.
+   * @param topicCache Кэш тем, записи которого сбрасываются для затронутых тем.
+   * @param searchService Поисковый сервис, индекс которого перестраивается после импорта.
+   * @param objectMapper Разборщик строк архива.
+   * @param batchSize Количество строк архива в одной пачке и транзакции.
+   * @param queueCapacity Количество разобранных пачек, ожидающих сохранения.
+   * @param userCacheSize Количество авторов в кэше задания.
+   * @param rebuildSearchIndex Перестраивать ли поисковый индекс после импорта.
+   */
+  public ArchiveImportService(
+      JdbcTemplate jdbc,
+      PlatformTransactionManager transactionManager,
+      UserRepository userRepository,
+      ImportCheckpointRepository checkpointRepository,
+      TopicCache topicCache,
+      SearchService searchService,
+      ObjectMapper objectMapper,
+      @Value("${forum.import.batch-size:1000}") int batchSize,
+      @Value("${forum.import.queue-capacity:4}") int queueCapacity,
+      @Value("${forum.import.user-cache-size:10000}") int userCacheSize,
+      @Value("${forum.import.rebuild-search-index:true}") boolean rebuildSearchIndex) {
+    this.jdbc = jdbc;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.userRepository = userRepository;
+    this.checkpointRepository = checkpointRepository;
+    this.topicCache = topicCache;
+    this.searchService = searchService;
+    this.reader = objectMapper.readerFor(ArchiveRecordDTO.class);
+    this.batchSize = batchSize;
+    this.queueCapacity = queueCapacity;
+    this.userCacheSize = userCacheSize;
+    this.rebuildSearchIndex = rebuildSearchIndex;
+  }
+
+  /**
+   * Идентификатор, под которым импортируется тема архива.
+   *
+   * @param externalId Идентификатор темы в архиве.
+   * @return Идентификатор темы на форуме; одинаков для всех запусков импорта.
+   */
+  public static UUID topicId(String externalId) {
+    return UUID.nameUUIDFromBytes((TOPIC_NAMESPACE + externalId).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Импортирует архив, продолжая с контрольной точки задания, если она есть. Строки с ошибками
+   * пропускаются и учитываются в результате; ошибка чтения или базы данных прерывает импорт, и
+   * следующий запуск продолжит его с последней зафиксированной пачки. Поток закрывается, только
+   * если импорт прерван до конца архива; метод возвращает управление после завершения чтения
+   * потока.
+   *
+   * @param jobId Идентификатор задания импорта.
+   * @param in Поток строк архива в UTF-8.
+   * @return Итог текущего запуска.
+   * @throws IOException при ошибке чтения архива.
+   * @throws ConflictException если задание с тем же идентификатором уже выполняется.
+   */
+  public ImportResultDTO importArchive(String jobId, InputStream in) throws IOException {
+    if (jobId == null || jobId.isBlank() || jobId.length() > MAX_JOB_ID_LENGTH) {
+      throw new BadRequestException(
+          "Import job id must be 1 to " + MAX_JOB_ID_LENGTH + " characters long");
+    }
+    if (!runningJobs.add(jobId)) {
+      throw new ConflictException("Import job " + jobId + " is already running");
+    }
+    try {
+      return run(jobId, in);
+    } finally {
+      runningJobs.remove(jobId);
+    }
+  }
+
+  private ImportResultDTO run(String jobId, InputStream in) throws IOException {
+    long started = System.nanoTime();
+    long resumeFrom =
+        checkpointRepository.findById(jobId).map(ImportCheckpoint::getLineNumber).orElse(0L);
+    if (resumeFrom > 0) {
+      log.info("Resuming import job {} after line {}", jobId, resumeFrom);
+    }
+
+    Job job = new Job(jobId, resumeFrom);
+    BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(queueCapacity);
+    Thread parser = new Thread(() -> parse(in, resumeFrom, queue), "archive-import-" + jobId);
+    parser.setDaemon(true);
+    parser.start();
+    boolean parsed = false;
+    try {
+      Chunk chunk;
+      do {
+        chunk = queue.take();
+        if (chunk.failure instanceof IOException e) {
+          throw e;
+        }
+        if (chunk.failure instanceof RuntimeException e) {
+          throw e;
+        }
+        job.rejected += chunk.rejected;
+        if (chunk.lastLine > job.lastLine) {
+          persist(job, chunk);
+        }
+      } while (!chunk.last);
+      parsed = true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Import job " + jobId + " was interrupted", e);
+    } finally {
+      if (!parsed) {
+        stop(parser, in);
+      }
+      awaitTermination(parser);
+    }
+
+    if (rebuildSearchIndex && job.topics + job.messages > 0) {
+      searchService.rebuildIndex();
+    }
+    long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+    log.info(
+        "Import job {} finished at line {}: {} topics, {} messages, {} new users, {} rejected in"
+            + " {} ms",
+        jobId,
+        job.lastLine,
+        job.topics,
+        job.messages,
+        job.createdUsers,
+        job.rejected,
+        duration);
+    return new ImportResultDTO(
+        jobId,
+        resumeFrom,
+        job.lastLine,
+        job.topics,
+        job.messages,
+        job.createdUsers,
+        job.rejected,
+        duration);
+  }
+
+  /**
+   * Останавливает разбор, который больше не нужен. Поток разбора может ждать данных в {@code
+   * readLine()}, что прерыванием не отменяется, поэтому поток архива закрывается.
+   */
+  private static void stop(Thread parser, InputStream in) {
+    parser.interrupt();
+    try {
+      in.close();
+    } catch (IOException e) {
+      log.debug("Failed to close archive stream of {}", parser.getName(), e);
+    }
+  }
+
+  /**
+   * Дожидается завершения потока разбора, чтобы он не читал поток запроса после ответа, когда
+   * контейнер уже может использовать этот поток для другого запроса.
+   */
+  private static void awaitTermination(Thread parser) {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        parser.join();
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Производитель конвейера: читает архив и передает разобранные строки пачками. */
+  private void parse(InputStream in, long resumeFrom, BlockingQueue<Chunk> queue) {
+    BufferedReader lines = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    try {
+      List<ArchiveRecordDTO> records = new ArrayList<>(batchSize);
+      int rejected = 0;
+      long logged = 0;
+      long lineNumber = 0;
+      String line;
+      while ((line = lines.readLine()) != null) {
+        if (++lineNumber <= resumeFrom || line.isBlank()) {
+          continue;
+        }
+        String reason;
+        try {
+          ArchiveRecordDTO record = reader.readValue(line);
+          reason = rejectionReason(record);
+          if (reason == null) {
+            records.add(record);
+          }
+        } catch (JsonProcessingException e) {
+          reason = "Malformed JSON: " + e.getOriginalMessage();
+        }
+        if (reason != null) {
+          rejected++;
+          if (logged++ < LOGGED_REJECTIONS) {
+            log.warn("Rejected archive line {}: {}", lineNumber, reason);
+          }
+        }
+        if (records.size() + rejected >= batchSize) {
+          queue.put(new Chunk(records, rejected, lineNumber, false));
+          records = new ArrayList<>(batchSize);
+          rejected = 0;
+        }
+        if (Thread.currentThread().isInterrupted()) {
+          return;
+        }
+      }
+      queue.put(new Chunk(records, rejected, lineNumber, true));
+    } catch (InterruptedException e) {
+      // Сохранение прервано, и пачки больше никто не ждет.
+    } catch (IOException | RuntimeException e) {
+      try {
+        queue.put(Chunk.failed(e));
+      } catch (InterruptedException ignored) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private static String rejectionReason(ArchiveRecordDTO record) {
+    if (record == null) {
+      return "Empty record";
+    }
+    if (isBlank(record.getAuthor()) || record.getAuthor().length() > MAX_COLUMN_LENGTH) {
+      return "Author must be provided and at most " + MAX_COLUMN_LENGTH + " characters long";
+    }
+    if (ArchiveRecordDTO.TOPIC.equals(record.getType())) {
+      if (isBlank(record.getId())) {
+        return "Topic id must be provided";
+      }
+      if (isBlank(record.getTitle()) || record.getTitle().length() > MAX_COLUMN_LENGTH) {
+        return "Topic title must be provided and at most " + MAX_COLUMN_LENGTH + " characters long";
+      }
+      return null;
+    }
+    if (ArchiveRecordDTO.MESSAGE.equals(record.getType())) {
+      if (isBlank(record.getTopic())) {
+        return "Message topic must be provided";
+      }
+      if (record.getText() == null || record.getText().length() > MAX_COLUMN_LENGTH) {
+        return "Message text must be provided and at most "
+            + MAX_COLUMN_LENGTH
+            + " characters long";
+      }
+      return null;
+    }
+    return "Unknown record type: " + record.getType();
+  }
+
+  private static boolean isBlank(String value) {
+    return value == null || value.isBlank();
+  }
+
+  /** Потребитель конвейера: сохраняет пачку и контрольную точку одной транзакцией. */
+  private void persist(Job job, Chunk chunk) {
+    int[] counts =
+        transactionTemplate.execute(
+            status -> {
+              Set<UUID> touched = new HashSet<>();
+              OffsetDateTime now = OffsetDateTime.now().truncatedTo(ChronoUnit.MICROS);
+              List<Object[]> topicRows = new ArrayList<>();
+              Map<UUID, List<ArchiveRecordDTO>> messagesByTopic = new TreeMap<>();
+              for (ArchiveRecordDTO record : chunk.records) {
+                Long userId = job.resolveAuthor(record.getAuthor());
+                if (ArchiveRecordDTO.TOPIC.equals(record.getType())) {
+                  UUID topicId = topicId(record.getId());
+                  OffsetDateTime created = createdOrNow(record, now);
+                  topicRows.add(
+                      new Object[] {topicId, record.getTitle(), created, created, userId, topicId});
+                  touched.add(topicId);
+                } else {
+                  messagesByTopic
+                      .computeIfAbsent(topicId(record.getTopic()), id -> new ArrayList<>())
+                      .add(record);
+                }
+              }
+              int topics = successful(jdbc.batchUpdate(INSERT_TOPIC, topicRows));
+
+              // Счетчики тем обновляются в порядке идентификаторов, как и при пакетной загрузке
+              // сообщений. UPDATE ничего не меняет, если темы нет: ее сообщения отклоняются.
+              List<UUID> topicIds = new ArrayList<>(messagesByTopic.keySet());
+              List<Object[]> counterRows = new ArrayList<>(topicIds.size());
+              for (UUID topicId : topicIds) {
+                List<ArchiveRecordDTO> messages = messagesByTopic.get(topicId);
+                OffsetDateTime last = null;
+                for (ArchiveRecordDTO message : messages) {
+                  OffsetDateTime created = createdOrNow(message, now);
+                  last = last == null || created.isAfter(last) ? created : last;
+                }
+                counterRows.add(new Object[] {messages.size(), last, last, now, topicId});
+              }
+              int[] updated = jdbc.batchUpdate(UPDATE_COUNTERS, counterRows);
+              Map<UUID, Long> revisions = revisions(topicIds, updated);
+
+              List<Object[]> messageRows = new ArrayList<>();
+              int rejected = 0;
+              for (UUID topicId : topicIds) {
+                List<ArchiveRecordDTO> messages = messagesByTopic.get(topicId);
+                Long revision = revisions.get(topicId);
+                if (revision == null) {
+                  rejected += messages.size();
+                  continue;
+                }
+                touched.add(topicId);
+                for (ArchiveRecordDTO message : messages) {
+                  messageRows.add(
+                      new Object[] {
+                        TimeOrderedUuidGenerator.next(),
+                        message.getAuthor(),
+                        message.getText(),
+                        createdOrNow(message, now),
+                        topicId,
+                        revision
+                      });
+                }
+              }
+              int messages = successful(jdbc.batchUpdate(INSERT_MESSAGE, messageRows));
+
+              if (jdbc.update(UPDATE_CHECKPOINT, chunk.lastLine, now, job.jobId) == 0) {
+                jdbc.update(INSERT_CHECKPOINT, job.jobId, chunk.lastLine, now);
+              }
+              // Сброс внутри транзакции: до ее завершения чтения затронутых тем идут мимо кэша.
+              touched.forEach(topicCache::invalidate);
+              return new int[] {topics, messages, rejected};
+            });
+
+    job.topics += counts[0];
+    job.messages += counts[1];
+    job.rejected += counts[2];
+    if (counts[2] > 0) {
+      log.warn("Rejected {} messages of unknown topics before line {}", counts[2], chunk.lastLine);
+    }
+    job.lastLine = chunk.lastLine;
+  }
+
+  /** Ревизии тем, счетчики которых обновлены: номер изменения для импортированных сообщений. */
+  private Map<UUID, Long> revisions(List<UUID> topicIds, int[] updated) {
+    List<UUID> existing = new ArrayList<>(topicIds.size());
+    for (int i = 0; i < topicIds.size(); i++) {
+      if (updated[i] != 0) {
+        existing.add(topicIds.get(i));
+      }
+    }
+    if (existing.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    Map<UUID, Long> revisions = new HashMap<>();
+    jdbc.query(
+        "SELECT id, revision FROM topic WHERE id IN ("
+            + String.join(", ", Collections.nCopies(existing.size(), "?"))
+            + ")",
+        (RowCallbackHandler) rs -> revisions.put(rs.getObject(1, UUID.class), rs.getLong(2)),
+        existing.toArray());
+    return revisions;
+  }
+
+  private static OffsetDateTime createdOrNow(ArchiveRecordDTO record, OffsetDateTime now) {
+    return record.getCreated() != null ? record.getCreated().truncatedTo(ChronoUnit.MICROS) : now;
+  }
+
+  /** Количество вставленных строк; драйвер может не сообщать счетчики пакета. */
+  private static int successful(int[] counts) {
+    int total = 0;
+    for (int count : counts) {
+      if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+        total++;
+      }
+    }
+    return total;
+  }
+
+  /** Пачка разобранных строк архива, последняя пачка или ошибка чтения. */
+  private static class Chunk {
+    private final List<ArchiveRecordDTO> records;
+    private final int rejected;
+    private final long lastLine;
+    private final boolean last;
+    private final Exception failure;
+
+    Chunk(List<ArchiveRecordDTO> records, int rejected, long lastLine, boolean last) {
+      this(records, rejected, lastLine, last, null);
+    }
+
+    private Chunk(
+        List<ArchiveRecordDTO> records,
+        int rejected,
+        long lastLine,
+        boolean last,
+        Exception failure) {
+      this.records = records;
+      this.rejected = rejected;
+      this.lastLine = lastLine;
+      this.last = last;
+      this.failure = failure;
+    }
+
+    static Chunk failed(Exception failure) {
+      return new Chunk(List.of(), 0, 0, true, failure);
+    }
+  }
+
+  /** Состояние одного запуска импорта: счетчики и кэш авторов. */
+  private class Job {
+    private final String jobId;
+    private final Map<String, Long> authors;
+    private long lastLine;
+    private long topics;
+    private long messages;
+    private long createdUsers;
+    private long rejected;
+
+    Job(String jobId, long resumeFrom) {
+      this.jobId = jobId;
+      this.lastLine = resumeFrom;
+      this.authors =
+          new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+              return size() > userCacheSize;
+            }
+          };
+    }
+
+    /** Идентификатор автора; отсутствующий пользователь создается. */
+    Long resolveAuthor(String username) {
+      Long userId = authors.get(username);
+      if (userId == null) {
+        userId =
+            userRepository
+                .findByUsername(username)
+                .map(User::getId)
+                .orElseGet(
+                    () -> {
+                      User user = new User();
+                      user.setUsername(username);
+                      user.setPassword(IMPORTED_PASSWORD);
+                      createdUsers++;
+                      return userRepository.save(user).getId();
+                    });
+        authors.put(username, userId);
+      }
+      return userId;
+    }
+  }
+}
@@ -1,34 +1,91 @@
 package com.example.forum.service;
 
+import com.example.forum.config.ReadWriteRoutingDataSource;
+import com.example.forum.dto.CursorPageDTO;
+import com.example.forum.dto.MessageBatchItemDTO;
+import com.example.forum.dto.MessageBatchResultDTO;
+import com.example.forum.dto.MessageCursor;
+import com.example.forum.dto.TopicChangesDTO;
 import com.example.forum.dto.TopicDTO;
+import com.example.forum.dto.TopicRevisionDTO;
+import com.example.forum.dto.TopicSummaryDTO;
 import com.example.forum.entity.Message;
+import com.example.forum.entity.MessageTombstone;
 import com.example.forum.entity.Topic;
 import com.example.forum.entity.User;
+import com.example.forum.event.MessageChangedEvent;
+import com.example.forum.event.TopicChangedEvent;
+import com.example.forum.exception.BadRequestException;
+import com.example.forum.exception.ConflictException;
 import com.example.forum.exception.NotAuthorizedException;
+import com.example.forum.exception.PreconditionFailedException;
 import com.example.forum.repository.MessageRepository;
+import com.example.forum.repository.MessageTombstoneRepository;
 import com.example.forum.repository.TopicRepository;
 import com.example.forum.repository.UserRepository;
-import jakarta.transaction.Transactional;
+import io.micrometer.core.annotation.Timed;
 import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Класс сервиса для управления темами и сообщениями форума. Предоставляет функциональность для
- * создания, обновления, получения и удаления тем и сообщений на форуме.
+ * создания, обновления, получения и удаления тем и сообщений на форуме. Каждое изменение
+ * публикуется как {@link TopicChangedEvent} или {@link MessageChangedEvent}.
+ *
+ * <p>Методы чтения выполняются в транзакциях только для чтения: Hibernate не делает снимков
+ * загруженных сущностей и не проверяет их изменения при завершении, а соединение для такой
+ * транзакции берется из пула реплики (см. {@link ReadWriteRoutingDataSource}). Реплика может
+ * отставать, поэтому списки тем и их краткие сведения, срезы сообщений по курсору, изменения темы и
+ * выгрузка сообщений могут не содержать только что зафиксированных изменений. Исключения — {@link
+ * #getTopicById}, {@link #getTopicMessage} и {@link #getTopicRevision}: они заполняют {@link
+ * TopicCache}, отвечают на условные запросы и возвращают тему сразу после записи, поэтому остаются
+ * только для чтения, но берут соединение основной базы данных (см. {@link
+ * ReadWriteRoutingDataSource#onPrimary}). Иначе промах кэша после фиксации записи закэшировал бы
+ * отстающее состояние под новым поколением до истечения времени жизни записи.
+ *
+ * <p>Время выполнения публичных методов публикуется таймером {@code forum.service} с тегом метода.
  */
 @Service
+@Timed(value = "forum.service", histogram = true)
 public class ForumService {
 
+  private static final int MAX_CURSOR_PAGE_SIZE = 100;
+
+  private static final int MAX_BATCH_SIZE = 500;
+
+  private static final int MAX_CHANGES_PAGE_SIZE = 1000;
+
   @Autowired private UserRepository userRepository;
 
   @Autowired private TopicRepository topicRepository;
 
   @Autowired private MessageRepository messageRepository;
 
+  @Autowired private MessageTombstoneRepository messageTombstoneRepository;
+
+  @Autowired private ApplicationEventPublisher eventPublisher;
+
+  @Autowired private TopicCache topicCache;
+
   /**
    * Создает новую тему на основе предоставленного DTO темы, включая начальное сообщение.
    *
@@ -49,6 +106,7 @@ public class ForumService {
     Topic topic = new Topic();
     topic.setTitle(topicDto.getTopicName());
     topic.setCreated(OffsetDateTime.now());
+    topic.setModifiedAt(topic.getCreated());
     topic.setUser(user);
 
     Message message = new Message();
@@ -61,8 +119,15 @@ public class ForumService {
     message.setTopic(topic);
 
     topic.getMessages().add(message);
+    topic.setMessageCount(1);
+    topic.setLastMessageAt(message.getCreated());
 
     topic = topicRepository.save(topic);
+    eventPublisher.publishEvent(TopicChangedEvent.saved(topic.getId(), topic.getTitle()));
+    for (Message saved : topic.getMessages()) {
+      eventPublisher.publishEvent(
+          MessageChangedEvent.saved(saved.getId(), topic.getId(), saved.getText()));
+    }
     return topic;
   }
 
@@ -71,19 +136,37 @@ public class ForumService {
    *
    * @return Список всех тем.
    */
-  @Transactional
+  @Transactional(readOnly = true)
   public Page<Topic> getAllTopics(Pageable pageable) {
     return topicRepository.findAll(pageable);
   }
 
   /**
-   * Обновляет тему на основе предоставленного DTO темы.
+   * Получает краткие сведения о темах: автора, количество сообщений, время последней активности и
+   * фрагмент первого сообщения. Количество сообщений и время последней активности берутся из
+   * счетчиков темы, поэтому сообщения не загружаются и не агрегируются.
+   *
+   * @param pageable Параметры пагинации и сортировки.
+   * @return Страница кратких сведений о темах.
+   */
+  @Transactional(readOnly = true)
+  public Page<TopicSummaryDTO> getTopicSummaries(Pageable pageable) {
+    return topicRepository.findSummaries(pageable);
+  }
+
+  /**
+   * Обновляет тему на основе предоставленного DTO темы. Заголовок изменяется одним UPDATE-запросом
+   * с проверкой ревизии, прочитанной при загрузке темы, поэтому параллельное изменение темы не
+   * перезаписывается молча.
    *
    * @param topicDto DTO темы, содержащее обновленные данные.
+   * @param expectedRevision Ревизия темы, известная клиенту (из If-Match), или {@code null}.
    * @return Обновленная сущность темы.
+   * @throws PreconditionFailedException если ревизия темы не совпадает с ожидаемой.
+   * @throws ConflictException если тема изменилась между загрузкой и обновлением.
    */
   @Transactional
-  public Topic updateTopic(TopicDTO topicDto, Long userId) {
+  public Topic updateTopic(TopicDTO topicDto, Long userId, Long expectedRevision) {
     UUID topicId = topicDto.getId();
     Topic topic =
         topicRepository
@@ -95,32 +178,72 @@ public class ForumService {
             .findById(userId)
             .orElseThrow(() -> new NotAuthorizedException("User not found"));
 
-    if (!topic.getUser().getId().equals(user.getId()) && !user.getUsername().equals("admin")) {
+    if (!topic.getUser().getId().equals(user.getId()) && !"admin".equals(user.getUsername())) {
       throw new NotAuthorizedException("Only the author can update the topic");
     }
 
-    if (topicDto.getTopicName() != null) {
-      topic.setTitle(topicDto.getTopicName());
+    checkVersion(expectedRevision, topic.getRevision());
+    if (topicDto.getTopicName() == null) {
+      return topic;
     }
 
-    return topicRepository.save(topic);
+    if (topicRepository.updateTitle(
+            topicId, topicDto.getTopicName(), topic.getRevision(), OffsetDateTime.now())
+        == 0) {
+      throw new ConflictException("Topic was modified concurrently");
+    }
+    eventPublisher.publishEvent(TopicChangedEvent.saved(topicId, topicDto.getTopicName()));
+    return topicRepository
+        .findById(topicId)
+        .orElseThrow(() -> new ConflictException("Topic was deleted concurrently"));
   }
 
   /**
-   * Получает тему по ее идентификатору.
+   * Получает тему по ее идентификатору. Тема загружается вместе с сообщениями и кэшируется в {@link
+   * TopicCache} до ее следующего изменения.
    *
    * @param topicId Идентификатор темы.
    * @return Сущность темы.
    */
-  @Transactional
+  @Transactional(readOnly = true)
   public Topic getTopicById(UUID topicId) {
+    return ReadWriteRoutingDataSource.onPrimary(
+        () ->
+            topicCache.getTopic(
+                topicId,
+                () -> {
+                  Topic topic =
+                      topicRepository
+                          .findById(topicId)
+                          .orElseThrow(() -> new NotAuthorizedException("Topic not found"));
+                  Hibernate.initialize(topic.getMessages());
+                  return topic;
+                }));
+  }
+
+  /**
+   * Получает ревизию темы и время ее последнего изменения одним запросом к строке темы, не загружая
+   * сообщения. Используется для ответа на условные запросы.
+   *
+   * @param topicId Идентификатор темы.
+   * @return Ревизия и время последнего изменения темы.
+   */
+  @Transactional(readOnly = true)
+  public TopicRevisionDTO getTopicRevision(UUID topicId) {
+    return ReadWriteRoutingDataSource.onPrimary(() -> findRevision(topicId));
+  }
+
+  private TopicRevisionDTO findRevision(UUID topicId) {
     return topicRepository
-        .findById(topicId)
+        .findRevision(topicId)
         .orElseThrow(() -> new NotAuthorizedException("Topic not found"));
   }
 
   /**
-   * Добавляет сообщение в тему.
+   * Добавляет сообщение в тему. Сообщение вставляется напрямую со ссылкой на тему: коллекция
+   * сообщений темы не инициализируется, а сама тема не сливается обратно в контекст, поэтому
+   * стоимость добавления не зависит от размера темы. Счетчик сообщений темы увеличивается одним
+   * UPDATE-запросом, который заодно проверяет существование темы.
    *
    * @param topicId Идентификатор темы, в которую добавляется сообщение.
    * @param message Сообщение для добавления.
@@ -134,16 +257,120 @@ public class ForumService {
             .findById(userId)
             .orElseThrow(() -> new NotAuthorizedException("User not found"));
 
-    Topic topic =
-        topicRepository
-            .findById(topicId)
-            .orElseThrow(() -> new NotAuthorizedException("Topic not found"));
+    OffsetDateTime created = OffsetDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    if (topicRepository.incrementMessageCount(topicId, 1, created) == 0) {
+      throw new NotAuthorizedException("Topic not found");
+    }
 
-    message.setAuthor(user.getUsername());
-    message.setTopic(topic);
-    message.setCreated(OffsetDateTime.now());
-    topic.getMessages().add(message);
-    topicRepository.save(topic);
+    Message prepared = prepareMessage(message, topicId, user.getUsername(), created);
+    prepared.setChangeSequence(currentChangeSequence(topicId));
+    Message saved = messageRepository.save(prepared);
+    eventPublisher.publishEvent(MessageChangedEvent.saved(saved.getId(), topicId, saved.getText()));
+    return saved;
+  }
+
+  /**
+   * Добавляет пакет сообщений в одну или несколько тем в одной транзакции. Пользователь загружается
+   * один раз, счетчик каждой темы увеличивается одним UPDATE-запросом на весь пакет, а сами
+   * сообщения вставляются пакетами JDBC. Некорректные элементы и элементы для несуществующих тем
+   * отклоняются, не прерывая сохранение остальных.
+   *
+   * @param items Сообщения для добавления.
+   * @param userId Идентификатор пользователя.
+   * @return Результаты обработки в порядке элементов запроса.
+   */
+  @Transactional
+  public List<MessageBatchResultDTO> addMessages(List<MessageBatchItemDTO> items, Long userId) {
+    if (items == null || items.isEmpty()) {
+      throw new BadRequestException("At least one message must be provided");
+    }
+    if (items.size() > MAX_BATCH_SIZE) {
+      throw new BadRequestException(
+          "At most " + MAX_BATCH_SIZE + " messages may be added in one batch");
+    }
+    User user =
+        userRepository
+            .findById(userId)
+            .orElseThrow(() -> new NotAuthorizedException("User not found"));
+
+    // Время создания строго возрастает внутри пакета, чтобы сохранить порядок сообщений темы.
+    OffsetDateTime[] created = new OffsetDateTime[items.size()];
+    Map<UUID, Long> counts = new TreeMap<>();
+    Map<UUID, OffsetDateTime> lastCreated = new HashMap<>();
+    OffsetDateTime previous = null;
+    for (int i = 0; i < items.size(); i++) {
+      MessageBatchItemDTO item = items.get(i);
+      if (rejectionReason(item) != null) {
+        continue;
+      }
+      OffsetDateTime now = OffsetDateTime.now().truncatedTo(ChronoUnit.MICROS);
+      previous =
+          previous != null && !now.isAfter(previous) ? previous.plus(1, ChronoUnit.MICROS) : now;
+      created[i] = previous;
+      counts.merge(item.getTopicId(), 1L, Long::sum);
+      lastCreated.put(item.getTopicId(), previous);
+    }
+
+    // Темы обновляются в порядке идентификаторов, чтобы параллельные пакеты не взаимоблокировались.
+    // Все сообщения пакета в одной теме получают один номер изменения.
+    Map<UUID, Long> changeSequences = new HashMap<>();
+    for (Map.Entry<UUID, Long> entry : counts.entrySet()) {
+      UUID topicId = entry.getKey();
+      if (topicRepository.incrementMessageCount(topicId, entry.getValue(), lastCreated.get(topicId))
+          > 0) {
+        changeSequences.put(topicId, currentChangeSequence(topicId));
+      }
+    }
+
+    Message[] messages = new Message[items.size()];
+    for (int i = 0; i < items.size(); i++) {
+      MessageBatchItemDTO item = items.get(i);
+      if (created[i] != null && changeSequences.containsKey(item.getTopicId())) {
+        Message message = new Message();
+        message.setText(item.getText());
+        message.setChangeSequence(changeSequences.get(item.getTopicId()));
+        messages[i] = prepareMessage(message, item.getTopicId(), user.getUsername(), created[i]);
+      }
+    }
+    messageRepository.saveAll(
+        Arrays.stream(messages).filter(Objects::nonNull).collect(Collectors.toList()));
+
+    List<MessageBatchResultDTO> results = new ArrayList<>(items.size());
+    for (int i = 0; i < items.size(); i++) {
+      MessageBatchItemDTO item = items.get(i);
+      UUID topicId = item != null ? item.getTopicId() : null;
+      if (messages[i] != null) {
+        eventPublisher.publishEvent(
+            MessageChangedEvent.saved(messages[i].getId(), topicId, messages[i].getText()));
+        results.add(
+            MessageBatchResultDTO.created(
+                i, topicId, messages[i].getId(), messages[i].getCreated()));
+      } else {
+        String reason = rejectionReason(item);
+        results.add(
+            MessageBatchResultDTO.rejected(
+                i, topicId, reason != null ? reason : "Topic not found"));
+      }
+    }
+    return results;
+  }
+
+  private static String rejectionReason(MessageBatchItemDTO item) {
+    if (item == null || item.getTopicId() == null) {
+      return "Topic id must be provided";
+    }
+    if (item.getText() == null) {
+      return "Message text must be provided";
+    }
+    return null;
+  }
+
+  private Message prepareMessage(
+      Message message, UUID topicId, String author, OffsetDateTime created) {
+    message.setId(null);
+    message.setAuthor(author);
+    message.setTopic(topicRepository.getReferenceById(topicId));
+    message.setCreated(created);
     return message;
   }
 
@@ -152,14 +379,35 @@ public class ForumService {
    *
    * @param topicId Идентификатор темы, в которой находится сообщение.
    * @param messageDetails Детали сообщения для обновления.
+   * @param expectedVersion Версия сообщения, известная клиенту (из If-Match), или {@code null}.
    * @return Тема, в которой было обновлено сообщение.
    */
   @Transactional
-  public Topic updateMessageInTopic(UUID topicId, Message messageDetails, Long userId) {
-    Topic topic =
-        topicRepository
-            .findById(topicId)
-            .orElseThrow(() -> new NotAuthorizedException("Topic not found"));
+  public Topic updateMessageInTopic(
+      UUID topicId, Message messageDetails, Long userId, Long expectedVersion) {
+    updateMessage(topicId, messageDetails, userId, expectedVersion);
+    return topicRepository
+        .findById(topicId)
+        .orElseThrow(() -> new NotAuthorizedException("Topic not found"));
+  }
+
+  /**
+   * Обновляет сообщение в теме без загрузки самой темы. Сначала увеличивается ревизия темы, которая
+   * становится новым номером изменения сообщения для синхронизации. Затем текст, версия и номер
+   * изменения записываются одним UPDATE-запросом с проверкой версии, прочитанной при загрузке
+   * сообщения, вместо слияния сущности.
+   *
+   * @param topicId Идентификатор темы, в которой находится сообщение.
+   * @param messageDetails Детали сообщения для обновления.
+   * @param userId Идентификатор пользователя.
+   * @param expectedVersion Версия сообщения, известная клиенту (из If-Match), или {@code null}.
+   * @return Обновленное сообщение.
+   * @throws PreconditionFailedException если версия сообщения не совпадает с ожидаемой.
+   * @throws ConflictException если сообщение изменилось между загрузкой и обновлением.
+   */
+  @Transactional
+  public Message updateMessage(
+      UUID topicId, Message messageDetails, Long userId, Long expectedVersion) {
     UUID messageId = messageDetails.getId();
     Message messageToUpdate =
         messageRepository
@@ -176,17 +424,41 @@ public class ForumService {
             .orElseThrow(() -> new NotAuthorizedException("User not found"));
 
     if (!messageToUpdate.getAuthor().equals(user.getUsername())
-        && !user.getUsername().equals("admin")) {
+        && !"admin".equals(user.getUsername())) {
       throw new NotAuthorizedException("Only the author can update the message");
     }
 
+    checkVersion(expectedVersion, messageToUpdate.getVersion());
+    topicRepository.incrementRevision(topicId, OffsetDateTime.now());
+    long changeSequence = currentChangeSequence(topicId);
+    // Исключение откатывает транзакцию вместе с увеличенной ревизией темы.
+    if (messageRepository.updateText(
+            messageId, messageDetails.getText(), messageToUpdate.getVersion(), changeSequence)
+        == 0) {
+      throw new ConflictException("Message was modified concurrently");
+    }
+
+    // UPDATE-запрос очистил контекст персистентности, поэтому сообщение уже отсоединено и его можно
+    // привести к сохраненному состоянию без повторной записи.
     messageToUpdate.setText(messageDetails.getText());
-    messageRepository.save(messageToUpdate);
-    return topic;
+    messageToUpdate.setVersion(messageToUpdate.getVersion() + 1);
+    messageToUpdate.setChangeSequence(changeSequence);
+    eventPublisher.publishEvent(
+        MessageChangedEvent.saved(messageId, topicId, messageToUpdate.getText()));
+    return messageToUpdate;
+  }
+
+  private static void checkVersion(Long expected, long actual) {
+    if (expected != null && expected != actual) {
+      throw new PreconditionFailedException(
+          "Expected version " + expected + " but the current version is " + actual);
+    }
   }
 
   /**
-   * Удаляет сообщение по его идентификатору.
+   * Удаляет сообщение по его идентификатору. Счетчик сообщений темы уменьшается одним
+   * UPDATE-запросом, а удаление записывается отметкой с новым номером изменения темы для клиентов
+   * синхронизации. Тема удаляется вместе с отметками, если в ней не осталось сообщений.
    *
    * @param messageId Идентификатор удаляемого сообщения.
    */
@@ -202,26 +474,162 @@ public class ForumService {
             .findById(userId)
             .orElseThrow(() -> new NotAuthorizedException("User not found"));
 
-    if (!message.getAuthor().equals(user.getUsername()) && !user.getUsername().equals("admin")) {
+    if (!message.getAuthor().equals(user.getUsername()) && !"admin".equals(user.getUsername())) {
       throw new NotAuthorizedException("Only the author can delete the message");
     }
 
     UUID topicId = message.getTopic().getId();
     messageRepository.delete(message);
-    if (messageRepository.countByTopicId(topicId) == 0) {
-      topicRepository.deleteById(topicId);
+    OffsetDateTime now = OffsetDateTime.now();
+    topicRepository.decrementMessageCount(topicId, now);
+    messageTombstoneRepository.save(
+        new MessageTombstone(messageId, topicId, currentChangeSequence(topicId), now));
+    eventPublisher.publishEvent(MessageChangedEvent.deleted(messageId, topicId));
+    if (topicRepository.deleteIfEmpty(topicId) > 0) {
+      messageTombstoneRepository.deleteByTopicId(topicId);
+      eventPublisher.publishEvent(TopicChangedEvent.deleted(topicId));
     }
   }
 
   /**
-   * Пагинированный запрос сообщений по идентификатору темы.
+   * Пагинированный запрос сообщений по идентификатору темы. Первые страницы кэшируются в {@link
+   * TopicCache} до следующего изменения темы.
    *
    * @param topicId Идентификатор темы, для которой требуются сообщения, в формате UUID.
    * @param pageable Параметры для пагинации и сортировки результатов.
    * @return Страница с сообщениями темы, включающая в себя данные о сообщениях и информацию о
    *     пагинации.
    */
+  @Transactional(readOnly = true)
   public Page<Message> getTopicMessage(UUID topicId, Pageable pageable) {
-    return messageRepository.findByTopicId(topicId, pageable);
+    return ReadWriteRoutingDataSource.onPrimary(
+        () ->
+            topicCache.getMessages(
+                topicId, pageable, () -> messageRepository.findByTopicId(topicId, pageable)));
+  }
+
+  /**
+   * Запрос сообщений темы по курсору (keyset-пагинация). Сообщения упорядочены по {@code (created,
+   * id)}, поэтому стоимость запроса не зависит от глубины страницы, а общее количество сообщений не
+   * подсчитывается.
+   *
+   * @param topicId Идентификатор темы.
+   * @param after Курсор, после которого нужно вернуть сообщения, или {@code null}.
+   * @param before Курсор, до которого нужно вернуть сообщения, или {@code null}.
+   * @param size Максимальное количество сообщений в срезе.
+   * @return Срез сообщений с курсорами на соседние срезы.
+   */
+  @Transactional(readOnly = true)
+  public CursorPageDTO<Message> getTopicMessagesByCursor(
+      UUID topicId, String after, String before, int size) {
+    if (after != null && before != null) {
+      throw new BadRequestException("Only one of 'after' and 'before' may be specified");
+    }
+    Pageable limit = PageRequest.of(0, Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE)));
+
+    if (before != null) {
+      MessageCursor cursor = MessageCursor.decode(before);
+      Slice<Message> slice =
+          messageRepository.findSliceBefore(topicId, cursor.getCreated(), cursor.getId(), limit);
+      List<Message> content = new ArrayList<>(slice.getContent());
+      Collections.reverse(content);
+      String previous = slice.hasNext() ? MessageCursor.of(content.get(0)).encode() : null;
+      String next =
+          content.isEmpty() ? null : MessageCursor.of(content.get(content.size() - 1)).encode();
+      return new CursorPageDTO<>(content, next, previous);
+    }
+
+    Slice<Message> slice;
+    if (after != null) {
+      MessageCursor cursor = MessageCursor.decode(after);
+      slice = messageRepository.findSliceAfter(topicId, cursor.getCreated(), cursor.getId(), limit);
+    } else {
+      slice = messageRepository.findFirstSliceByTopicId(topicId, limit);
+    }
+    List<Message> content = slice.getContent();
+    String next =
+        slice.hasNext() ? MessageCursor.of(content.get(content.size() - 1)).encode() : null;
+    String previous =
+        after != null && !content.isEmpty() ? MessageCursor.of(content.get(0)).encode() : null;
+    return new CursorPageDTO<>(content, next, previous);
+  }
+
+  /**
+   * Возвращает изменения сообщений темы после маркера синхронизации: добавленные и измененные
+   * сообщения и идентификаторы удаленных. Каждое изменение помечено номером изменения темы (ее
+   * ревизией после записи), поэтому стоимость запроса пропорциональна количеству изменений, а не
+   * размеру темы. Изменения одного номера (пакетное добавление) не разделяются между ответами.
+   *
+   * @param topicId Идентификатор темы.
+   * @param syncToken Маркер из предыдущего ответа или {@code null} для полной синхронизации.
+   * @param limit Желаемое максимальное количество изменений в ответе (не более 1000).
+   * @return Изменения и новый маркер синхронизации.
+   * @throws BadRequestException если маркер некорректен или новее текущей ревизии темы.
+   */
+  @Transactional(readOnly = true)
+  public TopicChangesDTO getTopicChanges(UUID topicId, String syncToken, int limit) {
+    long until = findRevision(topicId).getRevision();
+    long since = parseSyncToken(syncToken);
+    if (since > until) {
+      throw new BadRequestException("Sync token is newer than the topic");
+    }
+    int size = Math.max(1, Math.min(limit, MAX_CHANGES_PAGE_SIZE));
+    Pageable page = PageRequest.of(0, size + 1);
+    List<Message> messages =
+        new ArrayList<>(messageRepository.findChanges(topicId, since, until, page));
+    List<MessageTombstone> tombstones =
+        new ArrayList<>(messageTombstoneRepository.findChanges(topicId, since, until, page));
+
+    long syncedUntil = until;
+    if (messages.size() + tombstones.size() > size) {
+      // Номер первого изменения, не поместившегося в ответ: ответ заканчивается перед ним.
+      long[] sequences = new long[messages.size() + tombstones.size()];
+      int n = 0;
+      for (Message message : messages) {
+        sequences[n++] = message.getChangeSequence();
+      }
+      for (MessageTombstone tombstone : tombstones) {
+        sequences[n++] = tombstone.getChangeSequence();
+      }
+      Arrays.sort(sequences);
+      long firstExcluded = sequences[size];
+      syncedUntil = firstExcluded - 1;
+      if (syncedUntil <= since) {
+        // Одно изменение содержит больше сообщений, чем помещается в ответ; отдаем его целиком.
+        syncedUntil = firstExcluded;
+        messages =
+            new ArrayList<>(
+                messageRepository.findChanges(topicId, since, syncedUntil, Pageable.unpaged()));
+      }
+      long bound = syncedUntil;
+      messages.removeIf(message -> message.getChangeSequence() > bound);
+      tombstones.removeIf(tombstone -> tombstone.getChangeSequence() > bound);
+    }
+
+    List<UUID> deleted = new ArrayList<>(tombstones.size());
+    for (MessageTombstone tombstone : tombstones) {
+      deleted.add(tombstone.getMessageId());
+    }
+    return new TopicChangesDTO(messages, deleted, Long.toString(syncedUntil), syncedUntil < until);
+  }
+
+  /** Возвращает ревизию темы, только что увеличенную в текущей транзакции, как номер изменения. */
+  private long currentChangeSequence(UUID topicId) {
+    return findRevision(topicId).getRevision();
+  }
+
+  private static long parseSyncToken(String syncToken) {
+    if (syncToken == null || syncToken.isBlank()) {
+      return -1;
+    }
+    try {
+      long since = Long.parseLong(syncToken.trim());
+      if (since < 0) {
+        throw new BadRequestException("Invalid sync token");
+      }
+      return since;
+    } catch (NumberFormatException e) {
+      throw new BadRequestException("Invalid sync token");
+    }
   }
 }
@@ -0,0 +1,346 @@
+package com.example.forum.service;
+
+import com.example.forum.dto.SearchHitDTO;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Инвертированный индекс заголовков тем и текстов сообщений с ранжированием BM25. Документы
+ * нумеруются в порядке добавления, поэтому списки вхождений терма хранятся как отсортированные
+ * массивы {@code int} номеров документов и частот без упаковки в объекты, а запрос обходит их
+ * слиянием, удерживая в куче только лучшие {@code limit} результатов.
+ *
+ * <p>Изменение документа добавляет его новую версию и помечает старую удаленной. Удаленные версии
+ * пропускаются при поиске и вычищаются уплотнением, когда их становится больше, чем живых
+ * документов. Чтение выполняется под общей блокировкой, изменения — под исключительной.
+ */
+class InvertedIndex {
+  static final double K1 = 1.2;
+  static final double B = 0.75;
+
+  private static final int MAX_TERM_LENGTH = 64;
+  private static final int MIN_DELETED_FOR_COMPACTION = 1024;
+  private static final byte TOPIC = 0;
+  private static final byte MESSAGE = 1;
+
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<String, Postings> terms = new HashMap<>();
+  private final Map<UUID, Integer> documents = new HashMap<>();
+  private final BitSet deleted = new BitSet();
+
+  // Атрибуты документа хранятся в параллельных массивах; UUID разложены на пары long.
+  private long[] ids = new long[64];
+  private long[] topicIds = new long[64];
+  private byte[] types = new byte[32];
+  private int[] lengths = new int[32];
+
+  private int documentCount;
+  private int deletedCount;
+  private long liveLength;
+
+  /**
+   * Добавляет документ в индекс или заменяет его предыдущую версию.
+   *
+   * @param type Тип документа: {@link SearchHitDTO#TOPIC} или {@link SearchHitDTO#MESSAGE}.
+   * @param id Идентификатор темы или сообщения.
+   * @param topicId Идентификатор темы, к которой относится документ.
+   * @param text Индексируемый текст.
+   */
+  void put(String type, UUID id, UUID topicId, String text) {
+    List<String> tokens = tokenize(text);
+    Map<String, Integer> frequencies = new HashMap<>();
+    for (String token : tokens) {
+      frequencies.merge(token, 1, Integer::sum);
+    }
+    lock.writeLock().lock();
+    try {
+      removeDocument(id);
+      int document = documentCount++;
+      ensureCapacity(documentCount);
+      ids[2 * document] = id.getMostSignificantBits();
+      ids[2 * document + 1] = id.getLeastSignificantBits();
+      topicIds[2 * document] = topicId.getMostSignificantBits();
+      topicIds[2 * document + 1] = topicId.getLeastSignificantBits();
+      types[document] = SearchHitDTO.TOPIC.equals(type) ? TOPIC : MESSAGE;
+      lengths[document] = tokens.size();
+      for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+        terms
+            .computeIfAbsent(entry.getKey(), term -> new Postings())
+            .add(document, entry.getValue());
+      }
+      documents.put(id, document);
+      liveLength += tokens.size();
+      compactIfSparse();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Удаляет документ из индекса. Отсутствующий документ игнорируется.
+   *
+   * @param id Идентификатор темы или сообщения.
+   */
+  void remove(UUID id) {
+    lock.writeLock().lock();
+    try {
+      removeDocument(id);
+      compactIfSparse();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Ищет документы, содержащие хотя бы один терм запроса, и возвращает лучшие по оценке BM25.
+   *
+   * @param query Текст запроса.
+   * @param limit Максимальное количество результатов.
+   * @return Результаты по убыванию релевантности, без текста документов.
+   */
+  List<SearchHitDTO> search(String query, int limit) {
+    Set<String> queryTerms = new LinkedHashSet<>(tokenize(query));
+    lock.readLock().lock();
+    try {
+      int liveCount = documents.size();
+      if (liveCount == 0 || limit <= 0) {
+        return new ArrayList<>();
+      }
+      double averageLength = Math.max(1.0, (double) liveLength / liveCount);
+
+      List<Postings> lists = new ArrayList<>();
+      double[] weights = new double[queryTerms.size()];
+      for (String term : queryTerms) {
+        Postings postings = terms.get(term);
+        int frequency = postings != null ? postings.liveCount(deleted) : 0;
+        if (frequency > 0) {
+          weights[lists.size()] = Math.log(1 + (liveCount - frequency + 0.5) / (frequency + 0.5));
+          lists.add(postings);
+        }
+      }
+
+      // Минимальная куча из лучших результатов; документы обходятся по возрастанию номера, поэтому
+      // при равной оценке остаются более ранние.
+      PriorityQueue<ScoredDocument> top =
+          new PriorityQueue<>(
+              limit + 1,
+              Comparator.<ScoredDocument>comparingDouble(scored -> scored.score)
+                  .thenComparing(scored -> -scored.document));
+      int[] cursors = new int[lists.size()];
+      while (true) {
+        int document = Integer.MAX_VALUE;
+        for (int i = 0; i < cursors.length; i++) {
+          Postings postings = lists.get(i);
+          if (cursors[i] < postings.size) {
+            document = Math.min(document, postings.documents[cursors[i]]);
+          }
+        }
+        if (document == Integer.MAX_VALUE) {
+          break;
+        }
+        double score = 0;
+        double norm = K1 * (1 - B + B * lengths[document] / averageLength);
+        for (int i = 0; i < cursors.length; i++) {
+          Postings postings = lists.get(i);
+          if (cursors[i] < postings.size && postings.documents[cursors[i]] == document) {
+            int frequency = postings.frequencies[cursors[i]++];
+            score += weights[i] * frequency * (K1 + 1) / (frequency + norm);
+          }
+        }
+        if (deleted.get(document)) {
+          continue;
+        }
+        if (top.size() == limit && !(score > top.peek().score)) {
+          continue;
+        }
+        top.add(new ScoredDocument(document, score));
+        if (top.size() > limit) {
+          top.poll();
+        }
+      }
+
+      List<SearchHitDTO> hits = new ArrayList<>(top.size());
+      while (!top.isEmpty()) {
+        hits.add(toHit(top.poll()));
+      }
+      Collections.reverse(hits);
+      return hits;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Возвращает количество живых документов в индексе.
+   *
+   * @return Количество документов.
+   */
+  int size() {
+    lock.readLock().lock();
+    try {
+      return documents.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Разбивает текст на термы: последовательности букв и цифр в нижнем регистре. Слишком длинные
+   * термы обрезаются.
+   *
+   * @param text Исходный текст.
+   * @return Термы в порядке появления, с повторами.
+   */
+  static List<String> tokenize(String text) {
+    List<String> tokens = new ArrayList<>();
+    if (text == null) {
+      return tokens;
+    }
+    StringBuilder token = new StringBuilder();
+    for (int i = 0; i < text.length(); ) {
+      int codePoint = text.codePointAt(i);
+      i += Character.charCount(codePoint);
+      if (Character.isLetterOrDigit(codePoint)) {
+        if (token.length() < MAX_TERM_LENGTH) {
+          token.appendCodePoint(Character.toLowerCase(codePoint));
+        }
+      } else if (token.length() > 0) {
+        tokens.add(token.toString());
+        token.setLength(0);
+      }
+    }
+    if (token.length() > 0) {
+      tokens.add(token.toString());
+    }
+    return tokens;
+  }
+
+  private void removeDocument(UUID id) {
+    Integer document = documents.remove(id);
+    if (document != null) {
+      deleted.set(document);
+      deletedCount++;
+      liveLength -= lengths[document];
+    }
+  }
+
+  private SearchHitDTO toHit(ScoredDocument scored) {
+    int document = scored.document;
+    return new SearchHitDTO(
+        types[document] == TOPIC ? SearchHitDTO.TOPIC : SearchHitDTO.MESSAGE,
+        new UUID(ids[2 * document], ids[2 * document + 1]),
+        new UUID(topicIds[2 * document], topicIds[2 * document + 1]),
+        scored.score,
+        null);
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > lengths.length) {
+      int grown = Math.max(capacity, lengths.length * 2);
+      ids = Arrays.copyOf(ids, 2 * grown);
+      topicIds = Arrays.copyOf(topicIds, 2 * grown);
+      types = Arrays.copyOf(types, grown);
+      lengths = Arrays.copyOf(lengths, grown);
+    }
+  }
+
+  /** Перенумеровывает живые документы подряд и вычищает удаленные из списков вхождений. */
+  private void compactIfSparse() {
+    if (deletedCount < MIN_DELETED_FOR_COMPACTION || deletedCount <= documents.size()) {
+      return;
+    }
+    int[] renumbered = new int[documentCount];
+    int next = 0;
+    for (int document = 0; document < documentCount; document++) {
+      if (deleted.get(document)) {
+        renumbered[document] = -1;
+        continue;
+      }
+      renumbered[document] = next;
+      ids[2 * next] = ids[2 * document];
+      ids[2 * next + 1] = ids[2 * document + 1];
+      topicIds[2 * next] = topicIds[2 * document];
+      topicIds[2 * next + 1] = topicIds[2 * document + 1];
+      types[next] = types[document];
+      lengths[next] = lengths[document];
+      next++;
+    }
+    for (Iterator<Postings> iterator = terms.values().iterator(); iterator.hasNext(); ) {
+      Postings postings = iterator.next();
+      postings.renumber(renumbered);
+      if (postings.size == 0) {
+        iterator.remove();
+      }
+    }
+    documents.replaceAll((id, document) -> renumbered[document]);
+    deleted.clear();
+    deletedCount = 0;
+    documentCount = next;
+  }
+
+  /** Список вхождений терма: номера документов по возрастанию и частоты терма в них. */
+  private static final class Postings {
+    private int[] documents = new int[4];
+    private int[] frequencies = new int[4];
+    private int size;
+
+    void add(int document, int frequency) {
+      if (size == documents.length) {
+        documents = Arrays.copyOf(documents, size * 2);
+        frequencies = Arrays.copyOf(frequencies, size * 2);
+      }
+      documents[size] = document;
+      frequencies[size] = frequency;
+      size++;
+    }
+
+    int liveCount(BitSet deleted) {
+      int count = 0;
+      for (int i = 0; i < size; i++) {
+        if (!deleted.get(documents[i])) {
+          count++;
+        }
+      }
+      return count;
+    }
+
+    void renumber(int[] renumbered) {
+      int kept = 0;
+      for (int i = 0; i < size; i++) {
+        int document = renumbered[documents[i]];
+        if (document >= 0) {
+          documents[kept] = document;
+          frequencies[kept] = frequencies[i];
+          kept++;
+        }
+      }
+      size = kept;
+      if (size > 0 && size < documents.length / 4) {
+        documents = Arrays.copyOf(documents, size * 2);
+        frequencies = Arrays.copyOf(frequencies, size * 2);
+      }
+    }
+  }
+
+  private static final class ScoredDocument {
+    private final int document;
+    private final double score;
+
+    ScoredDocument(int document, double score) {
+      this.document = document;
+      this.score = score;
+    }
+  }
+}
@@ -0,0 +1,169 @@
+package com.example.forum.service;
+
+import com.example.forum.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+/**
+ * Сервис, выполняющий ресурсоемкие операции BCrypt (хеширование и проверку паролей) в отдельном
+ * ограниченном пуле потоков. Потоки веб-сервера не занимаются вычислением BCrypt и освобождаются на
+ * время ожидания, а при переполнении очереди новые запросы сразу отклоняются вместо того, чтобы
+ * копиться и блокировать обработку остальных запросов. В пуле выполняется только сам BCrypt:
+ * обращения к базе данных остаются в вызывающем потоке, а продолжения возвращенных Future
+ * вызывающая сторона переносит в свой исполнитель, поэтому задержки базы данных не занимают потоки
+ * пула и не искажают его метрики.
+ */
+@Service
+public class PasswordHashingService implements DisposableBean {
+  private final PasswordEncoder passwordEncoder;
+  private final UserDetailsService userDetailsService;
+  private final ThreadPoolExecutor executor;
+  private final Counter rejected;
+  private final Timer duration;
+
+  /**
+   * Хеш, с которым сверяется пароль несуществующего пользователя, чтобы время ответа не выдавало,
+   * существует ли пользователь. Вычисляется в пуле при первой необходимости.
+   */
+  private volatile String unknownUserPassword;
+
+  /**
+   * Конструктор сервиса хеширования паролей.
+   *
+   * @param passwordEncoder Кодировщик паролей.
+   * @param userDetailsService Источник данных пользователя, проверяемого при входе.
+   * @param meterRegistry Реестр метрик для публикации глубины очереди и числа отказов.
+   * @param threads Количество потоков пула.
+   * @param queueCapacity Максимальное количество операций, ожидающих выполнения.
+   */
+  public PasswordHashingService(
+      PasswordEncoder passwordEncoder,
+      UserDetailsService userDetailsService,
+      MeterRegistry meterRegistry,
+      @Value("${forum.security.password-hashing.threads:0}") int threads,
+      @Value("${forum.security.password-hashing.queue-capacity:100}") int queueCapacity) {
+    this.passwordEncoder = passwordEncoder;
+    this.userDetailsService = userDetailsService;
+    int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    this.executor =
+        new ThreadPoolExecutor(
+            poolSize,
+            poolSize,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            threadFactory(),
+            new ThreadPoolExecutor.AbortPolicy());
+
+    Gauge.builder("forum.password.hashing.queue.depth", executor, e -> e.getQueue().size())
+        .description("Операции BCrypt, ожидающие свободного потока")
+        .register(meterRegistry);
+    Gauge.builder("forum.password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+        .description("Операции BCrypt, выполняющиеся в данный момент")
+        .register(meterRegistry);
+    this.rejected =
+        Counter.builder("forum.password.hashing.rejected")
+            .description("Операции BCrypt, отклоненные из-за переполнения очереди")
+            .register(meterRegistry);
+    this.duration =
+        Timer.builder("forum.password.hashing.duration")
+            .description("Время выполнения операции BCrypt без учета ожидания в очереди")
+            .register(meterRegistry);
+  }
+
+  /**
+   * Хеширует пароль в пуле хеширования.
+   *
+   * @param rawPassword Пароль в открытом виде.
+   * @return Future с хешем пароля.
+   * @throws ServiceOverloadedException если очередь пула переполнена.
+   */
+  public CompletableFuture<String> encode(String rawPassword) {
+    return submit(() -> passwordEncoder.encode(rawPassword));
+  }
+
+  /**
+   * Аутентифицирует пользователя по имени и паролю. Пользователь загружается в вызывающем потоке, а
+   * в пул хеширования передается только проверка пароля.
+   *
+   * @param authentication Запрос аутентификации с именем пользователя и паролем.
+   * @return Future с результатом аутентификации; завершается {@link BadCredentialsException} при
+   *     неизвестном пользователе или неверном пароле.
+   * @throws ServiceOverloadedException если очередь пула переполнена.
+   */
+  public CompletableFuture<Authentication> authenticate(Authentication authentication) {
+    String rawPassword = String.valueOf(authentication.getCredentials());
+    UserDetails user;
+    try {
+      user = userDetailsService.loadUserByUsername(authentication.getName());
+    } catch (UsernameNotFoundException e) {
+      user = null;
+    }
+    UserDetails found = user;
+    return submit(
+        () -> {
+          String encoded = found != null ? found.getPassword() : unknownUserPassword();
+          if (!passwordEncoder.matches(rawPassword, encoded) || found == null) {
+            throw new BadCredentialsException("Bad credentials");
+          }
+          if (found instanceof CredentialsContainer credentials) {
+            credentials.eraseCredentials();
+          }
+          return UsernamePasswordAuthenticationToken.authenticated(
+              found, null, found.getAuthorities());
+        });
+  }
+
+  private String unknownUserPassword() {
+    String encoded = unknownUserPassword;
+    if (encoded == null) {
+      encoded = passwordEncoder.encode("unknown-user-password");
+      unknownUserPassword = encoded;
+    }
+    return encoded;
+  }
+
+  private <T> CompletableFuture<T> submit(Supplier<T> task) {
+    try {
+      return CompletableFuture.supplyAsync(() -> duration.record(task), executor);
+    } catch (RejectedExecutionException e) {
+      rejected.increment();
+      throw new ServiceOverloadedException("Too many sign-in requests, try again later");
+    }
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdown();
+  }
+
+  private static ThreadFactory threadFactory() {
+    AtomicInteger counter = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+}
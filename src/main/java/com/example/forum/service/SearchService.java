@@ -0,0 +1,237 @@
+package com.example.forum.service;
+
+import com.example.forum.dto.SearchHitDTO;
+import com.example.forum.entity.Message;
+import com.example.forum.entity.Topic;
+import com.example.forum.event.MessageChangedEvent;
+import com.example.forum.event.TopicChangedEvent;
+import com.example.forum.exception.BadRequestException;
+import com.example.forum.repository.MessageRepository;
+import com.example.forum.repository.TopicRepository;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Сервис полнотекстового поиска по заголовкам тем и текстам сообщений. Индекс хранится в памяти
+ * процесса и обновляется событиями {@link TopicChangedEvent} и {@link MessageChangedEvent} после
+ * фиксации транзакции, поэтому в него не попадают откаченные изменения.
+ *
+ * <p>При запуске индекс перестраивается из базы данных потоковым чтением строк. Пока идет
+ * перестроение, поиск обслуживает прежний индекс, а события записываются и применяются к новому
+ * индексу перед его подменой, чтобы не потерять изменения, пришедшие во время чтения.
+ *
+ * <p>Блокировки — {@link ReentrantLock}, а не {@code synchronized}: перестроение держит блокировку
+ * все время чтения из базы данных, а применение события может ждать блокировку записи индекса, и
+ * виртуальный поток, ожидающий внутри монитора, закрепляется за потоком-носителем.
+ */
+@Service
+public class SearchService {
+
+  private static final Logger log = LoggerFactory.getLogger(SearchService.class);
+
+  private static final int MAX_LIMIT = 50;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TopicRepository topicRepository;
+  private final MessageRepository messageRepository;
+  private final boolean rebuildOnStartup;
+
+  private final ReentrantLock rebuildLock = new ReentrantLock();
+  // Упорядочивает применение событий с их записью в pendingEvents и подменой индекса.
+  private final ReentrantLock eventsLock = new ReentrantLock();
+  private volatile InvertedIndex index = new InvertedIndex();
+  private List<Object> pendingEvents;
+
+  /**
+   * Конструктор для SearchService.
+   *
+   * @param dataSource Источник данных для потокового чтения при перестроении индекса.
+   * @param topicRepository Репозиторий тем для загрузки заголовков найденных тем.
+   * @param messageRepository Репозиторий сообщений для загрузки текстов найденных сообщений.
+   * @param rebuildOnStartup Перестраивать ли индекс при запуске приложения.
+   * @param fetchSize Количество строк, получаемых от базы данных за один раз при перестроении.
+   */
+  public SearchService(
+      DataSource dataSource,
+      TopicRepository topicRepository,
+      MessageRepository messageRepository,
+      @Value("${forum.search.rebuild-on-startup:true}") boolean rebuildOnStartup,
+      @Value("${forum.search.fetch-size:1000}") int fetchSize) {
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    this.jdbcTemplate.setFetchSize(fetchSize);
+    this.topicRepository = topicRepository;
+    this.messageRepository = messageRepository;
+    this.rebuildOnStartup = rebuildOnStartup;
+  }
+
+  /**
+   * Ищет темы и сообщения по тексту запроса и ранжирует их по BM25.
+   *
+   * @param query Текст запроса; термы объединяются по «или».
+   * @param limit Максимальное количество результатов (не более 50).
+   * @return Результаты по убыванию релевантности с заголовком темы или текстом сообщения.
+   */
+  public List<SearchHitDTO> search(String query, int limit) {
+    if (query == null || InvertedIndex.tokenize(query).isEmpty()) {
+      throw new BadRequestException("Search query must contain at least one word");
+    }
+    List<SearchHitDTO> hits = index.search(query, Math.max(1, Math.min(limit, MAX_LIMIT)));
+
+    Set<UUID> topicIds = new HashSet<>();
+    Set<UUID> messageIds = new HashSet<>();
+    for (SearchHitDTO hit : hits) {
+      if (SearchHitDTO.TOPIC.equals(hit.getType())) {
+        topicIds.add(hit.getId());
+      } else {
+        messageIds.add(hit.getId());
+      }
+    }
+    Map<UUID, String> texts = new HashMap<>();
+    if (!topicIds.isEmpty()) {
+      for (Topic topic : topicRepository.findAllById(topicIds)) {
+        texts.put(topic.getId(), topic.getTitle());
+      }
+    }
+    if (!messageIds.isEmpty()) {
+      for (Message message : messageRepository.findAllById(messageIds)) {
+        texts.put(message.getId(), message.getText());
+      }
+    }
+
+    // Документ мог быть удален после поиска по индексу; такие результаты пропускаются.
+    List<SearchHitDTO> results = new ArrayList<>(hits.size());
+    for (SearchHitDTO hit : hits) {
+      String text = texts.get(hit.getId());
+      if (text != null) {
+        results.add(
+            new SearchHitDTO(hit.getType(), hit.getId(), hit.getTopicId(), hit.getScore(), text));
+      }
+    }
+    return results;
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onTopicChanged(TopicChangedEvent event) {
+    applyAndRecord(event);
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onMessageChanged(MessageChangedEvent event) {
+    applyAndRecord(event);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuildIndexOnStartup() {
+    if (rebuildOnStartup) {
+      rebuildIndex();
+    }
+  }
+
+  /**
+   * Перестраивает индекс из базы данных. Строки тем и сообщений читаются потоком и сразу
+   * добавляются в новый индекс, поэтому в памяти не накапливаются ни сущности, ни тексты.
+   *
+   * @return Количество документов в новом индексе.
+   */
+  public int rebuildIndex() {
+    rebuildLock.lock();
+    try {
+      long started = System.nanoTime();
+      eventsLock.lock();
+      try {
+        pendingEvents = new ArrayList<>();
+      } finally {
+        eventsLock.unlock();
+      }
+      InvertedIndex rebuilt = new InvertedIndex();
+      try {
+        jdbcTemplate.query(
+            "SELECT id, title FROM topic",
+            (RowCallbackHandler)
+                rs -> {
+                  UUID id = rs.getObject(1, UUID.class);
+                  rebuilt.put(SearchHitDTO.TOPIC, id, id, rs.getString(2));
+                });
+        jdbcTemplate.query(
+            "SELECT id, topic_id, text FROM message",
+            (RowCallbackHandler)
+                rs ->
+                    rebuilt.put(
+                        SearchHitDTO.MESSAGE,
+                        rs.getObject(1, UUID.class),
+                        rs.getObject(2, UUID.class),
+                        rs.getString(3)));
+      } catch (RuntimeException e) {
+        eventsLock.lock();
+        try {
+          pendingEvents = null;
+        } finally {
+          eventsLock.unlock();
+        }
+        throw e;
+      }
+      eventsLock.lock();
+      try {
+        for (Object event : pendingEvents) {
+          apply(rebuilt, event);
+        }
+        pendingEvents = null;
+        index = rebuilt;
+      } finally {
+        eventsLock.unlock();
+      }
+      log.info(
+          "Search index rebuilt: {} documents in {} ms",
+          rebuilt.size(),
+          (System.nanoTime() - started) / 1_000_000);
+      return rebuilt.size();
+    } finally {
+      rebuildLock.unlock();
+    }
+  }
+
+  private void applyAndRecord(Object event) {
+    eventsLock.lock();
+    try {
+      apply(index, event);
+      if (pendingEvents != null) {
+        pendingEvents.add(event);
+      }
+    } finally {
+      eventsLock.unlock();
+    }
+  }
+
+  private static void apply(InvertedIndex target, Object event) {
+    if (event instanceof TopicChangedEvent topic) {
+      if (topic.isDeleted()) {
+        target.remove(topic.getTopicId());
+      } else {
+        target.put(SearchHitDTO.TOPIC, topic.getTopicId(), topic.getTopicId(), topic.getTitle());
+      }
+    } else if (event instanceof MessageChangedEvent message) {
+      if (message.isDeleted()) {
+        target.remove(message.getMessageId());
+      } else {
+        target.put(
+            SearchHitDTO.MESSAGE, message.getMessageId(), message.getTopicId(), message.getText());
+      }
+    }
+  }
+}
@@ -0,0 +1,211 @@
+package com.example.forum.service;
+
+import com.example.forum.entity.Message;
+import com.example.forum.entity.Topic;
+import com.example.forum.event.MessageChangedEvent;
+import com.example.forum.event.TopicChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Кэш горячих тем и первых страниц их сообщений, ограниченный суммарным весом записей (количеством
+ * сообщений) и временем жизни. Закэшированные сущности отсоединены от контекста персистентности и
+ * используются только для чтения.
+ *
+ * <p>Ключ записи содержит поколение полосы, к которой относится тема. Изменение темы или ее
+ * сообщения помечает полосу как изменяемую: пока транзакция записи не завершена, чтения темы идут
+ * мимо кэша, а после завершения поколение полосы увеличивается и старые записи становятся
+ * недостижимы. Поэтому после фиксации записи кэш не может вернуть прежнее состояние, даже если
+ * параллельное чтение успело положить его в кэш во время транзакции. Полосы общие для нескольких
+ * тем: изменение одной темы изредка сбрасывает записи соседних, зато состояние инвалидации не
+ * растет с количеством тем.
+ */
+@Component
+public class TopicCache {
+  private static final int WHOLE_TOPIC = -1;
+
+  private final Cache<Key, Object> cache;
+  private final int maxCachedPage;
+  private final AtomicLongArray generations;
+  private final AtomicIntegerArray pendingWrites;
+
+  /**
+   * Конструктор кэша тем.
+   *
+   * @param maximumWeight Максимальное суммарное количество сообщений в закэшированных записях.
+   * @param ttl Время жизни записи после ее загрузки.
+   * @param maxCachedPage Количество первых страниц сообщений темы, которые кэшируются.
+   * @param stripes Количество полос инвалидации.
+   * @param meterRegistry Реестр метрик для публикации попаданий, промахов и вытеснений.
+   */
+  public TopicCache(
+      @Value("${forum.cache.topics.maximum-weight:100000}") long maximumWeight,
+      @Value("${forum.cache.topics.ttl:PT1M}") Duration ttl,
+      @Value("${forum.cache.topics.pages:3}") int maxCachedPage,
+      @Value("${forum.cache.topics.stripes:4096}") int stripes,
+      MeterRegistry meterRegistry) {
+    this.cache =
+        Caffeine.newBuilder()
+            .maximumWeight(maximumWeight)
+            .<Key, Object>weigher((key, value) -> weigh(value))
+            .expireAfterWrite(ttl)
+            .recordStats()
+            .build();
+    this.maxCachedPage = maxCachedPage;
+    this.generations = new AtomicLongArray(stripes);
+    this.pendingWrites = new AtomicIntegerArray(stripes);
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "topics");
+  }
+
+  /**
+   * Возвращает тему из кэша, загружая ее при отсутствии.
+   *
+   * @param topicId Идентификатор темы.
+   * @param loader Загрузка темы вместе с ее сообщениями.
+   * @return Тема.
+   */
+  public Topic getTopic(UUID topicId, Supplier<Topic> loader) {
+    return get(topicId, WHOLE_TOPIC, 0, null, loader);
+  }
+
+  /**
+   * Возвращает страницу сообщений темы из кэша, загружая ее при отсутствии. Кэшируются только
+   * первые страницы; остальные всегда загружаются из базы данных.
+   *
+   * @param topicId Идентификатор темы.
+   * @param pageable Параметры пагинации и сортировки.
+   * @param loader Загрузка страницы.
+   * @return Страница сообщений.
+   */
+  public Page<Message> getMessages(
+      UUID topicId, Pageable pageable, Supplier<Page<Message>> loader) {
+    if (pageable.isUnpaged() || pageable.getPageNumber() >= maxCachedPage) {
+      return loader.get();
+    }
+    return get(
+        topicId,
+        pageable.getPageNumber(),
+        pageable.getPageSize(),
+        pageable.getSort().toString(),
+        loader);
+  }
+
+  /**
+   * Сбрасывает записи темы. Внутри транзакции чтения темы идут мимо кэша до ее завершения, а сброс
+   * выполняется после фиксации или отката.
+   *
+   * @param topicId Идентификатор измененной темы.
+   */
+  public void invalidate(UUID topicId) {
+    int stripe = stripe(topicId);
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      generations.incrementAndGet(stripe);
+      return;
+    }
+    pendingWrites.incrementAndGet(stripe);
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCompletion(int status) {
+            generations.incrementAndGet(stripe);
+            pendingWrites.decrementAndGet(stripe);
+          }
+        });
+  }
+
+  @EventListener
+  public void onTopicChanged(TopicChangedEvent event) {
+    invalidate(event.getTopicId());
+  }
+
+  @EventListener
+  public void onMessageChanged(MessageChangedEvent event) {
+    invalidate(event.getTopicId());
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> T get(UUID topicId, int page, int size, String sort, Supplier<T> loader) {
+    int stripe = stripe(topicId);
+    if (pendingWrites.get(stripe) > 0) {
+      return loader.get();
+    }
+    Key key = new Key(topicId, generations.get(stripe), page, size, sort);
+    // Загрузка выполняется вне Cache.get(key, loader), как и в PrincipalCache, чтобы обращение к
+    // базе данных не выполнялось внутри блокировки кэша.
+    Object cached = cache.getIfPresent(key);
+    if (cached != null) {
+      return (T) cached;
+    }
+    T loaded = loader.get();
+    if (loaded != null) {
+      cache.put(key, loaded);
+    }
+    return loaded;
+  }
+
+  private int stripe(UUID topicId) {
+    int hash = topicId.hashCode();
+    return Math.floorMod(hash ^ (hash >>> 16), generations.length());
+  }
+
+  private static int weigh(Object value) {
+    if (value instanceof Topic topic) {
+      return 1 + topic.getMessages().size();
+    }
+    if (value instanceof Page<?> page) {
+      return 1 + page.getNumberOfElements();
+    }
+    return 1;
+  }
+
+  private static final class Key {
+    private final UUID topicId;
+    private final long generation;
+    private final int page;
+    private final int size;
+    private final String sort;
+
+    Key(UUID topicId, long generation, int page, int size, String sort) {
+      this.topicId = topicId;
+      this.generation = generation;
+      this.page = page;
+      this.size = size;
+      this.sort = sort;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key other)) {
+        return false;
+      }
+      return generation == other.generation
+          && page == other.page
+          && size == other.size
+          && topicId.equals(other.topicId)
+          && Objects.equals(sort, other.sort);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(topicId, generation, page, size, sort);
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package com.example.forum.service;
+
+import com.example.forum.repository.TopicRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Сервис, периодически сверяющий денормализованные счетчики тем ({@code messageCount} и {@code
+ * lastMessageAt}) с фактическими сообщениями. Темы обходятся пакетами по возрастанию
+ * идентификатора; каждый пакет исправляется одним UPDATE-запросом в отдельной транзакции, который
+ * затрагивает только разошедшиеся строки, поэтому блокировки тем держатся недолго. Темы
+ * исправленного пакета сбрасываются из {@link TopicCache} в той же транзакции, поэтому после ее
+ * фиксации кэш не вернет прежние счетчики.
+ */
+@Service
+public class TopicCounterRepairService {
+  private static final Logger log = LoggerFactory.getLogger(TopicCounterRepairService.class);
+
+  private final TopicRepository topicRepository;
+  private final TopicCache topicCache;
+  private final TransactionTemplate transactionTemplate;
+  private final int batchSize;
+  private final Counter repaired;
+
+  /**
+   * Конструктор сервиса восстановления счетчиков.
+   *
+   * @param topicRepository Репозиторий тем.
+   * @param topicCache Кэш тем, из которого сбрасываются темы исправленного пакета.
+   * @param transactionManager Менеджер транзакций; каждый пакет исправляется отдельно.
+   * @param meterRegistry Реестр метрик для публикации числа исправленных тем.
+   * @param batchSize Количество тем, проверяемых одним запросом.
+   */
+  public TopicCounterRepairService(
+      TopicRepository topicRepository,
+      TopicCache topicCache,
+      PlatformTransactionManager transactionManager,
+      MeterRegistry meterRegistry,
+      @Value("${forum.topic-counters.repair.batch-size:500}") int batchSize) {
+    this.topicRepository = topicRepository;
+    this.topicCache = topicCache;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.batchSize = batchSize;
+    this.repaired =
+        Counter.builder("forum.topic.counters.repaired")
+            .description("Темы, счетчики которых разошлись с фактическими сообщениями")
+            .register(meterRegistry);
+  }
+
+  /**
+   * Пересчитывает разошедшиеся счетчики всех тем.
+   *
+   * @return Количество исправленных тем.
+   */
+  @Scheduled(
+      initialDelayString = "${forum.topic-counters.repair.interval:PT1H}",
+      fixedDelayString = "${forum.topic-counters.repair.interval:PT1H}")
+  public int repairCounters() {
+    Pageable batch = PageRequest.ofSize(batchSize);
+    int total = 0;
+    List<UUID> ids = topicRepository.findIds(batch);
+    while (!ids.isEmpty()) {
+      total += repairBatch(ids);
+      if (ids.size() < batchSize) {
+        break;
+      }
+      ids = topicRepository.findIdsAfter(ids.get(ids.size() - 1), batch);
+    }
+    if (total > 0) {
+      repaired.increment(total);
+      log.warn("Repaired message counters of {} topics", total);
+    }
+    return total;
+  }
+
+  /** Исправляет пакет тем и сбрасывает их из кэша одной транзакцией. */
+  private int repairBatch(List<UUID> ids) {
+    Integer fixed =
+        transactionTemplate.execute(
+            status -> {
+              int count = topicRepository.repairCounters(ids);
+              if (count > 0) {
+                ids.forEach(topicCache::invalidate);
+              }
+              return count;
+            });
+    return fixed != null ? fixed : 0;
+  }
+}
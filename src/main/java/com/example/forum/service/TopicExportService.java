@@ -0,0 +1,93 @@
+package com.example.forum.service;
+
+import com.example.forum.entity.Message;
+import com.example.forum.repository.MessageRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Сервис выгрузки сообщений темы в формате NDJSON: по одному JSON-объекту сообщения на строку в
+ * порядке {@code (created, id)}. Сообщения читаются курсором базы данных и сразу пишутся в выходной
+ * поток, а контекст персистентности периодически очищается, поэтому расход памяти не зависит от
+ * размера темы.
+ */
+@Service
+public class TopicExportService {
+
+  @PersistenceContext private EntityManager entityManager;
+
+  private final MessageRepository messageRepository;
+  private final ObjectWriter writer;
+  private final int clearInterval;
+
+  /**
+   * Конструктор сервиса выгрузки.
+   *
+   * @param messageRepository Репозиторий сообщений с потоковым запросом сообщений темы.
+   * @param objectMapper Сериализатор сообщений.
+   * @param clearInterval Количество выгруженных сообщений, после которого контекст персистентности
+   *     очищается.
+   */
+  public TopicExportService(
+      MessageRepository messageRepository,
+      ObjectMapper objectMapper,
+      @Value("${forum.export.clear-interval:1000}") int clearInterval) {
+    this.messageRepository = messageRepository;
+    // Разделитель корневых значений дает по сообщению на строку; поток сбрасывается только при
+    // заполнении буфера, а не после каждого сообщения.
+    this.writer =
+        objectMapper
+            .writer(new MinimalPrettyPrinter("\n"))
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    this.clearInterval = clearInterval;
+  }
+
+  /**
+   * Выгружает сообщения темы в выходной поток. Поток не закрывается.
+   *
+   * @param topicId Идентификатор темы.
+   * @param out Выходной поток, например тело HTTP-ответа.
+   * @param gzip Сжимать ли выгрузку gzip.
+   * @return Количество выгруженных сообщений.
+   * @throws IOException при ошибке записи, например если клиент закрыл соединение.
+   */
+  @Transactional(readOnly = true)
+  public long export(UUID topicId, OutputStream out, boolean gzip) throws IOException {
+    GZIPOutputStream compressed = gzip ? new GZIPOutputStream(out, 8192) : null;
+    long count = 0;
+    try (JsonGenerator generator =
+            writer
+                .createGenerator(compressed != null ? compressed : out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        Stream<Message> messages = messageRepository.streamByTopicId(topicId)) {
+      for (Iterator<Message> iterator = messages.iterator(); iterator.hasNext(); ) {
+        writer.writeValue(generator, iterator.next());
+        if (++count % clearInterval == 0) {
+          // Записанные сообщения больше не нужны: отсоединяем их, чтобы контекст не рос.
+          entityManager.clear();
+        }
+      }
+      if (count > 0) {
+        generator.writeRaw('\n');
+      }
+    }
+    if (compressed != null) {
+      compressed.finish();
+    }
+    return count;
+  }
+}
@@ -0,0 +1,474 @@
+package com.example.forum.service;
+
+import com.example.forum.event.MessageChangedEvent;
+import com.example.forum.event.TopicChangedEvent;
+import com.example.forum.exception.ServiceOverloadedException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Сервис потоков Server-Sent Events с изменениями сообщений темы. События {@link
+ * MessageChangedEvent} принимаются после фиксации транзакции, сериализуются один раз и
+ * раскладываются по ограниченным очередям подписчиков темы; поток, зафиксировавший транзакцию, не
+ * пишет в сокеты клиентов. Очередь подписчика вычитывается задачей в общем пуле рассылки (или
+ * виртуальным потоком, если они включены), причем для одного подписчика одновременно выполняется не
+ * более одной задачи.
+ *
+ * <p>Подписчик, очередь которого переполнилась, отключается: клиент EventSource переподключится с
+ * заголовком {@code Last-Event-ID} и получит пропущенные события из истории темы. История хранит
+ * последние события тем, у которых есть или недавно были подписчики. Если запрошенное событие уже
+ * вытеснено из истории или идентификатор выдан до перезапуска приложения, клиенту отправляется
+ * событие {@code reset}, после которого он должен перечитать сообщения темы через REST API.
+ */
+@Service
+public class TopicStreamService implements DisposableBean {
+  private static final Logger log = LoggerFactory.getLogger(TopicStreamService.class);
+
+  static final String MESSAGE_EVENT = "message";
+  static final String TOPIC_DELETED_EVENT = "topic-deleted";
+  static final String RESET_EVENT = "reset";
+
+  private static final Entry HEARTBEAT = new Entry(0, null, null, 0);
+  private static final Entry RESET = new Entry(0, RESET_EVENT, "{}", 0);
+
+  private final ObjectMapper objectMapper;
+  private final Duration timeout;
+  private final int bufferSize;
+  private final int historySize;
+  private final long historyTtlNanos;
+  private final int maxSubscribers;
+
+  // Идентификаторы событий имеют вид "<эпоха>-<номер>": эпоха отличает запуски приложения, поэтому
+  // Last-Event-ID, выданный до перезапуска, не совпадет с чужим событием.
+  private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+  private final AtomicLong sequence = new AtomicLong();
+  private final ConcurrentHashMap<UUID, Channel> channels = new ConcurrentHashMap<>();
+  private final AtomicInteger subscriberCount = new AtomicInteger();
+
+  private final Executor dispatcher;
+  private final ScheduledExecutorService scheduler;
+  private final Counter slowConsumers;
+  private final Timer deliveryLag;
+
+  /**
+   * Конструктор сервиса потоков тем.
+   *
+   * @param objectMapper Сериализатор данных событий.
+   * @param meterRegistry Реестр метрик для публикации числа подписчиков и задержки доставки.
+   * @param timeout Время, после которого соединение закрывается и клиент переподключается.
+   * @param heartbeat Интервал комментариев, поддерживающих соединение и выявляющих отключившихся
+   *     клиентов.
+   * @param bufferSize Максимальное количество недоставленных событий одного подписчика.
+   * @param historySize Количество последних событий темы, доступных для возобновления.
+   * @param historyTtl Время хранения истории темы после отключения последнего подписчика.
+   * @param maxSubscribers Максимальное количество одновременных подписчиков.
+   * @param dispatchThreads Количество потоков рассылки (0 — по числу процессоров).
+   * @param virtualThreads Выполнять ли рассылку в виртуальных потоках (Java 21 и новее).
+   */
+  public TopicStreamService(
+      ObjectMapper objectMapper,
+      MeterRegistry meterRegistry,
+      @Value("${forum.stream.timeout:PT30M}") Duration timeout,
+      @Value("${forum.stream.heartbeat:PT15S}") Duration heartbeat,
+      @Value("${forum.stream.buffer-size:256}") int bufferSize,
+      @Value("${forum.stream.history-size:256}") int historySize,
+      @Value("${forum.stream.history-ttl:PT5M}") Duration historyTtl,
+      @Value("${forum.stream.max-subscribers:10000}") int maxSubscribers,
+      @Value("${forum.stream.dispatch-threads:0}") int dispatchThreads,
+      @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+    this.objectMapper = objectMapper;
+    this.timeout = timeout;
+    this.bufferSize = bufferSize;
+    this.historySize = historySize;
+    this.historyTtlNanos = historyTtl.toNanos();
+    this.maxSubscribers = maxSubscribers;
+    this.dispatcher = dispatcher(dispatchThreads, virtualThreads);
+    this.scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "topic-stream-heartbeat");
+              thread.setDaemon(true);
+              return thread;
+            });
+    this.scheduler.scheduleWithFixedDelay(
+        this::heartbeat, heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+
+    Gauge.builder("forum.stream.subscribers", subscriberCount, AtomicInteger::get)
+        .description("Открытые потоки событий тем")
+        .register(meterRegistry);
+    Gauge.builder("forum.stream.lag", this, TopicStreamService::bufferedEvents)
+        .description("События, ожидающие отправки подписчикам")
+        .register(meterRegistry);
+    this.slowConsumers =
+        Counter.builder("forum.stream.slow-consumers")
+            .description("Подписчики, отключенные из-за переполнения очереди")
+            .register(meterRegistry);
+    this.deliveryLag =
+        Timer.builder("forum.stream.delivery")
+            .description("Время от фиксации изменения до отправки события подписчику")
+            .register(meterRegistry);
+  }
+
+  /**
+   * Открывает поток событий темы.
+   *
+   * @param topicId Идентификатор темы.
+   * @param lastEventId Идентификатор последнего полученного клиентом события или {@code null}.
+   * @return Поток событий.
+   * @throws ServiceOverloadedException если достигнуто максимальное количество подписчиков.
+   */
+  public SseEmitter subscribe(UUID topicId, String lastEventId) {
+    return subscribe(topicId, lastEventId, new SseEmitter(timeout.toMillis()));
+  }
+
+  SseEmitter subscribe(UUID topicId, String lastEventId, SseEmitter emitter) {
+    if (subscriberCount.incrementAndGet() > maxSubscribers) {
+      subscriberCount.decrementAndGet();
+      throw new ServiceOverloadedException("Too many open streams, try again later");
+    }
+    Subscriber subscriber = new Subscriber(topicId, emitter);
+    channels.compute(
+        topicId,
+        (id, channel) -> {
+          Channel target = channel != null ? channel : new Channel(sequence.get());
+          target.subscribe(subscriber, parseSequence(lastEventId));
+          return target;
+        });
+    emitter.onCompletion(() -> unsubscribe(subscriber));
+    emitter.onTimeout(() -> unsubscribe(subscriber));
+    emitter.onError(error -> unsubscribe(subscriber));
+    subscriber.schedule();
+    return emitter;
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onMessageChanged(MessageChangedEvent event) {
+    publish(event.getTopicId(), MESSAGE_EVENT, event);
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onTopicChanged(TopicChangedEvent event) {
+    if (event.isDeleted()) {
+      publish(event.getTopicId(), TOPIC_DELETED_EVENT, event);
+    }
+  }
+
+  /**
+   * Возвращает количество открытых потоков событий.
+   *
+   * @return Количество подписчиков.
+   */
+  public int getSubscriberCount() {
+    return subscriberCount.get();
+  }
+
+  @Override
+  public void destroy() {
+    scheduler.shutdownNow();
+    for (Channel channel : channels.values()) {
+      List<Subscriber> subscribers;
+      synchronized (channel) {
+        subscribers = new ArrayList<>(channel.subscribers);
+      }
+      for (Subscriber subscriber : subscribers) {
+        subscriber.close();
+      }
+    }
+    if (dispatcher instanceof ExecutorService executor) {
+      executor.shutdown();
+    }
+  }
+
+  private void publish(UUID topicId, String name, Object payload) {
+    if (!channels.containsKey(topicId)) {
+      return;
+    }
+    String data;
+    try {
+      data = objectMapper.writeValueAsString(payload);
+    } catch (JsonProcessingException e) {
+      log.warn("Failed to serialize stream event for topic {}", topicId, e);
+      return;
+    }
+    channels.computeIfPresent(
+        topicId,
+        (id, channel) -> {
+          channel.append(new Entry(sequence.incrementAndGet(), name, data, System.nanoTime()));
+          return channel;
+        });
+  }
+
+  private void unsubscribe(Subscriber subscriber) {
+    if (!subscriber.unsubscribed.compareAndSet(false, true)) {
+      return;
+    }
+    subscriber.closed = true;
+    subscriberCount.decrementAndGet();
+    channels.computeIfPresent(
+        subscriber.topicId,
+        (id, channel) -> {
+          channel.unsubscribe(subscriber);
+          return channel;
+        });
+  }
+
+  /** Отправляет подписчикам комментарий-пульс и удаляет историю давно неактивных тем. */
+  private void heartbeat() {
+    long now = System.nanoTime();
+    for (UUID topicId : channels.keySet()) {
+      channels.computeIfPresent(topicId, (id, channel) -> channel.heartbeat(now) ? channel : null);
+    }
+  }
+
+  private double bufferedEvents() {
+    long buffered = 0;
+    for (Channel channel : channels.values()) {
+      synchronized (channel) {
+        for (Subscriber subscriber : channel.subscribers) {
+          buffered += subscriber.queue.size();
+        }
+      }
+    }
+    return buffered;
+  }
+
+  /**
+   * Возвращает номер события из Last-Event-ID текущей эпохи или -1, если возобновление невозможно.
+   */
+  private long parseSequence(String lastEventId) {
+    if (lastEventId == null || lastEventId.isBlank()) {
+      return -1;
+    }
+    String prefix = epoch + "-";
+    if (!lastEventId.startsWith(prefix)) {
+      return 0;
+    }
+    try {
+      long parsed = Long.parseLong(lastEventId.substring(prefix.length()));
+      return parsed >= 0 && parsed <= sequence.get() ? parsed : 0;
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  private static Executor dispatcher(int threads, boolean virtualThreads) {
+    if (virtualThreads && Runtime.version().feature() >= 21) {
+      SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("topic-stream-");
+      executor.setVirtualThreads(true);
+      return executor;
+    }
+    AtomicInteger counter = new AtomicInteger();
+    // Очередь пула не ограничена явно: у каждого подписчика не более одной задачи, а число
+    // подписчиков ограничено max-subscribers.
+    return Executors.newFixedThreadPool(
+        threads > 0 ? threads : Runtime.getRuntime().availableProcessors(),
+        runnable -> {
+          Thread thread = new Thread(runnable, "topic-stream-" + counter.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
+  /**
+   * Подписчики темы и история ее последних событий. Изменяется только внутри вычислений {@link
+   * ConcurrentHashMap#compute}, поэтому публикация, подписка и удаление истории темы упорядочены.
+   * Мониторы канала не закрепляют виртуальные потоки надолго: внутри них нет ввода-вывода и
+   * ожидания, только неблокирующий {@link ArrayBlockingQueue#offer} и передача рассылки executor.
+   */
+  private final class Channel {
+    private final List<Subscriber> subscribers = new ArrayList<>();
+    private final ArrayDeque<Entry> history = new ArrayDeque<>();
+    // История содержит все события темы с номером больше этого.
+    private long coveredAfter;
+    private long lastActive = System.nanoTime();
+
+    Channel(long coveredAfter) {
+      this.coveredAfter = coveredAfter;
+    }
+
+    synchronized void subscribe(Subscriber subscriber, long lastSequence) {
+      subscribers.add(subscriber);
+      if (lastSequence < 0) {
+        return;
+      }
+      if (lastSequence < coveredAfter) {
+        subscriber.offer(RESET);
+        return;
+      }
+      List<Entry> missed = new ArrayList<>();
+      for (Entry entry : history) {
+        if (entry.sequence > lastSequence) {
+          missed.add(entry);
+        }
+      }
+      if (missed.size() > bufferSize) {
+        subscriber.offer(RESET);
+        return;
+      }
+      if (!missed.isEmpty()) {
+        subscriber.replayedUpTo = missed.get(missed.size() - 1).sequence;
+      }
+      for (Entry entry : missed) {
+        subscriber.offer(entry);
+      }
+    }
+
+    synchronized void unsubscribe(Subscriber subscriber) {
+      subscribers.remove(subscriber);
+      lastActive = System.nanoTime();
+    }
+
+    /** Отправляет пульс подписчикам; возвращает {@code false}, если историю темы пора удалить. */
+    synchronized boolean heartbeat(long now) {
+      if (subscribers.isEmpty()) {
+        return now - lastActive <= historyTtlNanos;
+      }
+      for (Subscriber subscriber : subscribers) {
+        subscriber.offer(HEARTBEAT);
+      }
+      return true;
+    }
+
+    synchronized void append(Entry entry) {
+      history.addLast(entry);
+      if (history.size() > historySize) {
+        coveredAfter = history.removeFirst().sequence;
+      }
+      for (Subscriber subscriber : subscribers) {
+        subscriber.offer(entry);
+      }
+    }
+  }
+
+  /**
+   * Подписчик с ограниченной очередью событий. В SseEmitter пишет только задача рассылки, поэтому
+   * поток, публикующий событие, не блокируется на записи в сокет медленного клиента.
+   */
+  private final class Subscriber {
+    private final UUID topicId;
+    private final SseEmitter emitter;
+    private final ArrayBlockingQueue<Entry> queue = new ArrayBlockingQueue<>(bufferSize);
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicBoolean unsubscribed = new AtomicBoolean();
+    private volatile boolean overflowed;
+    private volatile boolean closed;
+    private volatile long replayedUpTo;
+
+    Subscriber(UUID topicId, SseEmitter emitter) {
+      this.topicId = topicId;
+      this.emitter = emitter;
+    }
+
+    void offer(Entry entry) {
+      if (closed) {
+        return;
+      }
+      if (!queue.offer(entry) && entry != HEARTBEAT) {
+        overflowed = true;
+      }
+      schedule();
+    }
+
+    void schedule() {
+      if (!closed && scheduled.compareAndSet(false, true)) {
+        dispatcher.execute(this::drain);
+      }
+    }
+
+    private void drain() {
+      while (true) {
+        if (closed) {
+          return;
+        }
+        if (overflowed) {
+          slowConsumers.increment();
+          close();
+          return;
+        }
+        Entry entry = queue.poll();
+        if (entry == null) {
+          scheduled.set(false);
+          // Событие могло быть добавлено после poll, но до сброса флага.
+          if ((queue.isEmpty() && !overflowed) || !scheduled.compareAndSet(false, true)) {
+            return;
+          }
+          continue;
+        }
+        try {
+          send(entry);
+        } catch (IOException | IllegalStateException e) {
+          closed = true;
+          unsubscribe(this);
+          return;
+        }
+      }
+    }
+
+    private void send(Entry entry) throws IOException {
+      if (entry == HEARTBEAT) {
+        emitter.send(SseEmitter.event().comment(""));
+        return;
+      }
+      SseEmitter.SseEventBuilder event = SseEmitter.event();
+      if (entry.sequence > 0) {
+        event.id(epoch + "-" + entry.sequence);
+      }
+      emitter.send(event.name(entry.name).data(entry.data));
+      if (entry.sequence > replayedUpTo) {
+        deliveryLag.record(System.nanoTime() - entry.publishedAt, TimeUnit.NANOSECONDS);
+      }
+    }
+
+    void close() {
+      closed = true;
+      try {
+        emitter.complete();
+      } catch (IllegalStateException e) {
+        // Соединение уже закрыто.
+      }
+      unsubscribe(this);
+    }
+  }
+
+  private static final class Entry {
+    private final long sequence;
+    private final String name;
+    private final String data;
+    private final long publishedAt;
+
+    Entry(long sequence, String name, String data, long publishedAt) {
+      this.sequence = sequence;
+      this.name = name;
+      this.data = data;
+      this.publishedAt = publishedAt;
+    }
+  }
+}
@@ -1,7 +1,10 @@
 package com.example.forum.service;
 
+import com.example.forum.config.PrincipalCache;
+import com.example.forum.config.UserPrincipal;
 import com.example.forum.entity.User;
 import com.example.forum.repository.UserRepository;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -14,15 +17,20 @@ import org.springframework.stereotype.Service;
  */
 @Service
 public class UserService implements UserDetailsService {
+  private static final List<String> DEFAULT_AUTHORITIES = List.of("USER");
+
   private final UserRepository userRepository;
+  private final PrincipalCache principalCache;
 
   /**
    * Конструктор для создания экземпляра сервиса работы с пользователями.
    *
    * @param userRepository Репозиторий для доступа к данным пользователей в базе данных.
+   * @param principalCache Кэш аутентифицированных пользователей.
    */
-  public UserService(UserRepository userRepository) {
+  public UserService(UserRepository userRepository, PrincipalCache principalCache) {
     this.userRepository = userRepository;
+    this.principalCache = principalCache;
   }
 
   /**
@@ -64,9 +72,36 @@ public class UserService implements UserDetailsService {
             .orElseThrow(
                 () -> new UsernameNotFoundException("User not found with username: " + username));
 
-    return org.springframework.security.core.userdetails.User.withUsername(user.getUsername())
-        .password(user.getPassword())
-        .authorities("USER")
-        .build();
+    return new UserPrincipal(
+        user.getId(), user.getUsername(), user.getPassword(), DEFAULT_AUTHORITIES);
+  }
+
+  /**
+   * Создает данные аутентифицированного пользователя без пароля для уже загруженного пользователя,
+   * например сразу после регистрации.
+   *
+   * @param user Пользователь.
+   * @return Данные пользователя без пароля.
+   */
+  public UserPrincipal principalOf(User user) {
+    return new UserPrincipal(user.getId(), user.getUsername(), null, DEFAULT_AUTHORITIES);
+  }
+
+  /**
+   * Возвращает данные аутентифицированного пользователя без пароля, используя {@link
+   * PrincipalCache}. Обращение к базе данных происходит только при отсутствии записи в кэше.
+   *
+   * @param username Имя пользователя.
+   * @return Данные пользователя без пароля.
+   * @throws UsernameNotFoundException если пользователь с таким именем пользователя не найден.
+   */
+  public UserPrincipal loadPrincipal(String username) throws UsernameNotFoundException {
+    return principalCache.get(
+        username,
+        name -> {
+          UserPrincipal principal = (UserPrincipal) loadUserByUsername(name);
+          principal.eraseCredentials();
+          return principal;
+        });
   }
 }
@@ -0,0 +1,66 @@
+package com.example.forum.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+/** Набор данных создается при запуске контекста, так как генератор — {@code ApplicationRunner}. */
+@DataJpaTest(
+    properties = {
+      "spring.jpa.show-sql=false",
+      "forum.seed.users=50",
+      "forum.seed.topics=200",
+      "forum.seed.messages=20000"
+    })
+@ActiveProfiles("seed")
+@Import({DatasetSeeder.class, DatasetSeederTest.Encoder.class})
+@ImportAutoConfiguration(JdbcTemplateAutoConfiguration.class)
+public class DatasetSeederTest {
+
+  @Autowired private DatasetSeeder datasetSeeder;
+  @Autowired private JdbcTemplate jdbc;
+
+  @Test
+  public void run_CreatesSkewedConsistentDataset() {
+    assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM users", Long.class)).isEqualTo(50);
+    assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM message", Long.class)).isEqualTo(20000);
+    assertThat(
+            jdbc.queryForObject(
+                "SELECT COUNT(*) FROM topic t WHERE t.message_count <>"
+                    + " (SELECT COUNT(*) FROM message m WHERE m.topic_id = t.id)",
+                Long.class))
+        .isZero();
+    List<Long> sizes =
+        jdbc.queryForList(
+            "SELECT message_count FROM topic ORDER BY message_count DESC", Long.class);
+    assertThat(sizes.get(0)).isGreaterThan(20000L / 20);
+    assertThat(sizes.get(sizes.size() - 1)).isLessThan(20000L / 200);
+  }
+
+  @Test
+  public void run_AlreadySeeded_DoesNothing() {
+    datasetSeeder.run(null);
+
+    assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM message", Long.class)).isEqualTo(20000);
+  }
+
+  @TestConfiguration
+  static class Encoder {
+    @Bean
+    PasswordEncoder passwordEncoder() {
+      return new BCryptPasswordEncoder(4);
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package com.example.forum.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+/** Проверяет учет JDBC-запросов по отдельности и в пределах HTTP-запроса. */
+public class JdbcStatementMetricsTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final JdbcStatementMetrics metrics = new JdbcStatementMetrics(meterRegistry);
+  private JdbcTemplate jdbc;
+
+  @BeforeEach
+  void setUp() {
+    jdbc =
+        new JdbcTemplate(
+            new StatementMetricsDataSource(
+                new DriverManagerDataSource("jdbc:h2:mem:statement-metrics;DB_CLOSE_DELAY=-1"),
+                () -> metrics));
+    jdbc.execute("CREATE TABLE IF NOT EXISTS item (id INT)");
+  }
+
+  @Test
+  void statements_shouldBeTimedByOperation() {
+    jdbc.update("INSERT INTO item (id) VALUES (?)", 1);
+    jdbc.batchUpdate("INSERT INTO item (id) VALUES (2)", "INSERT INTO item (id) VALUES (3)");
+    jdbc.queryForList("SELECT id FROM item", Integer.class);
+
+    assertEquals(1, statementCount("update"));
+    assertEquals(1, statementCount("batch"));
+    assertEquals(1, statementCount("query"));
+    assertEquals(1, statementCount("execute"));
+  }
+
+  @Test
+  void filter_shouldRecordStatementsPerRequestWithUriPattern() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/topic/42");
+
+    new JdbcRequestMetricsFilter(metrics)
+        .doFilter(
+            request,
+            new MockHttpServletResponse(),
+            (req, res) -> {
+              req.setAttribute(
+                  HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/v1/topic/{topicId}");
+              jdbc.queryForList("SELECT id FROM item", Integer.class);
+              jdbc.queryForList("SELECT id FROM item", Integer.class);
+            });
+    jdbc.queryForList("SELECT id FROM item", Integer.class);
+
+    var statements =
+        meterRegistry
+            .get(JdbcStatementMetrics.REQUEST_STATEMENTS)
+            .tags("method", "GET", "uri", "/api/v1/topic/{topicId}")
+            .summary();
+    assertEquals(1, statements.count());
+    assertEquals(2.0, statements.totalAmount());
+    assertEquals(
+        1,
+        meterRegistry
+            .get(JdbcStatementMetrics.REQUEST_TIME)
+            .tags("method", "GET", "uri", "/api/v1/topic/{topicId}")
+            .timer()
+            .count());
+    assertEquals(3, statementCount("query"));
+  }
+
+  private long statementCount(String operation) {
+    return meterRegistry
+        .get(JdbcStatementMetrics.STATEMENTS)
+        .tag("operation", operation)
+        .timer()
+        .count();
+  }
+}
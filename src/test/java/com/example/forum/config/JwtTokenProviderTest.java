@@ -0,0 +1,100 @@
+package com.example.forum.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+public class JwtTokenProviderTest {
+
+  private static final String KEY_1 =
+      "53A73E5F1C4E0A2D3B5F2D784E6A1B423D6F247D1F6E5C3A596D635A75327855";
+  private static final String KEY_2 =
+      "6B1F0C4D2E9A8B7C6D5E4F3A2B1C0D9E8F7A6B5C4D3E2F1A0B9C8D7E6F5A4B3C";
+
+  private JwtTokenProvider jwtTokenProvider;
+
+  @BeforeEach
+  public void setup() {
+    jwtTokenProvider = new JwtTokenProvider(signing("k1", KEY_1), 100, Duration.ofMinutes(5));
+  }
+
+  @Test
+  public void parseToken_GeneratedToken_ReturnsUserIdAndUsername() {
+    String token = jwtTokenProvider.generateToken(authentication(42L, "alice"));
+
+    VerifiedToken verified = jwtTokenProvider.parseToken(token);
+
+    assertThat(verified).isNotNull();
+    assertThat(verified.getUserId()).isEqualTo(42L);
+    assertThat(verified.getUsername()).isEqualTo("alice");
+    assertThat(verified.getExpiresAt()).isNotNull();
+  }
+
+  @Test
+  public void parseToken_SameToken_IsServedFromCache() {
+    String token = jwtTokenProvider.generateToken(authentication(42L, "alice"));
+
+    VerifiedToken first = jwtTokenProvider.parseToken(token);
+    VerifiedToken second = jwtTokenProvider.parseToken(token);
+
+    assertThat(second).isSameAs(first);
+  }
+
+  @Test
+  public void parseToken_TamperedToken_ReturnsNull() {
+    String token = jwtTokenProvider.generateToken(authentication(42L, "alice"));
+    String tampered = token.substring(0, token.length() - 2) + "xx";
+
+    assertThat(jwtTokenProvider.parseToken(tampered)).isNull();
+    assertThat(jwtTokenProvider.validateToken(tampered)).isFalse();
+  }
+
+  @Test
+  public void parseToken_CacheDisabled_StillVerifiesToken() {
+    JwtTokenProvider uncached = new JwtTokenProvider(signing("k1", KEY_1), 0, Duration.ZERO);
+    String token = uncached.generateToken(authentication(7L, "bob"));
+
+    assertThat(uncached.validateToken(token)).isTrue();
+    assertThat(uncached.getUsernameFromToken(token)).isEqualTo("bob");
+  }
+
+  @Test
+  public void parseToken_TokenFromAnotherInstance_IsAccepted() {
+    JwtTokenProvider otherInstance =
+        new JwtTokenProvider(signing("k1", KEY_1), 100, Duration.ofMinutes(5));
+    String token = otherInstance.generateToken(authentication(42L, "alice"));
+
+    assertThat(jwtTokenProvider.validateToken(token)).isTrue();
+  }
+
+  @Test
+  public void parseToken_AfterRotation_AcceptsTokensSignedWithPreviousKey() {
+    String oldToken = jwtTokenProvider.generateToken(authentication(42L, "alice"));
+    JwtSigningProperties rotated = signing("k2", KEY_2);
+    rotated.getVerificationKeys().put("k1", KEY_1);
+    JwtTokenProvider rotatedProvider = new JwtTokenProvider(rotated, 100, Duration.ofMinutes(5));
+
+    String newToken = rotatedProvider.generateToken(authentication(42L, "alice"));
+
+    assertThat(rotatedProvider.validateToken(oldToken)).isTrue();
+    assertThat(rotatedProvider.validateToken(newToken)).isTrue();
+    assertThat(jwtTokenProvider.validateToken(newToken)).isFalse();
+  }
+
+  private static JwtSigningProperties signing(String keyId, String key) {
+    JwtSigningProperties properties = new JwtSigningProperties();
+    properties.setKeyId(keyId);
+    properties.setKey(key);
+    return properties;
+  }
+
+  private static Authentication authentication(Long id, String username) {
+    UserPrincipal principal = new UserPrincipal(id, username, null, List.of("USER"));
+    return new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+  }
+}
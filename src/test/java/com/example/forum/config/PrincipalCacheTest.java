@@ -0,0 +1,57 @@
+package com.example.forum.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class PrincipalCacheTest {
+
+  private final PrincipalCache principalCache = new PrincipalCache(100, Duration.ofMinutes(5), 16);
+  private final AtomicInteger loads = new AtomicInteger();
+
+  @Test
+  public void get_SecondRead_ServedFromCache() {
+    UserPrincipal first = principalCache.get("alice", name -> load(1L, name));
+    UserPrincipal second = principalCache.get("alice", name -> load(2L, name));
+
+    assertThat(second).isSameAs(first);
+    assertThat(loads.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void invalidate_ReloadsPrincipal() {
+    principalCache.get("alice", name -> load(1L, name));
+    principalCache.invalidate("alice");
+
+    assertThat(principalCache.get("alice", name -> load(2L, name)).getId()).isEqualTo(2L);
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void invalidate_DuringLoad_DoesNotKeepStalePrincipal() {
+    // Загрузчик прочитал пользователя до фиксации изменения, а сброс после фиксации произошел до
+    // того, как загрузчик положил результат в кэш.
+    UserPrincipal stale =
+        principalCache.get(
+            "alice",
+            name -> {
+              UserPrincipal principal = load(1L, name);
+              principalCache.invalidate(name);
+              return principal;
+            });
+
+    UserPrincipal fresh = principalCache.get("alice", name -> load(2L, name));
+
+    assertThat(stale.getId()).isEqualTo(1L);
+    assertThat(fresh.getId()).isEqualTo(2L);
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  private UserPrincipal load(Long id, String username) {
+    loads.incrementAndGet();
+    return new UserPrincipal(id, username, null, List.of("USER"));
+  }
+}
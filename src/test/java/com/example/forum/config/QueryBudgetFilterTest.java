@@ -0,0 +1,94 @@
+package com.example.forum.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.forum.exception.QueryBudgetExceededException;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+/** Проверяет сверку количества SQL-запросов HTTP-запроса с бюджетом его обработчика. */
+public class QueryBudgetFilterTest {
+
+  private final QueryBudgetTracker tracker = new QueryBudgetTracker();
+
+  @Test
+  void overBudget_shouldFailWithGroupedStatements() throws Exception {
+    MockHttpServletRequest request = request("budgeted");
+
+    QueryBudgetExceededException exception =
+        assertThrows(
+            QueryBudgetExceededException.class,
+            () ->
+                new QueryBudgetFilter(tracker, 10, true)
+                    .doFilter(
+                        request,
+                        new MockHttpServletResponse(),
+                        statements("select topic", "select message", "select message")));
+
+    assertTrue(exception.getMessage().contains("(Handlers#budgeted): 3 statements, budget 2"));
+    assertTrue(exception.getMessage().contains("2 x select message"));
+  }
+
+  @Test
+  void withinBudgetOrLogOnly_shouldPass() throws Exception {
+    new QueryBudgetFilter(tracker, 10, true)
+        .doFilter(request("budgeted"), new MockHttpServletResponse(), statements("select topic"));
+    new QueryBudgetFilter(tracker, 10, false)
+        .doFilter(
+            request("budgeted"),
+            new MockHttpServletResponse(),
+            statements("select topic", "select message", "select message"));
+    new QueryBudgetFilter(tracker, 10, true)
+        .doFilter(
+            request("unlimited"),
+            new MockHttpServletResponse(),
+            statements("select topic", "select message", "select message"));
+
+    // Запросы вне HTTP-запроса не учитываются.
+    assertEquals("select topic", tracker.inspect("select topic"));
+    assertTrue(tracker.end().isEmpty());
+  }
+
+  @Test
+  void unannotatedHandler_shouldUseDefaultBudget() {
+    assertThrows(
+        QueryBudgetExceededException.class,
+        () ->
+            new QueryBudgetFilter(tracker, 1, true)
+                .doFilter(
+                    request("unannotated"),
+                    new MockHttpServletResponse(),
+                    statements("select topic", "select message")));
+  }
+
+  private static MockHttpServletRequest request(String handler) throws NoSuchMethodException {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/topic");
+    request.setAttribute(
+        HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE,
+        new HandlerMethod(new Handlers(), Handlers.class.getMethod(handler)));
+    return request;
+  }
+
+  /** Цепочка фильтров, выполняющая заданные SQL-запросы, как обработчик запроса. */
+  private FilterChain statements(String... sql) {
+    return (request, response) -> {
+      for (String statement : sql) {
+        tracker.inspect(statement);
+      }
+    };
+  }
+
+  public static class Handlers {
+    @QueryBudget(2)
+    public void budgeted() {}
+
+    @QueryBudget(QueryBudget.UNLIMITED)
+    public void unlimited() {}
+
+    public void unannotated() {}
+  }
+}
@@ -0,0 +1,74 @@
+package com.example.forum.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/** Проверяет, что транзакции только для чтения получают соединения реплики. */
+public class ReadWriteRoutingDataSourceTest {
+
+  private JdbcTemplate jdbc;
+  private TransactionTemplate readWrite;
+  private TransactionTemplate readOnly;
+
+  @BeforeEach
+  void setUp() {
+    DataSource primary = database("routing-primary");
+    DataSource replica = database("routing-replica");
+    DataSource routing =
+        new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primary, replica));
+    DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routing);
+    jdbc = new JdbcTemplate(routing);
+    readWrite = new TransactionTemplate(transactionManager);
+    readOnly = new TransactionTemplate(transactionManager);
+    readOnly.setReadOnly(true);
+  }
+
+  @Test
+  void readOnlyTransaction_shouldUseReplica() {
+    assertEquals("routing-replica", readOnly.execute(status -> databaseName()));
+  }
+
+  @Test
+  void readOnlyTransaction_onPrimary_shouldUsePrimary() {
+    String routed =
+        readOnly.execute(status -> ReadWriteRoutingDataSource.onPrimary(this::databaseName));
+
+    assertEquals("routing-primary", routed);
+    assertEquals("routing-replica", readOnly.execute(status -> databaseName()));
+  }
+
+  @Test
+  void readWriteTransactionAndAutoCommit_shouldUsePrimary() {
+    assertEquals("routing-primary", readWrite.execute(status -> databaseName()));
+    assertEquals("routing-primary", databaseName());
+  }
+
+  @Test
+  void readOnlyTransaction_nestedInReadWrite_shouldKeepPrimaryConnection() {
+    String nested = readWrite.execute(status -> readOnly.execute(inner -> databaseName()));
+
+    assertEquals("routing-primary", nested);
+  }
+
+  private String databaseName() {
+    return jdbc.queryForObject("SELECT name FROM marker", String.class);
+  }
+
+  private static DataSource database(String name) {
+    DataSource dataSource =
+        new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+    jdbc.execute("CREATE TABLE IF NOT EXISTS marker (name VARCHAR(50))");
+    jdbc.update("DELETE FROM marker");
+    jdbc.update("INSERT INTO marker (name) VALUES (?)", name);
+    return dataSource;
+  }
+}
@@ -0,0 +1,75 @@
+package com.example.forum.controller;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.example.forum.dto.ImportResultDTO;
+import com.example.forum.exception.NotAuthorizedException;
+import com.example.forum.service.ArchiveImportService;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+public class AdminControllerTest {
+
+  private static final String ARCHIVE = "{\"type\":\"topic\",\"id\":\"t1\"}\n";
+
+  private ArchiveImportService archiveImportService;
+  private AdminController adminController;
+
+  @BeforeEach
+  void setUp() {
+    archiveImportService = mock(ArchiveImportService.class);
+    adminController = new AdminController(archiveImportService);
+  }
+
+  @Test
+  void importArchive_shouldDecompressGzipBody() throws Exception {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+      gzip.write(ARCHIVE.getBytes(StandardCharsets.UTF_8));
+    }
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setContent(compressed.toByteArray());
+    request.addHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+    ImportResultDTO result = new ImportResultDTO("job", 0, 1, 1, 0, 0, 0, 5);
+    StringBuilder received = new StringBuilder();
+    when(archiveImportService.importArchive(eq("job"), any()))
+        .thenAnswer(
+            invocation -> {
+              InputStream body = invocation.getArgument(1);
+              received.append(new String(body.readAllBytes(), StandardCharsets.UTF_8));
+              return result;
+            });
+
+    ResponseEntity<ImportResultDTO> response =
+        adminController.importArchive("job", request, principal("admin"));
+
+    assertEquals(ResponseEntity.ok(result), response);
+    assertEquals(ARCHIVE, received.toString());
+  }
+
+  @Test
+  void importArchive_shouldRejectNonAdmin() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setContent(ARCHIVE.getBytes(StandardCharsets.UTF_8));
+
+    assertThrows(
+        NotAuthorizedException.class,
+        () -> adminController.importArchive("job", request, principal("user")));
+    verify(archiveImportService, never()).importArchive(any(), any());
+  }
+
+  private static Principal principal(String name) {
+    Principal principal = mock(Principal.class);
+    when(principal.getName()).thenReturn(name);
+    return principal;
+  }
+}
@@ -4,33 +4,44 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 import com.example.forum.config.JwtTokenProvider;
+import com.example.forum.config.UserPrincipal;
 import com.example.forum.dto.UserDTO;
+import com.example.forum.entity.User;
+import com.example.forum.exception.ServiceOverloadedException;
+import com.example.forum.service.PasswordHashingService;
 import com.example.forum.service.UserService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.crypto.password.PasswordEncoder;
 
 public class AuthControllerTest {
 
   private UserService userService;
   private JwtTokenProvider jwtTokenProvider;
-  private AuthenticationManager authenticationManager;
-  private PasswordEncoder passwordEncoder;
+  private PasswordHashingService passwordHashingService;
+  private List<String> continuations;
   private AuthController authController;
 
   @BeforeEach
   void setUp() {
     userService = mock(UserService.class);
     jwtTokenProvider = mock(JwtTokenProvider.class);
-    authenticationManager = mock(AuthenticationManager.class);
-    passwordEncoder = mock(PasswordEncoder.class);
+    passwordHashingService = mock(PasswordHashingService.class);
+    continuations = new ArrayList<>();
+    Executor executor =
+        command -> {
+          continuations.add(Thread.currentThread().getName());
+          command.run();
+        };
     authController =
-        new AuthController(userService, jwtTokenProvider, authenticationManager, passwordEncoder);
+        new AuthController(userService, jwtTokenProvider, passwordHashingService, executor);
   }
 
   @Test
@@ -39,15 +50,23 @@ public class AuthControllerTest {
     userDto.setUsername("testUser");
     userDto.setPassword("password");
 
-    Authentication authentication = mock(Authentication.class);
-    when(authenticationManager.authenticate(any())).thenReturn(authentication);
-    when(jwtTokenProvider.generateToken(authentication)).thenReturn("token");
-    when(passwordEncoder.encode(userDto.getPassword())).thenReturn("encodedPassword");
+    User user = new User();
+    user.setId(1L);
+    user.setUsername("testUser");
+    UserPrincipal principal = new UserPrincipal(1L, "testUser", null, List.of("USER"));
+    when(passwordHashingService.encode(userDto.getPassword()))
+        .thenReturn(CompletableFuture.completedFuture("encodedPassword"));
+    when(userService.registerUser("testUser", "encodedPassword")).thenReturn(user);
+    when(userService.principalOf(user)).thenReturn(principal);
+    when(jwtTokenProvider.generateToken(any(Authentication.class))).thenReturn("token");
 
-    ResponseEntity<String> response = authController.register(userDto);
+    ResponseEntity<String> response = authController.register(userDto).join();
 
     assertEquals(ResponseEntity.ok("token"), response);
     verify(userService).registerUser(eq("testUser"), eq("encodedPassword"));
+    verify(passwordHashingService, never()).authenticate(any());
+    // Регистрация пользователя продолжается в исполнителе запросов, а не в пуле хеширования.
+    assertEquals(1, continuations.size());
   }
 
   @Test
@@ -57,12 +76,14 @@ public class AuthControllerTest {
     userDto.setPassword("password");
 
     Authentication authentication = mock(Authentication.class);
-    when(authenticationManager.authenticate(any())).thenReturn(authentication);
+    when(passwordHashingService.authenticate(any()))
+        .thenReturn(CompletableFuture.completedFuture(authentication));
     when(jwtTokenProvider.generateToken(authentication)).thenReturn("token");
 
-    ResponseEntity<?> response = authController.login(userDto);
+    ResponseEntity<?> response = authController.login(userDto).join();
 
     assertEquals(ResponseEntity.ok("token"), response);
+    assertEquals(1, continuations.size());
   }
 
   @Test
@@ -71,12 +92,25 @@ public class AuthControllerTest {
     userDto.setUsername("testUser");
     userDto.setPassword("wrongPassword");
 
-    when(authenticationManager.authenticate(any())).thenThrow(new BadCredentialsException(""));
+    when(passwordHashingService.authenticate(any()))
+        .thenReturn(CompletableFuture.failedFuture(new BadCredentialsException("")));
 
-    ResponseEntity<?> response = authController.login(userDto);
+    ResponseEntity<?> response = authController.login(userDto).join();
 
     assertEquals(
         ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid username or password"),
         response);
   }
+
+  @Test
+  void login_shouldRejectImmediately_whenHashingPoolIsSaturated() {
+    UserDTO userDto = new UserDTO();
+    userDto.setUsername("testUser");
+    userDto.setPassword("password");
+
+    when(passwordHashingService.authenticate(any()))
+        .thenThrow(new ServiceOverloadedException("busy"));
+
+    assertThrows(ServiceOverloadedException.class, () -> authController.login(userDto));
+  }
 }
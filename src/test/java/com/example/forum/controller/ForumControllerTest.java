@@ -1,33 +1,77 @@
 package com.example.forum.controller;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
-
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.example.forum.config.UserPrincipal;
+import com.example.forum.dto.CursorPageDTO;
+import com.example.forum.dto.MessageBatchItemDTO;
+import com.example.forum.dto.MessageBatchResultDTO;
+import com.example.forum.dto.SearchHitDTO;
+import com.example.forum.dto.TopicChangesDTO;
 import com.example.forum.dto.TopicDTO;
+import com.example.forum.dto.TopicRevisionDTO;
+import com.example.forum.dto.TopicSummaryDTO;
 import com.example.forum.entity.Message;
 import com.example.forum.entity.Topic;
 import com.example.forum.entity.User;
+import com.example.forum.exception.NotAuthorizedException;
+import com.example.forum.exception.PreconditionFailedException;
 import com.example.forum.service.ForumService;
+import com.example.forum.service.SearchService;
+import com.example.forum.service.TopicExportService;
+import com.example.forum.service.TopicStreamService;
 import com.example.forum.service.UserService;
+import com.jayway.jsonpath.JsonPath;
 import java.security.Principal;
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 class ForumControllerTest {
 
@@ -35,13 +79,27 @@ class ForumControllerTest {
 
   @Mock private UserService userService;
 
+  @Mock private SearchService searchService;
+
+  @Mock private TopicStreamService topicStreamService;
+
+  @Mock private TopicExportService topicExportService;
+
   @Mock private Principal principal;
 
   @InjectMocks private ForumController forumController;
 
+  private MockHttpServletRequest servletRequest;
+
+  private ServletWebRequest request;
+
   @BeforeEach
   void setUp() {
     MockitoAnnotations.openMocks(this);
+    servletRequest = new MockHttpServletRequest("GET", "/api/v1/topic");
+    request = new ServletWebRequest(servletRequest, new MockHttpServletResponse());
+    when(topicService.getTopicRevision(any(UUID.class)))
+        .thenReturn(new TopicRevisionDTO(7L, OffsetDateTime.parse("2024-05-01T10:15:30Z")));
   }
 
   @Test
@@ -75,6 +133,18 @@ class ForumControllerTest {
     assertEquals(topics, response.getBody());
   }
 
+  @Test
+  void getTopicSummaries_shouldReturnPageOfSummaries() {
+    Page<TopicSummaryDTO> summaries = new PageImpl<>(new ArrayList<>());
+    Pageable pageable = Pageable.unpaged();
+    when(topicService.getTopicSummaries(pageable)).thenReturn(summaries);
+
+    ResponseEntity<Page<TopicSummaryDTO>> response = forumController.getTopicSummaries(pageable);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(summaries, response.getBody());
+  }
+
   @Test
   void updateTopic_shouldReturnUpdatedTopic() {
     TopicDTO topicDto = new TopicDTO();
@@ -82,14 +152,34 @@ class ForumControllerTest {
     user.setId(1L);
     Topic updatedTopic = new Topic();
     when(userService.findByUsername("testuser")).thenReturn(Optional.of(user));
-    when(topicService.updateTopic(topicDto, user.getId())).thenReturn(updatedTopic);
+    updatedTopic.setRevision(8);
+    when(topicService.updateTopic(topicDto, user.getId(), 7L)).thenReturn(updatedTopic);
 
     when(principal.getName()).thenReturn("testuser");
 
-    ResponseEntity<Topic> response = forumController.updateTopic(topicDto, principal);
+    ResponseEntity<Topic> response = forumController.updateTopic(topicDto, "\"7\"", principal);
 
     assertEquals(HttpStatus.OK, response.getStatusCode());
     assertEquals(updatedTopic, response.getBody());
+    assertEquals("\"8\"", response.getHeaders().getETag());
+  }
+
+  @Test
+  void updateTopic_weakOrMalformedIfMatch_shouldNeverMatch() {
+    TopicDTO topicDto = new TopicDTO();
+    User user = new User();
+    user.setId(1L);
+    when(userService.findByUsername("testuser")).thenReturn(Optional.of(user));
+    when(topicService.updateTopic(topicDto, user.getId(), -1L))
+        .thenThrow(new PreconditionFailedException("stale"));
+    when(principal.getName()).thenReturn("testuser");
+
+    assertThrows(
+        PreconditionFailedException.class,
+        () -> forumController.updateTopic(topicDto, "W/\"7\"", principal));
+    assertThrows(
+        PreconditionFailedException.class,
+        () -> forumController.updateTopic(topicDto, "\"abc\"", principal));
   }
 
   @Test
@@ -98,10 +188,42 @@ class ForumControllerTest {
     Topic topic = new Topic();
     when(topicService.getTopicById(topicId)).thenReturn(topic);
 
-    ResponseEntity<Topic> response = forumController.getTopicById(topicId);
+    ResponseEntity<Topic> response = forumController.getTopicById(topicId, request);
 
     assertEquals(HttpStatus.OK, response.getStatusCode());
     assertEquals(topic, response.getBody());
+    assertEquals("\"7\"", response.getHeaders().getETag());
+    assertEquals(
+        OffsetDateTime.parse("2024-05-01T10:15:30Z").toInstant().toEpochMilli(),
+        response.getHeaders().getLastModified());
+  }
+
+  @Test
+  void getTopicById_matchingETag_shouldReturnNotModifiedWithoutLoading() {
+    UUID topicId = UUID.randomUUID();
+    servletRequest.addHeader("If-None-Match", "\"7\"");
+
+    ResponseEntity<Topic> response = forumController.getTopicById(topicId, request);
+
+    assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+    assertNull(response.getBody());
+    assertEquals("\"7\"", response.getHeaders().getETag());
+    verify(topicService, never()).getTopicById(topicId);
+  }
+
+  @Test
+  void getMessagesByTopicId_staleETag_shouldReturnPage() {
+    UUID topicId = UUID.randomUUID();
+    Page<Message> messages = new PageImpl<>(new ArrayList<>());
+    Pageable pageable = Pageable.unpaged();
+    when(topicService.getTopicMessage(topicId, pageable)).thenReturn(messages);
+    servletRequest.addHeader("If-None-Match", "\"6\"");
+
+    ResponseEntity<Page<Message>> response =
+        forumController.getMessagesByTopicId(topicId, pageable, request);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(messages, response.getBody());
   }
 
   @Test
@@ -116,7 +238,8 @@ class ForumControllerTest {
 
     when(principal.getName()).thenReturn("testuser");
 
-    ResponseEntity<Topic> response = forumController.addMessageToTopic(topicId, message, principal);
+    ResponseEntity<?> response =
+        forumController.addMessageToTopic(topicId, message, null, null, principal);
 
     assertEquals(HttpStatus.CREATED, response.getStatusCode());
     assertEquals(updatedTopic, response.getBody());
@@ -131,18 +254,78 @@ class ForumControllerTest {
     user.setId(1L);
     Topic updatedTopic = new Topic();
     when(userService.findByUsername("testuser")).thenReturn(Optional.of(user));
-    when(topicService.updateMessageInTopic(topicId, messageDetails, user.getId()))
+    when(topicService.updateMessageInTopic(topicId, messageDetails, user.getId(), null))
         .thenReturn(updatedTopic);
 
     when(principal.getName()).thenReturn("testuser");
 
-    ResponseEntity<Topic> response =
-        forumController.updateMessageInTopic(topicId, messageDetails, principal);
+    ResponseEntity<?> response =
+        forumController.updateMessageInTopic(topicId, messageDetails, null, null, null, principal);
 
     assertEquals(HttpStatus.OK, response.getStatusCode());
     assertEquals(updatedTopic, response.getBody());
   }
 
+  @Test
+  void addMessageToTopic_withPreferMinimal_shouldReturnMessageOnly() {
+    UUID topicId = UUID.randomUUID();
+    Message message = new Message();
+    Message createdMessage = new Message();
+    createdMessage.setId(UUID.randomUUID());
+    User user = new User();
+    user.setId(1L);
+    when(userService.findByUsername("testuser")).thenReturn(Optional.of(user));
+    when(topicService.addMessageToTopic(topicId, message, user.getId())).thenReturn(createdMessage);
+
+    when(principal.getName()).thenReturn("testuser");
+
+    ResponseEntity<?> response =
+        forumController.addMessageToTopic(
+            topicId, message, null, "respond-async, return=minimal", principal);
+
+    assertEquals(HttpStatus.CREATED, response.getStatusCode());
+    assertEquals(createdMessage, response.getBody());
+    assertEquals("return=minimal", response.getHeaders().getFirst("Preference-Applied"));
+    verify(topicService, never()).getTopicById(topicId);
+  }
+
+  @Test
+  void updateMessageInTopic_withMessageView_shouldReturnMessageOnly() {
+    UUID topicId = UUID.randomUUID();
+    Message messageDetails = new Message();
+    Message updatedMessage = new Message();
+    User user = new User();
+    user.setId(1L);
+    when(userService.findByUsername("testuser")).thenReturn(Optional.of(user));
+    when(topicService.updateMessage(topicId, messageDetails, user.getId(), null))
+        .thenReturn(updatedMessage);
+
+    when(principal.getName()).thenReturn("testuser");
+
+    ResponseEntity<?> response =
+        forumController.updateMessageInTopic(
+            topicId, messageDetails, "message", null, null, principal);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(updatedMessage, response.getBody());
+    verify(topicService, never()).updateMessageInTopic(topicId, messageDetails, user.getId(), null);
+  }
+
+  @Test
+  void deleteMessage_withCachedPrincipal_shouldNotLookUpUser() {
+    UUID messageId = UUID.randomUUID();
+    UserPrincipal userPrincipal = new UserPrincipal(5L, "testuser", null, List.of("USER"));
+    Authentication authentication =
+        new UsernamePasswordAuthenticationToken(
+            userPrincipal, null, userPrincipal.getAuthorities());
+
+    ResponseEntity<?> response = forumController.deleteMessage(messageId, authentication);
+
+    assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+    verify(topicService).deleteMessage(messageId, 5L);
+    verify(userService, never()).findByUsername(anyString());
+  }
+
   @Test
   void deleteMessage_shouldReturnNoContent() {
     UUID messageId = UUID.randomUUID();
@@ -167,9 +350,228 @@ class ForumControllerTest {
     when(topicService.getTopicMessage(topicId, pageable)).thenReturn(messages);
 
     ResponseEntity<Page<Message>> response =
-        forumController.getMessagesByTopicId(topicId, pageable);
+        forumController.getMessagesByTopicId(topicId, pageable, request);
 
     assertEquals(HttpStatus.OK, response.getStatusCode());
     assertEquals(messages, response.getBody());
   }
+
+  @Test
+  void getMessagesByCursor_shouldReturnCursorPage() {
+    UUID topicId = UUID.randomUUID();
+    CursorPageDTO<Message> messages = new CursorPageDTO<>(new ArrayList<>(), null, null);
+    when(topicService.getTopicMessagesByCursor(topicId, "cursor", null, 10)).thenReturn(messages);
+
+    ResponseEntity<CursorPageDTO<Message>> response =
+        forumController.getMessagesByCursor(topicId, "cursor", null, 10, request);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(messages, response.getBody());
+  }
+
+  @Test
+  void addMessages_shouldReturnPerItemResults() {
+    UUID topicId = UUID.randomUUID();
+    MessageBatchItemDTO item = new MessageBatchItemDTO();
+    item.setTopicId(topicId);
+    item.setText("Batch message");
+    List<MessageBatchItemDTO> items = List.of(item);
+    List<MessageBatchResultDTO> results =
+        List.of(MessageBatchResultDTO.created(0, topicId, UUID.randomUUID(), null));
+    UserPrincipal userPrincipal = new UserPrincipal(1L, "testuser", null, List.of("USER"));
+    Authentication authentication =
+        new UsernamePasswordAuthenticationToken(userPrincipal, null, List.of());
+    when(topicService.addMessages(items, 1L)).thenReturn(results);
+
+    ResponseEntity<List<MessageBatchResultDTO>> response =
+        forumController.addMessages(items, authentication);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(results, response.getBody());
+    verify(userService, never()).findByUsername(anyString());
+  }
+
+  @Test
+  void search_shouldReturnHits() {
+    UUID topicId = UUID.randomUUID();
+    List<SearchHitDTO> hits =
+        List.of(new SearchHitDTO(SearchHitDTO.TOPIC, topicId, topicId, 1.5, "Caffeine"));
+    when(searchService.search("caffeine", 10)).thenReturn(hits);
+
+    ResponseEntity<List<SearchHitDTO>> response = forumController.search("caffeine", 10);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(hits, response.getBody());
+  }
+
+  @Test
+  void streamTopic_shouldSubscribeToExistingTopic() {
+    UUID topicId = UUID.randomUUID();
+    SseEmitter emitter = new SseEmitter();
+    when(topicStreamService.subscribe(topicId, "abc-7")).thenReturn(emitter);
+
+    SseEmitter response = forumController.streamTopic(topicId, "abc-7");
+
+    assertSame(emitter, response);
+    verify(topicService).getTopicRevision(topicId);
+  }
+
+  @Test
+  void streamTopic_unknownTopic_shouldNotSubscribe() {
+    UUID topicId = UUID.randomUUID();
+    when(topicService.getTopicRevision(topicId))
+        .thenThrow(new NotAuthorizedException("Topic not found"));
+
+    assertThrows(NotAuthorizedException.class, () -> forumController.streamTopic(topicId, null));
+    verifyNoInteractions(topicStreamService);
+  }
+
+  @Test
+  void getTopicChanges_shouldReturnChangesSinceToken() {
+    UUID topicId = UUID.randomUUID();
+    TopicChangesDTO changes =
+        new TopicChangesDTO(List.of(new Message()), List.of(UUID.randomUUID()), "12", false);
+    when(topicService.getTopicChanges(topicId, "9", 500)).thenReturn(changes);
+
+    ResponseEntity<TopicChangesDTO> response = forumController.getTopicChanges(topicId, "9", 500);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertSame(changes, response.getBody());
+  }
+
+  @Test
+  void exportTopic_shouldStreamNdjsonAndHonourGzip() throws Exception {
+    UUID topicId = UUID.randomUUID();
+    MockHttpServletResponse plain = new MockHttpServletResponse();
+    MockHttpServletResponse compressed = new MockHttpServletResponse();
+    MockHttpServletResponse refused = new MockHttpServletResponse();
+
+    forumController.exportTopic(topicId, null, plain);
+    forumController.exportTopic(topicId, "deflate, gzip;q=0.5", compressed);
+    forumController.exportTopic(topicId, "gzip;q=0", refused);
+
+    assertEquals("application/x-ndjson;charset=UTF-8", plain.getContentType());
+    assertTrue(plain.getHeader(HttpHeaders.CONTENT_DISPOSITION).contains("attachment"));
+    assertNull(plain.getHeader(HttpHeaders.CONTENT_ENCODING));
+    assertEquals("gzip", compressed.getHeader(HttpHeaders.CONTENT_ENCODING));
+    assertNull(refused.getHeader(HttpHeaders.CONTENT_ENCODING));
+    verify(topicExportService).export(topicId, plain.getOutputStream(), false);
+    verify(topicExportService).export(topicId, compressed.getOutputStream(), true);
+    verify(topicExportService).export(topicId, refused.getOutputStream(), false);
+  }
+
+  /**
+   * Проверяет бюджеты SQL-запросов ({@code @QueryBudget}) методов контроллера на настоящей базе
+   * данных: в тестовом режиме превышение бюджета завершает запрос исключением, и тест падает.
+   */
+  @Nested
+  @SpringBootTest(
+      properties = {"spring.jpa.show-sql=false", "forum.query-budget.fail-on-exceed=true"})
+  @AutoConfigureMockMvc
+  class QueryBudgets {
+
+    @Autowired private MockMvc mvc;
+
+    private String auth;
+
+    @BeforeEach
+    void signUp() throws Exception {
+      MvcResult signUp =
+          mvc.perform(
+                  post("/api/v1/sign-up")
+                      .contentType(MediaType.APPLICATION_JSON)
+                      .content(
+                          "{\"username\":\"budget-"
+                              + UUID.randomUUID()
+                              + "\",\"password\":\"secret\"}"))
+              .andExpect(request().asyncStarted())
+              .andReturn();
+      String token =
+          mvc.perform(asyncDispatch(signUp))
+              .andExpect(status().isOk())
+              .andReturn()
+              .getResponse()
+              .getContentAsString();
+      auth = "Bearer " + token;
+    }
+
+    @Test
+    void readEndpoints_shouldStayWithinQueryBudgets() throws Exception {
+      String topicId = null;
+      // Страница тем больше одной темы: ленивые сообщения каждой темы не должны загружаться
+      // отдельным запросом (N+1).
+      for (int i = 0; i < 6; i++) {
+        topicId = createTopic("Budget " + i);
+        perform(
+                post("/api/v1/topic/" + topicId + "/message")
+                    .header("Prefer", "return=minimal")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"text\":\"reply " + i + "\"}"))
+            .andExpect(status().isCreated());
+      }
+
+      perform(get("/api/v1/topic")).andExpect(status().isOk());
+      perform(get("/api/v1/topic/summary")).andExpect(status().isOk());
+      perform(get("/api/v1/topic/" + topicId)).andExpect(status().isOk());
+      perform(get("/api/v1/topic/" + topicId + "/message")).andExpect(status().isOk());
+      perform(get("/api/v1/topic/" + topicId + "/message/cursor")).andExpect(status().isOk());
+      perform(get("/api/v1/topic/" + topicId + "/changes")).andExpect(status().isOk());
+      perform(get("/api/v1/topic/" + topicId + "/export")).andExpect(status().isOk());
+      perform(get("/api/v1/search").param("q", "reply")).andExpect(status().isOk());
+    }
+
+    @Test
+    void writeEndpoints_shouldStayWithinQueryBudgets() throws Exception {
+      String topicId = createTopic("Budget writes");
+      String message =
+          perform(
+                  post("/api/v1/topic/" + topicId + "/message")
+                      .header("Prefer", "return=minimal")
+                      .contentType(MediaType.APPLICATION_JSON)
+                      .content("{\"text\":\"draft\"}"))
+              .andExpect(status().isCreated())
+              .andReturn()
+              .getResponse()
+              .getContentAsString();
+      String messageId = JsonPath.read(message, "$.id");
+
+      perform(
+              put("/api/v1/topic")
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content("{\"id\":\"" + topicId + "\",\"topicName\":\"Budget writes, renamed\"}"))
+          .andExpect(status().isOk());
+      perform(
+              put("/api/v1/topic/" + topicId + "/message")
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content("{\"id\":\"" + messageId + "\",\"text\":\"edited\"}"))
+          .andExpect(status().isOk());
+      perform(
+              put("/api/v1/topic/" + topicId + "/message")
+                  .header("Prefer", "return=minimal")
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content("{\"id\":\"" + messageId + "\",\"text\":\"edited again\"}"))
+          .andExpect(status().isOk());
+      perform(delete("/api/v1/message/" + messageId)).andExpect(status().isNoContent());
+    }
+
+    private String createTopic(String title) throws Exception {
+      String topic =
+          perform(
+                  post("/api/v1/topic")
+                      .contentType(MediaType.APPLICATION_JSON)
+                      .content(
+                          "{\"topicName\":\""
+                              + title
+                              + "\",\"message\":{\"text\":\"first post\"}}"))
+              .andExpect(status().isCreated())
+              .andReturn()
+              .getResponse()
+              .getContentAsString();
+      return JsonPath.read(topic, "$.id");
+    }
+
+    private ResultActions perform(MockHttpServletRequestBuilder request) throws Exception {
+      return mvc.perform(request.header(HttpHeaders.AUTHORIZATION, auth));
+    }
+  }
 }
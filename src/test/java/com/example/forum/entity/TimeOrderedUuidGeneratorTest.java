@@ -0,0 +1,59 @@
+package com.example.forum.entity;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+public class TimeOrderedUuidGeneratorTest {
+
+  @Test
+  public void next_ReturnsVersion7Uuid() {
+    UUID uuid = TimeOrderedUuidGenerator.next();
+
+    assertEquals(7, uuid.version());
+    assertEquals(2, uuid.variant());
+    long timestamp = uuid.getMostSignificantBits() >>> 16;
+    assertTrue(Math.abs(System.currentTimeMillis() - timestamp) < 60_000);
+  }
+
+  @Test
+  public void next_IsStrictlyIncreasingWithinMillisecond() {
+    List<UUID> uuids = new ArrayList<>();
+    for (int i = 0; i < 10_000; i++) {
+      uuids.add(TimeOrderedUuidGenerator.next());
+    }
+
+    for (int i = 1; i < uuids.size(); i++) {
+      assertTrue(
+          Long.compareUnsigned(
+                  uuids.get(i - 1).getMostSignificantBits(), uuids.get(i).getMostSignificantBits())
+              < 0);
+    }
+  }
+
+  @Test
+  public void next_IsUniqueAcrossThreads() throws InterruptedException {
+    List<UUID> uuids = Collections.synchronizedList(new ArrayList<>());
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      Thread thread =
+          new Thread(
+              () -> {
+                for (int i = 0; i < 5_000; i++) {
+                  uuids.add(TimeOrderedUuidGenerator.next());
+                }
+              });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(20_000, uuids.stream().map(UUID::getMostSignificantBits).distinct().count());
+  }
+}
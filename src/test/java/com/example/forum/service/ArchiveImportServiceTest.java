@@ -0,0 +1,261 @@
+package com.example.forum.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.example.forum.dto.ImportResultDTO;
+import com.example.forum.exception.BadRequestException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Проверяет импорт NDJSON-архива пачками и его продолжение с контрольной точки. Тесты выполняются
+ * без общей транзакции, потому что каждая пачка импорта фиксируется отдельно.
+ */
+@DataJpaTest(properties = {"spring.jpa.show-sql=false", "forum.import.batch-size=2"})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ArchiveImportService.class, TopicCache.class, SimpleMeterRegistry.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+public class ArchiveImportServiceTest {
+
+  private static final String ARCHIVE =
+      String.join(
+          "\n",
+          "{\"type\":\"topic\",\"id\":\"t1\",\"title\":\"First\",\"author\":\"alice\","
+              + "\"created\":\"2015-03-01T10:00:00Z\"}",
+          "{\"type\":\"message\",\"topic\":\"t1\",\"author\":\"alice\",\"text\":\"hello\","
+              + "\"created\":\"2015-03-01T10:00:00Z\"}",
+          "{\"type\":\"message\",\"topic\":\"t1\",\"author\":\"bob\",\"text\":\"hi\","
+              + "\"created\":\"2015-03-01T11:00:00Z\"}",
+          "not json",
+          "{\"type\":\"topic\",\"id\":\"t2\",\"title\":\"Second\",\"author\":\"bob\"}",
+          "",
+          "{\"type\":\"message\",\"topic\":\"t2\",\"author\":\"bob\",\"text\":\"second\"}",
+          "{\"type\":\"message\",\"topic\":\"missing\",\"author\":\"bob\",\"text\":\"lost\"}",
+          "{\"type\":\"message\",\"topic\":\"t1\",\"author\":\"carol\",\"text\":\"late\","
+              + "\"created\":\"2015-03-02T09:00:00Z\"}");
+
+  @Autowired private ArchiveImportService importService;
+  @Autowired private JdbcTemplate jdbc;
+  @MockBean private SearchService searchService;
+  @SpyBean private TopicCache topicCache;
+
+  @AfterEach
+  public void cleanup() {
+    jdbc.update("DELETE FROM message");
+    jdbc.update("DELETE FROM topic");
+    jdbc.update("DELETE FROM import_checkpoint");
+    jdbc.update("DELETE FROM users");
+  }
+
+  @Test
+  public void importArchive_SavesTopicsMessagesAndAuthors() throws Exception {
+    jdbc.update("INSERT INTO users (username, password) VALUES ('alice', 'secret')");
+
+    ImportResultDTO result = importService.importArchive("job", stream(ARCHIVE));
+
+    assertEquals(0, result.getResumedFromLine());
+    assertEquals(9, result.getLastLine());
+    assertEquals(2, result.getTopics());
+    assertEquals(4, result.getMessages());
+    assertEquals(2, result.getCreatedUsers());
+    assertEquals(2, result.getRejected());
+
+    Map<String, Object> first =
+        jdbc.queryForMap(
+            "SELECT message_count, revision, last_message_at FROM topic WHERE id = ?",
+            ArchiveImportService.topicId("t1"));
+    assertEquals(3L, ((Number) first.get("message_count")).longValue());
+    // Сообщения темы попали в три разные пачки, и каждая увеличила ревизию.
+    assertEquals(3L, ((Number) first.get("revision")).longValue());
+    assertEquals(
+        3L,
+        jdbc.queryForObject(
+            "SELECT MAX(change_seq) FROM message WHERE topic_id = ?",
+            Long.class,
+            ArchiveImportService.topicId("t1")));
+    assertNotNull(first.get("last_message_at"));
+    assertEquals(
+        List.of("bob", "carol"),
+        jdbc.queryForList(
+            "SELECT username FROM users WHERE password = ? ORDER BY username",
+            String.class,
+            ArchiveImportService.IMPORTED_PASSWORD));
+    assertEquals(
+        "alice",
+        jdbc.queryForObject(
+            "SELECT u.username FROM topic t JOIN users u ON u.id = t.user_id WHERE t.id = ?",
+            String.class,
+            ArchiveImportService.topicId("t1")));
+    verify(searchService).rebuildIndex();
+  }
+
+  @Test
+  public void importArchive_AfterFailure_ResumesFromCheckpoint() throws Exception {
+    byte[] archive = ARCHIVE.getBytes(StandardCharsets.UTF_8);
+    int failAt = ARCHIVE.indexOf("not json");
+
+    assertThrows(
+        IOException.class, () -> importService.importArchive("job", failing(archive, failAt)));
+    long checkpoint =
+        jdbc.queryForObject(
+            "SELECT line_number FROM import_checkpoint WHERE job_id = 'job'", Long.class);
+    assertEquals(2, checkpoint);
+
+    ImportResultDTO resumed = importService.importArchive("job", stream(ARCHIVE));
+
+    assertEquals(2, resumed.getResumedFromLine());
+    assertEquals(4, jdbc.queryForObject("SELECT COUNT(*) FROM message", Integer.class));
+    assertEquals(2, jdbc.queryForObject("SELECT COUNT(*) FROM topic", Integer.class));
+    assertEquals(
+        3L,
+        jdbc.queryForObject(
+            "SELECT message_count FROM topic WHERE id = ?",
+            Long.class,
+            ArchiveImportService.topicId("t1")));
+  }
+
+  @Test
+  public void importArchive_CompletedJob_ImportsNothing() throws Exception {
+    importService.importArchive("job", stream(ARCHIVE));
+
+    ImportResultDTO repeated = importService.importArchive("job", stream(ARCHIVE));
+
+    assertEquals(9, repeated.getResumedFromLine());
+    assertEquals(0, repeated.getTopics() + repeated.getMessages() + repeated.getRejected());
+    assertEquals(4, jdbc.queryForObject("SELECT COUNT(*) FROM message", Integer.class));
+  }
+
+  @Test
+  public void importArchive_InvalidatesTopicsInsideBatchTransaction() throws Exception {
+    List<Boolean> inTransaction = new ArrayList<>();
+    doAnswer(
+            invocation -> {
+              inTransaction.add(TransactionSynchronizationManager.isActualTransactionActive());
+              return invocation.callRealMethod();
+            })
+        .when(topicCache)
+        .invalidate(any(UUID.class));
+
+    importService.importArchive("job", stream(ARCHIVE));
+
+    assertFalse(inTransaction.isEmpty());
+    assertFalse(inTransaction.contains(false));
+  }
+
+  @Test
+  public void importArchive_PersistFails_ClosesStreamAndStopsParser() throws Exception {
+    doThrow(new IllegalStateException("Database is down"))
+        .when(topicCache)
+        .invalidate(any(UUID.class));
+    byte[] archive = ARCHIVE.getBytes(StandardCharsets.UTF_8);
+    StalledStream in = new StalledStream(archive, ARCHIVE.indexOf("not json"));
+
+    assertThrows(IllegalStateException.class, () -> importService.importArchive("job", in));
+
+    // Разбор ждал данных от клиента; к возврату из импорта поток закрыт, а разбор завершен.
+    assertEquals(0, in.closed.getCount());
+    assertNotNull(in.reader);
+    assertFalse(in.reader.isAlive());
+  }
+
+  @Test
+  public void importArchive_InvalidJobId_ThrowsBadRequest() {
+    assertThrows(BadRequestException.class, () -> importService.importArchive(" ", stream("")));
+    assertThrows(
+        BadRequestException.class, () -> importService.importArchive("x".repeat(101), stream("")));
+  }
+
+  private static InputStream stream(String archive) {
+    return new ByteArrayInputStream(archive.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Поток, отдающий начало архива и затем ждущий данных от клиента до закрытия. */
+  private static class StalledStream extends InputStream {
+    private final InputStream available;
+    private final CountDownLatch closed = new CountDownLatch(1);
+    private volatile Thread reader;
+
+    StalledStream(byte[] archive, int stallAt) {
+      this.available = new ByteArrayInputStream(archive, 0, stallAt);
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      reader = Thread.currentThread();
+      int n = available.read(buffer, offset, length);
+      if (n >= 0) {
+        return n;
+      }
+      // Как и чтение из сокета, ожидание не отменяется прерыванием потока.
+      boolean interrupted = false;
+      while (closed.getCount() > 0) {
+        try {
+          closed.await();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      throw new IOException("Stream closed");
+    }
+
+    @Override
+    public void close() {
+      closed.countDown();
+    }
+  }
+
+  /** Поток, обрывающийся ошибкой чтения на заданном байте, как прерванная загрузка. */
+  private static InputStream failing(byte[] archive, int failAt) {
+    return new FilterInputStream(new ByteArrayInputStream(archive, 0, failAt)) {
+      @Override
+      public int read() throws IOException {
+        int b = super.read();
+        if (b < 0) {
+          throw new IOException("Connection reset");
+        }
+        return b;
+      }
+
+      @Override
+      public int read(byte[] buffer, int offset, int length) throws IOException {
+        int n = super.read(buffer, offset, length);
+        if (n < 0) {
+          throw new IOException("Connection reset");
+        }
+        return n;
+      }
+    };
+  }
+}
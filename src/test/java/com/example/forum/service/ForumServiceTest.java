@@ -2,18 +2,38 @@ package com.example.forum.service;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
+import com.example.forum.dto.CursorPageDTO;
+import com.example.forum.dto.MessageBatchItemDTO;
+import com.example.forum.dto.MessageBatchResultDTO;
+import com.example.forum.dto.MessageCursor;
 import com.example.forum.dto.MessageDTO;
+import com.example.forum.dto.TopicChangesDTO;
 import com.example.forum.dto.TopicDTO;
+import com.example.forum.dto.TopicRevisionDTO;
+import com.example.forum.dto.TopicSummaryDTO;
 import com.example.forum.entity.Message;
+import com.example.forum.entity.MessageTombstone;
 import com.example.forum.entity.Topic;
 import com.example.forum.entity.User;
+import com.example.forum.event.MessageChangedEvent;
+import com.example.forum.event.TopicChangedEvent;
+import com.example.forum.exception.BadRequestException;
+import com.example.forum.exception.ConflictException;
 import com.example.forum.exception.NotAuthorizedException;
+import com.example.forum.exception.PreconditionFailedException;
 import com.example.forum.repository.MessageRepository;
+import com.example.forum.repository.MessageTombstoneRepository;
 import com.example.forum.repository.TopicRepository;
 import com.example.forum.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -22,21 +42,33 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 
 public class ForumServiceTest {
 
   @Mock private UserRepository userRepository;
   @Mock private TopicRepository topicRepository;
   @Mock private MessageRepository messageRepository;
+  @Mock private MessageTombstoneRepository messageTombstoneRepository;
+  @Mock private ApplicationEventPublisher eventPublisher;
+
+  @Spy
+  private TopicCache topicCache =
+      new TopicCache(1000, Duration.ofMinutes(1), 3, 64, new SimpleMeterRegistry());
 
   @InjectMocks private ForumService forumService;
 
   @BeforeEach
   public void setup() {
     MockitoAnnotations.openMocks(this);
+    when(topicRepository.findRevision(any(UUID.class)))
+        .thenReturn(Optional.of(new TopicRevisionDTO(7L, OffsetDateTime.now())));
   }
 
   @Test
@@ -95,6 +127,29 @@ public class ForumServiceTest {
     verify(topicRepository, times(1)).findAll(pageable);
   }
 
+  @Test
+  public void getTopicSummaries_ReturnsPageOfSummaries() {
+    PageRequest pageable = PageRequest.of(0, 10);
+    TopicSummaryDTO summary =
+        new TopicSummaryDTO(
+            UUID.randomUUID(),
+            "Topic",
+            OffsetDateTime.now(),
+            "author",
+            3L,
+            OffsetDateTime.now(),
+            "First message");
+    Page<TopicSummaryDTO> expected = new PageImpl<>(List.of(summary));
+
+    when(topicRepository.findSummaries(pageable)).thenReturn(expected);
+
+    Page<TopicSummaryDTO> actual = forumService.getTopicSummaries(pageable);
+
+    assertEquals(expected, actual);
+    verify(topicRepository, times(1)).findSummaries(pageable);
+    verify(topicRepository, never()).findAll(any(Pageable.class));
+  }
+
   @Test
   public void getTopicById_ValidId_ReturnsTopic() {
     UUID topicId = UUID.randomUUID();
@@ -104,8 +159,10 @@ public class ForumServiceTest {
     when(topicRepository.findById(topicId)).thenReturn(Optional.of(expectedTopic));
 
     Topic actualTopic = forumService.getTopicById(topicId);
+    Topic cachedTopic = forumService.getTopicById(topicId);
 
     assertEquals(expectedTopic.getId(), actualTopic.getId());
+    assertSame(actualTopic, cachedTopic);
     verify(topicRepository, times(1)).findById(topicId);
   }
 
@@ -134,16 +191,71 @@ public class ForumServiceTest {
     existingTopic.setTitle("Original Topic");
     existingTopic.setUser(user);
 
-    when(topicRepository.findById(topicId)).thenReturn(Optional.of(existingTopic));
+    Topic updatedTopic = new Topic();
+    updatedTopic.setId(topicId);
+    updatedTopic.setTitle("Updated Topic");
+    updatedTopic.setRevision(1);
+
+    when(topicRepository.findById(topicId))
+        .thenReturn(Optional.of(existingTopic), Optional.of(updatedTopic));
     when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-    when(topicRepository.save(any(Topic.class))).thenReturn(existingTopic);
+    when(topicRepository.updateTitle(
+            eq(topicId), eq("Updated Topic"), eq(0L), any(OffsetDateTime.class)))
+        .thenReturn(1);
 
-    Topic actualTopic = forumService.updateTopic(topicDto, 1L);
+    Topic actualTopic = forumService.updateTopic(topicDto, 1L, 0L);
 
     assertEquals(topicDto.getTopicName(), actualTopic.getTitle());
-    verify(topicRepository, times(1)).findById(topicId);
+    assertEquals(1, actualTopic.getRevision());
+    verify(topicRepository, times(2)).findById(topicId);
     verify(userRepository, times(1)).findById(1L);
-    verify(topicRepository, times(1)).save(any(Topic.class));
+    verify(topicRepository, never()).save(any(Topic.class));
+  }
+
+  @Test
+  public void updateTopic_StaleRevision_ThrowsPreconditionFailed() {
+    UUID topicId = UUID.randomUUID();
+    TopicDTO topicDto = new TopicDTO();
+    topicDto.setId(topicId);
+    topicDto.setTopicName("Updated Topic");
+
+    User user = new User();
+    user.setId(1L);
+
+    Topic existingTopic = new Topic();
+    existingTopic.setId(topicId);
+    existingTopic.setUser(user);
+    existingTopic.setRevision(5);
+
+    when(topicRepository.findById(topicId)).thenReturn(Optional.of(existingTopic));
+    when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+
+    assertThrows(
+        PreconditionFailedException.class, () -> forumService.updateTopic(topicDto, 1L, 4L));
+    verify(topicRepository, never()).updateTitle(any(), any(), anyLong(), any());
+  }
+
+  @Test
+  public void updateTopic_ConcurrentUpdate_ThrowsConflict() {
+    UUID topicId = UUID.randomUUID();
+    TopicDTO topicDto = new TopicDTO();
+    topicDto.setId(topicId);
+    topicDto.setTopicName("Updated Topic");
+
+    User user = new User();
+    user.setId(1L);
+
+    Topic existingTopic = new Topic();
+    existingTopic.setId(topicId);
+    existingTopic.setUser(user);
+    existingTopic.setRevision(5);
+
+    when(topicRepository.findById(topicId)).thenReturn(Optional.of(existingTopic));
+    when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+    when(topicRepository.updateTitle(eq(topicId), any(), eq(5L), any())).thenReturn(0);
+
+    assertThrows(ConflictException.class, () -> forumService.updateTopic(topicDto, 1L, null));
+    verify(eventPublisher, never()).publishEvent(any(Object.class));
   }
 
   @Test
@@ -165,7 +277,7 @@ public class ForumServiceTest {
     when(topicRepository.findById(topicId)).thenReturn(Optional.of(existingTopic));
     when(userRepository.findById(1L)).thenReturn(Optional.of(user));
 
-    assertThrows(NotAuthorizedException.class, () -> forumService.updateTopic(topicDto, 1L));
+    assertThrows(NotAuthorizedException.class, () -> forumService.updateTopic(topicDto, 1L, null));
     verify(topicRepository, times(1)).findById(topicId);
     verify(userRepository, times(1)).findById(1L);
     verify(topicRepository, never()).save(any(Topic.class));
@@ -185,8 +297,10 @@ public class ForumServiceTest {
     existingTopic.setId(topicId);
 
     when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-    when(topicRepository.findById(topicId)).thenReturn(Optional.of(existingTopic));
-    when(topicRepository.save(any(Topic.class))).thenReturn(existingTopic);
+    when(topicRepository.incrementMessageCount(eq(topicId), eq(1L), any(OffsetDateTime.class)))
+        .thenReturn(1);
+    when(topicRepository.getReferenceById(topicId)).thenReturn(existingTopic);
+    when(messageRepository.save(any(Message.class))).thenAnswer(i -> i.getArgument(0));
 
     Message actualMessage = forumService.addMessageToTopic(topicId, message, 1L);
 
@@ -194,9 +308,79 @@ public class ForumServiceTest {
     assertEquals(user.getUsername(), actualMessage.getAuthor());
     assertNotNull(actualMessage.getCreated());
     assertEquals(existingTopic, actualMessage.getTopic());
+    assertEquals(7, actualMessage.getChangeSequence());
+    assertTrue(existingTopic.getMessages().isEmpty());
+    verify(topicRepository, times(1)).incrementMessageCount(topicId, 1, actualMessage.getCreated());
     verify(userRepository, times(1)).findById(1L);
-    verify(topicRepository, times(1)).findById(topicId);
-    verify(topicRepository, times(1)).save(any(Topic.class));
+    verify(messageRepository, times(1)).save(message);
+    verify(topicRepository, never()).findById(topicId);
+    verify(topicRepository, never()).save(any(Topic.class));
+  }
+
+  @Test
+  public void addMessageToTopic_UnknownTopic_ThrowsException() {
+    UUID topicId = UUID.randomUUID();
+    User user = new User();
+    user.setId(1L);
+
+    when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+    when(topicRepository.incrementMessageCount(eq(topicId), eq(1L), any(OffsetDateTime.class)))
+        .thenReturn(0);
+
+    assertThrows(
+        NotAuthorizedException.class,
+        () -> forumService.addMessageToTopic(topicId, new Message(), 1L));
+    verify(messageRepository, never()).save(any(Message.class));
+  }
+
+  @Test
+  public void addMessages_MixedItems_ReturnsPerItemResults() {
+    UUID topicId = UUID.randomUUID();
+    UUID missingTopicId = UUID.randomUUID();
+    User user = new User();
+    user.setId(1L);
+    user.setUsername("Test Author");
+    Topic topic = new Topic();
+    topic.setId(topicId);
+
+    when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+    when(topicRepository.incrementMessageCount(eq(topicId), eq(2L), any(OffsetDateTime.class)))
+        .thenReturn(1);
+    when(topicRepository.incrementMessageCount(
+            eq(missingTopicId), eq(1L), any(OffsetDateTime.class)))
+        .thenReturn(0);
+    when(topicRepository.getReferenceById(topicId)).thenReturn(topic);
+
+    List<MessageBatchResultDTO> results =
+        forumService.addMessages(
+            List.of(
+                batchItem(topicId, "first"),
+                batchItem(missingTopicId, "lost"),
+                batchItem(topicId, null),
+                batchItem(topicId, "second")),
+            1L);
+
+    assertEquals(4, results.size());
+    assertEquals(MessageBatchResultDTO.CREATED, results.get(0).getStatus());
+    assertEquals(MessageBatchResultDTO.REJECTED, results.get(1).getStatus());
+    assertEquals("Topic not found", results.get(1).getError());
+    assertEquals(MessageBatchResultDTO.REJECTED, results.get(2).getStatus());
+    assertEquals(MessageBatchResultDTO.CREATED, results.get(3).getStatus());
+    assertTrue(results.get(0).getCreated().isBefore(results.get(3).getCreated()));
+    verify(userRepository, times(1)).findById(1L);
+    verify(messageRepository, times(1)).saveAll(argThat(messages -> sizeOf(messages) == 2));
+    verify(messageRepository, never()).save(any(Message.class));
+  }
+
+  @Test
+  public void addMessages_TooManyItems_ThrowsException() {
+    List<MessageBatchItemDTO> items = new ArrayList<>();
+    for (int i = 0; i < 501; i++) {
+      items.add(batchItem(UUID.randomUUID(), "text"));
+    }
+
+    assertThrows(BadRequestException.class, () -> forumService.addMessages(items, 1L));
+    verify(messageRepository, never()).saveAll(any());
   }
 
   @Test
@@ -223,16 +407,55 @@ public class ForumServiceTest {
     when(topicRepository.findById(topicId)).thenReturn(Optional.of(existingTopic));
     when(messageRepository.findById(messageId)).thenReturn(Optional.of(existingMessage));
     when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-    when(messageRepository.save(any(Message.class))).thenReturn(existingMessage);
+    when(messageRepository.updateText(messageId, "Updated Message", 0L, 7L)).thenReturn(1);
 
-    Topic actualTopic = forumService.updateMessageInTopic(topicId, messageDetails, 1L);
+    Topic actualTopic = forumService.updateMessageInTopic(topicId, messageDetails, 1L, 0L);
 
     assertEquals(existingTopic, actualTopic);
     assertEquals(messageDetails.getText(), existingMessage.getText());
+    assertEquals(1, existingMessage.getVersion());
+    assertEquals(7, existingMessage.getChangeSequence());
     verify(topicRepository, times(1)).findById(topicId);
     verify(messageRepository, times(1)).findById(messageId);
     verify(userRepository, times(1)).findById(1L);
-    verify(messageRepository, times(1)).save(any(Message.class));
+    verify(topicRepository, times(1)).incrementRevision(eq(topicId), any(OffsetDateTime.class));
+    verify(messageRepository, never()).save(any(Message.class));
+  }
+
+  @Test
+  public void updateMessage_ConcurrentUpdate_ThrowsConflict() {
+    UUID topicId = UUID.randomUUID();
+    UUID messageId = UUID.randomUUID();
+    Message messageDetails = new Message();
+    messageDetails.setId(messageId);
+    messageDetails.setText("Updated Message");
+
+    User user = new User();
+    user.setId(1L);
+    user.setUsername("Test Author");
+
+    Topic existingTopic = new Topic();
+    existingTopic.setId(topicId);
+
+    Message existingMessage = new Message();
+    existingMessage.setId(messageId);
+    existingMessage.setAuthor(user.getUsername());
+    existingMessage.setTopic(existingTopic);
+    existingMessage.setVersion(3);
+
+    when(messageRepository.findById(messageId)).thenReturn(Optional.of(existingMessage));
+    when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+    when(messageRepository.updateText(messageId, "Updated Message", 3L, 7L)).thenReturn(0);
+
+    assertThrows(
+        ConflictException.class,
+        () -> forumService.updateMessage(topicId, messageDetails, 1L, null));
+    assertThrows(
+        PreconditionFailedException.class,
+        () -> forumService.updateMessage(topicId, messageDetails, 1L, 2L));
+    // Ревизия темы увеличивается до UPDATE сообщения и откатывается вместе с транзакцией.
+    verify(topicRepository, times(1)).incrementRevision(eq(topicId), any(OffsetDateTime.class));
+    verify(eventPublisher, never()).publishEvent(any());
   }
 
   @Test
@@ -264,8 +487,8 @@ public class ForumServiceTest {
 
     assertThrows(
         NotAuthorizedException.class,
-        () -> forumService.updateMessageInTopic(topicId, messageDetails, 1L));
-    verify(topicRepository, times(1)).findById(topicId);
+        () -> forumService.updateMessageInTopic(topicId, messageDetails, 1L, null));
+    verify(topicRepository, never()).findById(topicId);
     verify(messageRepository, times(1)).findById(messageId);
     verify(userRepository, times(1)).findById(1L);
     verify(messageRepository, never()).save(any(Message.class));
@@ -290,15 +513,40 @@ public class ForumServiceTest {
 
     when(messageRepository.findById(messageId)).thenReturn(Optional.of(existingMessage));
     when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-    when(messageRepository.countByTopicId(topicId)).thenReturn(0L);
+    when(topicRepository.decrementMessageCount(eq(topicId), any(OffsetDateTime.class)))
+        .thenReturn(1);
+    when(topicRepository.deleteIfEmpty(topicId)).thenReturn(1);
 
     forumService.deleteMessage(messageId, 1L);
 
     verify(messageRepository, times(1)).findById(messageId);
     verify(userRepository, times(1)).findById(1L);
     verify(messageRepository, times(1)).delete(existingMessage);
-    verify(messageRepository, times(1)).countByTopicId(topicId);
-    verify(topicRepository, times(1)).deleteById(topicId);
+    verify(topicRepository, times(1)).decrementMessageCount(eq(topicId), any(OffsetDateTime.class));
+    verify(topicRepository, times(1)).deleteIfEmpty(topicId);
+    verify(messageTombstoneRepository)
+        .save(
+            argThat(
+                tombstone ->
+                    messageId.equals(tombstone.getMessageId())
+                        && topicId.equals(tombstone.getTopicId())
+                        && tombstone.getChangeSequence() == 7));
+    verify(messageTombstoneRepository, times(1)).deleteByTopicId(topicId);
+    verify(messageRepository, never()).countByTopicId(any(UUID.class));
+    verify(eventPublisher)
+        .publishEvent(
+            argThat(
+                (Object event) ->
+                    event instanceof MessageChangedEvent message
+                        && message.isDeleted()
+                        && messageId.equals(message.getMessageId())));
+    verify(eventPublisher)
+        .publishEvent(
+            argThat(
+                (Object event) ->
+                    event instanceof TopicChangedEvent deleted
+                        && deleted.isDeleted()
+                        && topicId.equals(deleted.getTopicId())));
   }
 
   @Test
@@ -324,8 +572,8 @@ public class ForumServiceTest {
     verify(messageRepository, times(1)).findById(messageId);
     verify(userRepository, times(1)).findById(1L);
     verify(messageRepository, never()).delete(any(Message.class));
-    verify(messageRepository, never()).countByTopicId(any(UUID.class));
-    verify(topicRepository, never()).deleteById(any(UUID.class));
+    verify(topicRepository, never()).decrementMessageCount(any(UUID.class), any());
+    verify(topicRepository, never()).deleteIfEmpty(any(UUID.class));
   }
 
   @Test
@@ -341,4 +589,161 @@ public class ForumServiceTest {
     assertEquals(expectedMessages.getSize(), actualMessages.getSize());
     verify(messageRepository, times(1)).findByTopicId(topicId, pageable);
   }
+
+  @Test
+  public void getTopicMessagesByCursor_FirstPage_ReturnsNextCursor() {
+    UUID topicId = UUID.randomUUID();
+    Message first = new Message();
+    first.setId(UUID.randomUUID());
+    first.setCreated(OffsetDateTime.now());
+    Message second = new Message();
+    second.setId(UUID.randomUUID());
+    second.setCreated(first.getCreated().plusSeconds(1));
+
+    when(messageRepository.findFirstSliceByTopicId(eq(topicId), any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(List.of(first, second), PageRequest.of(0, 2), true));
+
+    CursorPageDTO<Message> page = forumService.getTopicMessagesByCursor(topicId, null, null, 2);
+
+    assertEquals(2, page.getSize());
+    assertNull(page.getPrevious());
+    MessageCursor next = MessageCursor.decode(page.getNext());
+    assertEquals(second.getId(), next.getId());
+    assertEquals(second.getCreated().toInstant(), next.getCreated().toInstant());
+  }
+
+  @Test
+  public void getTopicMessagesByCursor_After_UsesKeysetQuery() {
+    UUID topicId = UUID.randomUUID();
+    Message anchor = new Message();
+    anchor.setId(UUID.randomUUID());
+    anchor.setCreated(OffsetDateTime.now());
+    String after = MessageCursor.of(anchor).encode();
+
+    when(messageRepository.findSliceAfter(
+            eq(topicId), any(OffsetDateTime.class), eq(anchor.getId()), any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(List.of()));
+
+    CursorPageDTO<Message> page = forumService.getTopicMessagesByCursor(topicId, after, null, 10);
+
+    assertEquals(0, page.getSize());
+    assertNull(page.getNext());
+    verify(messageRepository, never()).countByTopicId(any(UUID.class));
+  }
+
+  @Test
+  public void getTopicMessagesByCursor_Before_ReturnsAscendingOrder() {
+    UUID topicId = UUID.randomUUID();
+    Message anchor = new Message();
+    anchor.setId(UUID.randomUUID());
+    anchor.setCreated(OffsetDateTime.now());
+    Message older = new Message();
+    older.setId(UUID.randomUUID());
+    older.setCreated(anchor.getCreated().minusSeconds(2));
+    Message newer = new Message();
+    newer.setId(UUID.randomUUID());
+    newer.setCreated(anchor.getCreated().minusSeconds(1));
+
+    when(messageRepository.findSliceBefore(
+            eq(topicId), any(OffsetDateTime.class), eq(anchor.getId()), any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(List.of(newer, older), PageRequest.of(0, 2), false));
+
+    CursorPageDTO<Message> page =
+        forumService.getTopicMessagesByCursor(topicId, null, MessageCursor.of(anchor).encode(), 2);
+
+    assertEquals(List.of(older, newer), page.getContent());
+    assertNull(page.getPrevious());
+    assertEquals(newer.getId(), MessageCursor.decode(page.getNext()).getId());
+  }
+
+  @Test
+  public void getTopicMessagesByCursor_InvalidCursor_ThrowsException() {
+    assertThrows(
+        BadRequestException.class,
+        () -> forumService.getTopicMessagesByCursor(UUID.randomUUID(), "not-a-cursor", null, 10));
+  }
+
+  private static MessageBatchItemDTO batchItem(UUID topicId, String text) {
+    MessageBatchItemDTO item = new MessageBatchItemDTO();
+    item.setTopicId(topicId);
+    item.setText(text);
+    return item;
+  }
+
+  private static int sizeOf(Iterable<?> iterable) {
+    int size = 0;
+    for (Object ignored : iterable) {
+      size++;
+    }
+    return size;
+  }
+
+  @Test
+  public void getTopicChanges_WithinLimit_ReturnsAllChangesUpToRevision() {
+    UUID topicId = UUID.randomUUID();
+    UUID deletedId = UUID.randomUUID();
+    Message edited = changedMessage(5);
+    Message added = changedMessage(6);
+    when(messageRepository.findChanges(eq(topicId), eq(4L), eq(7L), any(Pageable.class)))
+        .thenReturn(List.of(edited, added));
+    when(messageTombstoneRepository.findChanges(eq(topicId), eq(4L), eq(7L), any(Pageable.class)))
+        .thenReturn(List.of(new MessageTombstone(deletedId, topicId, 7, OffsetDateTime.now())));
+
+    TopicChangesDTO changes = forumService.getTopicChanges(topicId, "4", 10);
+
+    assertEquals(List.of(edited, added), changes.getMessages());
+    assertEquals(List.of(deletedId), changes.getDeleted());
+    assertEquals("7", changes.getSyncToken());
+    assertFalse(changes.isHasMore());
+  }
+
+  @Test
+  public void getTopicChanges_OverLimit_StopsBeforeFirstExcludedSequence() {
+    UUID topicId = UUID.randomUUID();
+    Message first = changedMessage(1);
+    Message batchA = changedMessage(2);
+    Message batchB = changedMessage(2);
+    when(messageRepository.findChanges(eq(topicId), eq(-1L), eq(7L), any(Pageable.class)))
+        .thenReturn(List.of(first, batchA, batchB));
+
+    TopicChangesDTO changes = forumService.getTopicChanges(topicId, null, 2);
+
+    assertEquals(List.of(first), changes.getMessages());
+    assertEquals("1", changes.getSyncToken());
+    assertTrue(changes.isHasMore());
+  }
+
+  @Test
+  public void getTopicChanges_SequenceLargerThanLimit_ReturnsWholeSequence() {
+    UUID topicId = UUID.randomUUID();
+    Message batchA = changedMessage(3);
+    Message batchB = changedMessage(3);
+    Message batchC = changedMessage(3);
+    when(messageRepository.findChanges(eq(topicId), eq(2L), eq(7L), any(Pageable.class)))
+        .thenReturn(List.of(batchA, batchB, batchC));
+    when(messageRepository.findChanges(topicId, 2L, 3L, Pageable.unpaged()))
+        .thenReturn(List.of(batchA, batchB, batchC));
+
+    TopicChangesDTO changes = forumService.getTopicChanges(topicId, "2", 2);
+
+    assertEquals(3, changes.getMessages().size());
+    assertEquals("3", changes.getSyncToken());
+    assertTrue(changes.isHasMore());
+  }
+
+  @Test
+  public void getTopicChanges_InvalidToken_ThrowsBadRequest() {
+    UUID topicId = UUID.randomUUID();
+
+    assertThrows(BadRequestException.class, () -> forumService.getTopicChanges(topicId, "x", 10));
+    assertThrows(BadRequestException.class, () -> forumService.getTopicChanges(topicId, "8", 10));
+    verify(messageRepository, never()).findChanges(any(), anyLong(), anyLong(), any());
+  }
+
+  private static Message changedMessage(long changeSequence) {
+    Message message = new Message();
+    message.setId(UUID.randomUUID());
+    message.setChangeSequence(changeSequence);
+    return message;
+  }
 }
@@ -0,0 +1,78 @@
+package com.example.forum.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.forum.dto.SearchHitDTO;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+public class InvertedIndexTest {
+
+  private final InvertedIndex index = new InvertedIndex();
+  private final UUID topicId = UUID.randomUUID();
+
+  @Test
+  public void tokenize_SplitsOnNonLettersAndLowercases() {
+    assertEquals(
+        List.of("кэш", "caffeine", "3", "0", "настройка"),
+        InvertedIndex.tokenize("Кэш Caffeine-3.0: НАСТРОЙКА!"));
+  }
+
+  @Test
+  public void search_RanksByBm25() {
+    UUID shortMatch = put("caffeine cache");
+    UUID longMatch = put("caffeine is one of many libraries that can serve as a local cache");
+    UUID rareTerm = put("eviction");
+    put("nothing relevant here");
+    put("another cache");
+
+    List<SearchHitDTO> hits = index.search("caffeine", 10);
+    assertEquals(List.of(shortMatch, longMatch), ids(hits));
+    assertTrue(hits.get(0).getScore() > hits.get(1).getScore());
+
+    // Редкий терм весит больше частого.
+    assertEquals(rareTerm, index.search("cache eviction", 1).get(0).getId());
+  }
+
+  @Test
+  public void put_ExistingDocument_ReplacesPreviousVersion() {
+    UUID id = put("old words");
+    index.put(SearchHitDTO.MESSAGE, id, topicId, "new words");
+
+    assertTrue(index.search("old", 10).isEmpty());
+    assertEquals(List.of(id), ids(index.search("new", 10)));
+    assertEquals(1, index.size());
+  }
+
+  @Test
+  public void remove_ManyDocuments_CompactsAndKeepsRemaining() {
+    List<UUID> documents = new ArrayList<>();
+    for (int i = 0; i < 3000; i++) {
+      documents.add(put("common word" + i));
+    }
+    for (int i = 0; i < 2900; i++) {
+      index.remove(documents.get(i));
+    }
+
+    assertEquals(100, index.size());
+    assertEquals(List.of(documents.get(2950)), ids(index.search("word2950", 10)));
+    assertTrue(index.search("word10", 10).isEmpty());
+    assertEquals(documents.subList(2900, 2910), ids(index.search("common", 10)));
+  }
+
+  private UUID put(String text) {
+    UUID id = UUID.randomUUID();
+    index.put(SearchHitDTO.MESSAGE, id, topicId, text);
+    return id;
+  }
+
+  private static List<UUID> ids(List<SearchHitDTO> hits) {
+    List<UUID> ids = new ArrayList<>();
+    for (SearchHitDTO hit : hits) {
+      ids.add(hit.getId());
+    }
+    return ids;
+  }
+}
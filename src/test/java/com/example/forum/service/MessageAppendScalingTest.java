@@ -0,0 +1,138 @@
+package com.example.forum.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.forum.dto.MessageBatchItemDTO;
+import com.example.forum.entity.Message;
+import com.example.forum.entity.Topic;
+import com.example.forum.entity.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Проверяет, что добавление сообщения не загружает уже существующие сообщения темы: число
+ * загруженных сущностей и коллекций должно быть одинаковым для маленькой и большой темы. Пакетное
+ * добавление должно вставлять сообщения пакетами JDBC, а не отдельными запросами.
+ */
+@DataJpaTest(
+    properties = {
+      "spring.jpa.properties.hibernate.generate_statistics=true",
+      "spring.jpa.show-sql=false"
+    })
+@Import({ForumService.class, TopicCache.class, SimpleMeterRegistry.class})
+public class MessageAppendScalingTest {
+
+  @Autowired private ForumService forumService;
+  @Autowired private EntityManager entityManager;
+  @Autowired private EntityManagerFactory entityManagerFactory;
+
+  private Statistics statistics;
+  private User user;
+
+  @BeforeEach
+  public void setup() {
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    user = new User();
+    user.setUsername("author");
+    user.setPassword("password");
+    entityManager.persist(user);
+  }
+
+  @Test
+  public void addMessageToTopic_CostDoesNotDependOnTopicSize() {
+    Measurement small = measureAppend(10);
+    Measurement large = measureAppend(5_000);
+
+    assertEquals(0, small.collectionsFetched);
+    assertEquals(small.collectionsFetched, large.collectionsFetched);
+    assertEquals(small.entitiesLoaded, large.entitiesLoaded);
+    assertEquals(small.statements, large.statements);
+  }
+
+  @Test
+  public void addMessages_InsertsInJdbcBatches() {
+    Topic topic = seedTopic(1);
+    List<MessageBatchItemDTO> items = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      MessageBatchItemDTO item = new MessageBatchItemDTO();
+      item.setTopicId(topic.getId());
+      item.setText("Batch message " + i);
+      items.add(item);
+    }
+    statistics.clear();
+
+    forumService.addMessages(items, user.getId());
+    entityManager.flush();
+    entityManager.clear();
+
+    assertTrue(statistics.getPrepareStatementCount() < 20);
+    assertEquals(201L, entityManager.find(Topic.class, topic.getId()).getMessageCount());
+  }
+
+  private Topic seedTopic(int messages) {
+    OffsetDateTime created = OffsetDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    Topic topic = new Topic();
+    topic.setTitle("Topic with " + messages + " messages");
+    topic.setCreated(created);
+    topic.setUser(user);
+    // Счетчики темы соответствуют вставленным ниже сообщениям.
+    topic.setMessageCount(messages);
+    topic.setLastMessageAt(messages > 0 ? created : null);
+    entityManager.persist(topic);
+    for (int i = 0; i < messages; i++) {
+      Message message = new Message();
+      message.setText("Message " + i);
+      message.setAuthor(user.getUsername());
+      message.setCreated(created);
+      message.setTopic(topic);
+      entityManager.persist(message);
+      if (i % 500 == 0) {
+        entityManager.flush();
+        entityManager.clear();
+        topic = entityManager.getReference(Topic.class, topic.getId());
+      }
+    }
+    entityManager.flush();
+    entityManager.clear();
+    return topic;
+  }
+
+  private Measurement measureAppend(int topicSize) {
+    Topic topic = seedTopic(topicSize);
+    statistics.clear();
+    Message message = new Message();
+    message.setText("New message");
+    forumService.addMessageToTopic(topic.getId(), message, user.getId());
+    entityManager.flush();
+    entityManager.clear();
+    return new Measurement(
+        statistics.getEntityLoadCount(),
+        statistics.getCollectionFetchCount(),
+        statistics.getPrepareStatementCount());
+  }
+
+  private static final class Measurement {
+    private final long entitiesLoaded;
+    private final long collectionsFetched;
+    private final long statements;
+
+    private Measurement(long entitiesLoaded, long collectionsFetched, long statements) {
+      this.entitiesLoaded = entitiesLoaded;
+      this.collectionsFetched = collectionsFetched;
+      this.statements = statements;
+    }
+  }
+}
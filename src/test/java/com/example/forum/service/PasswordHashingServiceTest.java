@@ -0,0 +1,126 @@
+package com.example.forum.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.*;
+
+import com.example.forum.config.UserPrincipal;
+import com.example.forum.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+public class PasswordHashingServiceTest {
+
+  private PasswordEncoder passwordEncoder;
+  private UserDetailsService userDetailsService;
+  private SimpleMeterRegistry meterRegistry;
+  private PasswordHashingService passwordHashingService;
+
+  @BeforeEach
+  public void setup() {
+    passwordEncoder = mock(PasswordEncoder.class);
+    userDetailsService = mock(UserDetailsService.class);
+    meterRegistry = new SimpleMeterRegistry();
+    passwordHashingService =
+        new PasswordHashingService(passwordEncoder, userDetailsService, meterRegistry, 1, 1);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    passwordHashingService.destroy();
+  }
+
+  @Test
+  public void encode_RunsOnHashingPool() {
+    when(passwordEncoder.encode("password"))
+        .thenAnswer(i -> Thread.currentThread().getName() + ":hash");
+
+    String hash = passwordHashingService.encode("password").join();
+
+    assertThat(hash).startsWith("password-hashing-");
+  }
+
+  @Test
+  public void encode_PoolSaturated_RejectsImmediately() throws InterruptedException {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    when(passwordEncoder.encode("slow"))
+        .thenAnswer(
+            i -> {
+              started.countDown();
+              release.await();
+              return "hash";
+            });
+
+    CompletableFuture<String> running = passwordHashingService.encode("slow");
+    started.await();
+    CompletableFuture<String> queued = passwordHashingService.encode("slow");
+
+    assertThat(meterRegistry.get("forum.password.hashing.queue.depth").gauge().value())
+        .isEqualTo(1.0);
+    assertThatExceptionOfType(ServiceOverloadedException.class)
+        .isThrownBy(() -> passwordHashingService.encode("slow"));
+    assertThat(meterRegistry.get("forum.password.hashing.rejected").counter().count())
+        .isEqualTo(1.0);
+
+    release.countDown();
+    assertThat(running.join()).isEqualTo("hash");
+    assertThat(queued.join()).isEqualTo("hash");
+  }
+
+  @Test
+  public void authenticate_LoadsUserOnCallerAndMatchesOnHashingPool() {
+    String caller = Thread.currentThread().getName();
+    when(userDetailsService.loadUserByUsername("alice"))
+        .thenAnswer(
+            i -> {
+              assertThat(Thread.currentThread().getName()).isEqualTo(caller);
+              return new UserPrincipal(1L, "alice", "hash", List.of("USER"));
+            });
+    when(passwordEncoder.matches("secret", "hash"))
+        .thenAnswer(i -> Thread.currentThread().getName().startsWith("password-hashing-"));
+
+    Authentication authentication =
+        passwordHashingService
+            .authenticate(new UsernamePasswordAuthenticationToken("alice", "secret"))
+            .join();
+
+    assertThat(authentication.isAuthenticated()).isTrue();
+    assertThat(((UserPrincipal) authentication.getPrincipal()).getPassword()).isNull();
+  }
+
+  @Test
+  public void authenticate_UnknownUserOrWrongPassword_FailsWithBadCredentials() {
+    when(userDetailsService.loadUserByUsername("alice"))
+        .thenReturn(new UserPrincipal(1L, "alice", "hash", List.of("USER")));
+    when(userDetailsService.loadUserByUsername("ghost"))
+        .thenThrow(new UsernameNotFoundException("ghost"));
+    when(passwordEncoder.encode(anyString())).thenReturn("dummy");
+
+    CompletableFuture<Authentication> wrong =
+        passwordHashingService.authenticate(new UsernamePasswordAuthenticationToken("alice", "x"));
+    CompletableFuture<Authentication> unknown =
+        passwordHashingService.authenticate(new UsernamePasswordAuthenticationToken("ghost", "x"));
+
+    assertThatExceptionOfType(CompletionException.class)
+        .isThrownBy(wrong::join)
+        .withCauseInstanceOf(BadCredentialsException.class);
+    assertThatExceptionOfType(CompletionException.class)
+        .isThrownBy(unknown::join)
+        .withCauseInstanceOf(BadCredentialsException.class);
+    // Пароль неизвестного пользователя тоже проверяется, чтобы время ответа было таким же.
+    verify(passwordEncoder).matches("x", "dummy");
+  }
+}
@@ -0,0 +1,110 @@
+package com.example.forum.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.forum.dto.MessageDTO;
+import com.example.forum.dto.SearchHitDTO;
+import com.example.forum.dto.TopicDTO;
+import com.example.forum.entity.Message;
+import com.example.forum.entity.Topic;
+import com.example.forum.entity.User;
+import com.example.forum.exception.BadRequestException;
+import com.example.forum.repository.MessageRepository;
+import com.example.forum.repository.TopicRepository;
+import com.example.forum.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Проверяет обновление поискового индекса после фиксации транзакций записи и его перестроение из
+ * базы данных. Тест выполняется без объемлющей транзакции, чтобы события обрабатывались так же, как
+ * в приложении.
+ */
+@DataJpaTest(properties = {"spring.jpa.show-sql=false", "forum.search.rebuild-on-startup=false"})
+@Import({ForumService.class, TopicCache.class, SearchService.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class SearchServiceTest {
+
+  @Autowired private ForumService forumService;
+  @Autowired private SearchService searchService;
+  @Autowired private UserRepository userRepository;
+  @Autowired private TopicRepository topicRepository;
+  @Autowired private MessageRepository messageRepository;
+
+  private User user;
+
+  @BeforeEach
+  public void setup() {
+    user = new User();
+    user.setUsername("author");
+    user.setPassword("password");
+    user = userRepository.save(user);
+  }
+
+  @AfterEach
+  public void cleanup() {
+    messageRepository.deleteAll();
+    topicRepository.deleteAll();
+    userRepository.deleteAll();
+    searchService.rebuildIndex();
+  }
+
+  @Test
+  public void search_FollowsCommittedWrites() {
+    Topic topic = createTopic("Настройка кэша", "Какой размер выбрать для Caffeine?");
+    UUID topicId = topic.getId();
+
+    List<SearchHitDTO> hits = searchService.search("кэша", 10);
+    assertEquals(1, hits.size());
+    assertEquals(SearchHitDTO.TOPIC, hits.get(0).getType());
+    assertEquals("Настройка кэша", hits.get(0).getText());
+
+    Message reply = new Message();
+    reply.setText("Caffeine с весом записей");
+    reply = forumService.addMessageToTopic(topicId, reply, user.getId());
+    hits = searchService.search("caffeine", 10);
+    assertEquals(2, hits.size());
+    assertTrue(hits.stream().allMatch(hit -> topicId.equals(hit.getTopicId())));
+
+    forumService.deleteMessage(reply.getId(), user.getId());
+    hits = searchService.search("caffeine", 10);
+    assertEquals(1, hits.size());
+    assertEquals("Какой размер выбрать для Caffeine?", hits.get(0).getText());
+  }
+
+  @Test
+  public void rebuildIndex_ReadsChangesMadeBypassingService() {
+    Topic topic = createTopic("Старый заголовок", "Полнотекстовый поиск по сообщениям");
+    topic = topicRepository.findById(topic.getId()).orElseThrow();
+    topic.setTitle("Новый заголовок");
+    topicRepository.save(topic);
+    assertTrue(searchService.search("новый", 10).isEmpty());
+
+    assertEquals(2, searchService.rebuildIndex());
+    assertEquals(1, searchService.search("новый", 10).size());
+    assertTrue(searchService.search("старый", 10).isEmpty());
+  }
+
+  @Test
+  public void search_BlankQuery_ThrowsException() {
+    assertThrows(BadRequestException.class, () -> searchService.search(" -- ", 10));
+  }
+
+  private Topic createTopic(String title, String text) {
+    MessageDTO message = new MessageDTO();
+    message.setText(text);
+    TopicDTO topic = new TopicDTO();
+    topic.setTopicName(title);
+    topic.setMessage(message);
+    return forumService.createTopic(topic, user.getId());
+  }
+}
@@ -0,0 +1,118 @@
+package com.example.forum.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.forum.entity.Message;
+import com.example.forum.entity.Topic;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+public class TopicCacheTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final TopicCache topicCache =
+      new TopicCache(100, Duration.ofMinutes(1), 2, 64, meterRegistry);
+  private final UUID topicId = UUID.randomUUID();
+  private final AtomicInteger loads = new AtomicInteger();
+
+  @AfterEach
+  public void cleanup() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  public void getTopic_SecondRead_ServedFromCache() {
+    Topic first = topicCache.getTopic(topicId, this::loadTopic);
+    Topic second = topicCache.getTopic(topicId, this::loadTopic);
+
+    assertSame(first, second);
+    assertEquals(1, loads.get());
+    assertEquals(
+        1.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+    assertEquals(
+        1.0, meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count());
+  }
+
+  @Test
+  public void invalidate_OutsideTransaction_ReloadsTopic() {
+    topicCache.getTopic(topicId, this::loadTopic);
+    topicCache.invalidate(topicId);
+    topicCache.getTopic(topicId, this::loadTopic);
+
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void invalidate_InsideTransaction_BypassesCacheUntilCompletion() {
+    topicCache.getTopic(topicId, this::loadTopic);
+    TransactionSynchronizationManager.initSynchronization();
+    topicCache.invalidate(topicId);
+
+    // Чтения во время транзакции записи не используют кэш и не заполняют его.
+    topicCache.getTopic(topicId, this::loadTopic);
+    topicCache.getTopic(topicId, this::loadTopic);
+    assertEquals(3, loads.get());
+
+    List<TransactionSynchronization> synchronizations =
+        TransactionSynchronizationManager.getSynchronizations();
+    TransactionSynchronizationManager.clearSynchronization();
+    TransactionSynchronizationUtils.invokeAfterCompletion(
+        synchronizations, TransactionSynchronization.STATUS_COMMITTED);
+
+    topicCache.getTopic(topicId, this::loadTopic);
+    topicCache.getTopic(topicId, this::loadTopic);
+    assertEquals(4, loads.get());
+  }
+
+  @Test
+  public void getTopic_WriteCommittedDuringLoad_DoesNotServeStaleValue() {
+    Supplier<Topic> racingLoader =
+        () -> {
+          Topic stale = loadTopic();
+          topicCache.invalidate(topicId);
+          return stale;
+        };
+    Topic stale = topicCache.getTopic(topicId, racingLoader);
+
+    assertNotSame(stale, topicCache.getTopic(topicId, this::loadTopic));
+  }
+
+  @Test
+  public void getMessages_OnlyFirstPagesCached() {
+    Page<Message> page = new PageImpl<>(List.of(new Message()));
+    Supplier<Page<Message>> loader =
+        () -> {
+          loads.incrementAndGet();
+          return page;
+        };
+
+    topicCache.getMessages(topicId, PageRequest.of(1, 10), loader);
+    topicCache.getMessages(topicId, PageRequest.of(1, 10), loader);
+    assertEquals(1, loads.get());
+
+    topicCache.getMessages(topicId, PageRequest.of(2, 10), loader);
+    topicCache.getMessages(topicId, PageRequest.of(2, 10), loader);
+    assertEquals(3, loads.get());
+  }
+
+  private Topic loadTopic() {
+    loads.incrementAndGet();
+    Topic topic = new Topic();
+    topic.setId(topicId);
+    return topic;
+  }
+}
@@ -0,0 +1,123 @@
+package com.example.forum.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.forum.dto.MessageDTO;
+import com.example.forum.dto.TopicDTO;
+import com.example.forum.entity.Message;
+import com.example.forum.entity.Topic;
+import com.example.forum.entity.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Проверяет поддержку счетчиков сообщений темы при добавлении и удалении сообщений, а также их
+ * восстановление после расхождения.
+ */
+@DataJpaTest(properties = {"spring.jpa.show-sql=false", "forum.topic-counters.repair.batch-size=2"})
+@Import({
+  ForumService.class,
+  TopicCache.class,
+  TopicCounterRepairService.class,
+  SimpleMeterRegistry.class
+})
+public class TopicCounterRepairServiceTest {
+
+  @Autowired private ForumService forumService;
+  @Autowired private TopicCounterRepairService repairService;
+  @Autowired private EntityManager entityManager;
+
+  private User user;
+
+  @BeforeEach
+  public void setup() {
+    user = new User();
+    user.setUsername("author");
+    user.setPassword("password");
+    entityManager.persist(user);
+  }
+
+  @Test
+  public void counters_FollowAppendsAndDeletes() {
+    UUID topicId = createTopic();
+    Message second = append(topicId, "second");
+    append(topicId, "third");
+
+    Topic topic = reload(topicId);
+    assertEquals(3, topic.getMessageCount());
+    assertTrue(second.getCreated().isBefore(topic.getLastMessageAt()));
+
+    forumService.deleteMessage(second.getId(), user.getId());
+    topic = reload(topicId);
+    assertEquals(2, topic.getMessageCount());
+    assertEquals(3, topic.getRevision());
+    assertNotNull(topic.getModifiedAt());
+  }
+
+  @Test
+  public void deleteMessage_LastMessage_DeletesTopic() {
+    UUID topicId = createTopic();
+    Topic topic = reload(topicId);
+    UUID messageId = topic.getMessages().get(0).getId();
+    entityManager.clear();
+
+    forumService.deleteMessage(messageId, user.getId());
+    entityManager.flush();
+    entityManager.clear();
+
+    assertNull(entityManager.find(Topic.class, topicId));
+  }
+
+  @Test
+  public void repairCounters_FixesOnlyDriftedTopics() {
+    UUID drifted = createTopic();
+    UUID consistent = createTopic();
+    UUID alsoDrifted = createTopic();
+    append(drifted, "reply");
+    entityManager.flush();
+    entityManager
+        .createQuery("update Topic t set t.messageCount = 42 where t.id in :ids")
+        .setParameter("ids", List.of(drifted, alsoDrifted))
+        .executeUpdate();
+    entityManager.clear();
+
+    assertEquals(2, repairService.repairCounters());
+    assertEquals(2, reload(drifted).getMessageCount());
+    assertEquals(1, reload(consistent).getMessageCount());
+    assertEquals(1, reload(alsoDrifted).getMessageCount());
+    assertEquals(0, repairService.repairCounters());
+  }
+
+  private UUID createTopic() {
+    TopicDTO topicDto = new TopicDTO();
+    topicDto.setTopicName("Topic");
+    MessageDTO messageDto = new MessageDTO();
+    messageDto.setText("first");
+    topicDto.setMessage(messageDto);
+    UUID topicId = forumService.createTopic(topicDto, user.getId()).getId();
+    entityManager.flush();
+    entityManager.clear();
+    return topicId;
+  }
+
+  private Message append(UUID topicId, String text) {
+    Message message = new Message();
+    message.setText(text);
+    Message saved = forumService.addMessageToTopic(topicId, message, user.getId());
+    entityManager.flush();
+    entityManager.clear();
+    return saved;
+  }
+
+  private Topic reload(UUID topicId) {
+    entityManager.clear();
+    return entityManager.find(Topic.class, topicId);
+  }
+}
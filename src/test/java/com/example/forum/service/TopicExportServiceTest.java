@@ -0,0 +1,104 @@
+package com.example.forum.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.forum.entity.Message;
+import com.example.forum.entity.Topic;
+import com.example.forum.entity.User;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+/** Проверяет потоковую выгрузку сообщений темы в NDJSON. */
+@DataJpaTest(properties = {"spring.jpa.show-sql=false", "forum.export.clear-interval=10"})
+@Import(TopicExportService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+public class TopicExportServiceTest {
+
+  private static final int MESSAGES = 25;
+
+  @Autowired private TopicExportService exportService;
+  @Autowired private EntityManager entityManager;
+
+  private UUID topicId;
+
+  @BeforeEach
+  public void setup() {
+    User user = new User();
+    user.setUsername("author");
+    user.setPassword("password");
+    entityManager.persist(user);
+
+    Topic topic = new Topic();
+    topic.setTitle("export");
+    topic.setCreated(OffsetDateTime.now());
+    topic.setUser(user);
+    entityManager.persist(topic);
+    OffsetDateTime created = OffsetDateTime.now();
+    for (int i = 0; i < MESSAGES; i++) {
+      Message message = new Message();
+      message.setAuthor("author");
+      message.setText("message " + i);
+      message.setCreated(created.plusSeconds(i));
+      message.setTopic(topic);
+      entityManager.persist(message);
+    }
+    topicId = topic.getId();
+    entityManager.flush();
+    entityManager.clear();
+  }
+
+  @Test
+  public void export_WritesOneMessagePerLineInOrder() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    long count = exportService.export(topicId, out, false);
+
+    String[] lines = out.toString(StandardCharsets.UTF_8).split("\n", -1);
+    assertEquals(MESSAGES, count);
+    assertEquals(MESSAGES + 1, lines.length);
+    assertEquals("", lines[MESSAGES]);
+    ObjectMapper mapper = new ObjectMapper();
+    for (int i = 0; i < MESSAGES; i++) {
+      JsonNode message = mapper.readTree(lines[i]);
+      assertEquals("message " + i, message.get("text").asText());
+      assertFalse(message.has("topic"));
+    }
+    // Выгруженные сообщения не остаются в контексте персистентности.
+    assertTrue(entityManager.unwrap(Session.class).getStatistics().getEntityCount() < 10);
+  }
+
+  @Test
+  public void export_Gzip_ProducesCompressedNdjson() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    exportService.export(topicId, out, true);
+
+    byte[] plain = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())).readAllBytes();
+    String[] lines = new String(plain, StandardCharsets.UTF_8).split("\n");
+    assertEquals(MESSAGES, lines.length);
+    assertTrue(lines[0].contains("\"text\":\"message 0\""));
+  }
+
+  @Test
+  public void export_UnknownTopic_WritesNothing() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    assertEquals(0, exportService.export(UUID.randomUUID(), out, false));
+    assertEquals(0, out.size());
+  }
+}
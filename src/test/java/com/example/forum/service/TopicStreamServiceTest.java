@@ -0,0 +1,213 @@
+package com.example.forum.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.forum.event.MessageChangedEvent;
+import com.example.forum.exception.ServiceOverloadedException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public class TopicStreamServiceTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final TopicStreamService streamService = newService(4, 3);
+  private final UUID topicId = UUID.randomUUID();
+
+  @AfterEach
+  public void cleanup() {
+    streamService.destroy();
+  }
+
+  @Test
+  public void onMessageChanged_DeliversToSubscribersOfTopicOnly() {
+    RecordingEmitter subscriber = new RecordingEmitter();
+    RecordingEmitter other = new RecordingEmitter();
+    streamService.subscribe(topicId, null, subscriber);
+    streamService.subscribe(UUID.randomUUID(), null, other);
+
+    UUID messageId = UUID.randomUUID();
+    streamService.onMessageChanged(MessageChangedEvent.saved(messageId, topicId, "hello"));
+
+    await(() -> subscriber.events().size() == 1);
+    String event = subscriber.events().get(0);
+    assertTrue(event.contains("event:message"));
+    assertTrue(event.contains("\"messageId\":\"" + messageId + "\""));
+    assertTrue(event.contains("\"text\":\"hello\""));
+    assertTrue(other.events().isEmpty());
+    assertEquals(2, streamService.getSubscriberCount());
+  }
+
+  @Test
+  public void subscribe_WithLastEventId_ReplaysMissedEvents() {
+    RecordingEmitter first = new RecordingEmitter();
+    streamService.subscribe(topicId, null, first);
+    publish("one");
+    await(() -> first.events().size() == 1);
+    String lastEventId = first.lastEventId();
+    first.complete();
+    publish("two");
+    publish("three");
+
+    RecordingEmitter resumed = new RecordingEmitter();
+    streamService.subscribe(topicId, lastEventId, resumed);
+
+    await(() -> resumed.events().size() == 2);
+    assertTrue(resumed.events().get(0).contains("two"));
+    assertTrue(resumed.events().get(1).contains("three"));
+  }
+
+  @Test
+  public void subscribe_WithEvictedOrUnknownLastEventId_SendsReset() {
+    RecordingEmitter first = new RecordingEmitter();
+    streamService.subscribe(topicId, null, first);
+    publish("one");
+    await(() -> first.events().size() == 1);
+    String lastEventId = first.lastEventId();
+    for (int i = 0; i < 4; i++) {
+      publish("later " + i);
+    }
+
+    RecordingEmitter evicted = new RecordingEmitter();
+    RecordingEmitter unknown = new RecordingEmitter();
+    streamService.subscribe(topicId, lastEventId, evicted);
+    streamService.subscribe(topicId, "previous-run-42", unknown);
+
+    await(() -> !evicted.events().isEmpty() && !unknown.events().isEmpty());
+    assertTrue(evicted.events().get(0).contains("event:reset"));
+    assertTrue(unknown.events().get(0).contains("event:reset"));
+  }
+
+  @Test
+  public void slowConsumer_IsDisconnectedWithoutBlockingPublisher() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    RecordingEmitter slow = new RecordingEmitter(release);
+    RecordingEmitter fast = new RecordingEmitter();
+    streamService.subscribe(topicId, null, slow);
+    streamService.subscribe(topicId, null, fast);
+
+    for (int i = 0; i < 10; i++) {
+      publish("message " + i);
+      int delivered = i + 1;
+      await(() -> fast.events().size() == delivered);
+    }
+    release.countDown();
+
+    await(() -> slow.completed);
+    assertEquals(1.0, meterRegistry.get("forum.stream.slow-consumers").counter().count());
+    await(() -> streamService.getSubscriberCount() == 1);
+  }
+
+  @Test
+  public void subscribe_OverLimit_ThrowsServiceOverloaded() {
+    TopicStreamService limited = newService(4, 3, 1);
+    try {
+      limited.subscribe(topicId, null, new RecordingEmitter());
+      assertThrows(
+          ServiceOverloadedException.class,
+          () -> limited.subscribe(topicId, null, new RecordingEmitter()));
+      assertEquals(1, limited.getSubscriberCount());
+    } finally {
+      limited.destroy();
+    }
+  }
+
+  private void publish(String text) {
+    streamService.onMessageChanged(MessageChangedEvent.saved(UUID.randomUUID(), topicId, text));
+  }
+
+  private TopicStreamService newService(int bufferSize, int historySize) {
+    return newService(bufferSize, historySize, 100);
+  }
+
+  private TopicStreamService newService(int bufferSize, int historySize, int maxSubscribers) {
+    return new TopicStreamService(
+        new ObjectMapper(),
+        meterRegistry,
+        Duration.ofMinutes(1),
+        Duration.ofMinutes(1),
+        bufferSize,
+        historySize,
+        Duration.ofMinutes(1),
+        maxSubscribers,
+        2,
+        false);
+  }
+
+  private static void await(BooleanSupplier condition) {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      if (System.nanoTime() > deadline) {
+        fail("Condition was not met in time");
+      }
+      try {
+        Thread.sleep(10);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        fail(e);
+      }
+    }
+  }
+
+  /** SseEmitter, записывающий отправленные события вместо ответа сервлета. */
+  private static class RecordingEmitter extends SseEmitter {
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release;
+    private volatile boolean completed;
+
+    RecordingEmitter() {
+      this(null);
+    }
+
+    RecordingEmitter(CountDownLatch release) {
+      this.release = release;
+    }
+
+    @Override
+    public void send(SseEventBuilder builder) throws IOException {
+      if (release != null) {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException(e);
+        }
+      }
+      String event =
+          builder.build().stream()
+              .map(ResponseBodyEmitter.DataWithMediaType::getData)
+              .map(Object::toString)
+              .collect(Collectors.joining());
+      // Комментарии-пульсы не являются событиями.
+      if (!event.startsWith(":")) {
+        sent.add(event);
+      }
+    }
+
+    @Override
+    public synchronized void complete() {
+      completed = true;
+    }
+
+    List<String> events() {
+      return sent;
+    }
+
+    String lastEventId() {
+      String event = sent.get(sent.size() - 1);
+      return event.substring(3, event.indexOf('\n'));
+    }
+  }
+}
@@ -3,11 +3,16 @@ package com.example.forum.service;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
+import com.example.forum.config.PrincipalCache;
+import com.example.forum.config.UserPrincipal;
 import com.example.forum.entity.User;
 import com.example.forum.repository.UserRepository;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -19,6 +24,7 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 public class UserServiceTest {
 
   @Mock private UserRepository userRepository;
+  @Mock private PrincipalCache principalCache;
 
   @InjectMocks private UserService userService;
 
@@ -67,4 +73,50 @@ public class UserServiceTest {
 
     verify(userRepository, times(1)).findByUsername("NonExistingUser");
   }
+
+  @Test
+  public void loadUserByUsername_ExistingUsername_ReturnsPrincipalWithId() {
+    User user = new User();
+    user.setId(7L);
+    user.setUsername("ExistingUser");
+    user.setPassword("password");
+
+    when(userRepository.findByUsername("ExistingUser")).thenReturn(Optional.of(user));
+
+    UserDetails userDetails = userService.loadUserByUsername("ExistingUser");
+
+    assertThat(userDetails).isInstanceOf(UserPrincipal.class);
+    assertThat(((UserPrincipal) userDetails).getId()).isEqualTo(7L);
+  }
+
+  @Test
+  public void loadPrincipal_CacheMiss_LoadsUserWithoutPassword() {
+    User user = new User();
+    user.setId(7L);
+    user.setUsername("ExistingUser");
+    user.setPassword("password");
+
+    when(userRepository.findByUsername("ExistingUser")).thenReturn(Optional.of(user));
+    when(principalCache.get(eq("ExistingUser"), any()))
+        .thenAnswer(
+            invocation ->
+                invocation.<Function<String, UserPrincipal>>getArgument(1).apply("ExistingUser"));
+
+    UserPrincipal principal = userService.loadPrincipal("ExistingUser");
+
+    assertThat(principal.getId()).isEqualTo(7L);
+    assertThat(principal.getPassword()).isNull();
+    assertThat(principal.getAuthorities()).extracting("authority").containsExactly("USER");
+  }
+
+  @Test
+  public void loadPrincipal_CacheHit_DoesNotQueryRepository() {
+    UserPrincipal cached = new UserPrincipal(7L, "CachedUser", null, List.of("USER"));
+    when(principalCache.get(eq("CachedUser"), any())).thenReturn(cached);
+
+    UserPrincipal principal = userService.loadPrincipal("CachedUser");
+
+    assertThat(principal).isSameAs(cached);
+    verify(userRepository, never()).findByUsername(any());
+  }
 }